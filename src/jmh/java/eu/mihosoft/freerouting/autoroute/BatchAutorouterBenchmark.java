@@ -0,0 +1,77 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * BatchAutorouterBenchmark.java
+ *
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import eu.mihosoft.freerouting.benchmark.BenchmarkBoards;
+import eu.mihosoft.freerouting.interactive.AutorouteSettings;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
+import eu.mihosoft.freerouting.interactive.HeadlessBatchAutorouter;
+
+/**
+ * Measures the first batch autoroute pass on the unrouted designs.
+ * Each measurement starts on a freshly read board.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchAutorouterBenchmark
+{
+    @Param({"Issue26-J2_reference.dsn", "Issue29-hw48na.dsn"})
+    public String design_name;
+
+    @Param({"false", "true"})
+    public boolean retain_autoroute_database;
+
+    private BoardHandlingImpl board_handling;
+
+    @Setup(Level.Invocation)
+    public void setup_invocation()
+    {
+        board_handling = BenchmarkBoards.read_board(design_name);
+        AutorouteSettings autoroute_settings = board_handling.get_settings().autoroute_settings;
+        autoroute_settings.set_start_pass_no(1);
+        autoroute_settings.set_stop_pass_no(1);
+        autoroute_settings.set_retain_autoroute_database(retain_autoroute_database);
+    }
+
+    @Benchmark
+    public BoardHandlingImpl autoroute_pass()
+    {
+        AutorouteSettings autoroute_settings = board_handling.get_settings().autoroute_settings;
+        BatchAutorouter batch_autorouter = new BatchAutorouter(new HeadlessBatchAutorouter(board_handling), board_handling,
+                true, true, autoroute_settings.get_start_ripup_costs());
+        batch_autorouter.autoroute_passes();
+        return board_handling;
+    }
+}
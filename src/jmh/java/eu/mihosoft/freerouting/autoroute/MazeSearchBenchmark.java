@@ -0,0 +1,179 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * MazeSearchBenchmark.java
+ *
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.mihosoft.freerouting.benchmark.BenchmarkBoards;
+import eu.mihosoft.freerouting.board.Connectable;
+import eu.mihosoft.freerouting.board.Item;
+import eu.mihosoft.freerouting.board.RoutingBoard;
+import eu.mihosoft.freerouting.datastructures.TimeLimit;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
+import eu.mihosoft.freerouting.interactive.HeadlessBatchAutorouter;
+
+/**
+ * Measures the maze search for the incomplete connections of the designs in the tests directory
+ * and compares the expansion list of the maze search with the previously used TreeSet.
+ * Run with the gc profiler (-prof gc) to see the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MazeSearchBenchmark
+{
+    /**
+     * The incomplete connections of a board, for which a connection is searched
+     * without inserting the found route into the board.
+     */
+    @State(Scope.Benchmark)
+    public static class BoardState
+    {
+        @Param({"Issue26-J2_reference.dsn", "Issue29-hw48na.dsn", "Issue15-StackOverflow.dsn"})
+        public String design_name;
+
+        BoardHandlingImpl board_handling;
+        HeadlessBatchAutorouter stoppable;
+        List<Item> start_items = new ArrayList<Item>();
+        List<Integer> net_nos = new ArrayList<Integer>();
+
+        @Setup
+        public void setup()
+        {
+            board_handling = BenchmarkBoards.read_board(design_name);
+            stoppable = new HeadlessBatchAutorouter(board_handling);
+            RoutingBoard routing_board = board_handling.get_routing_board();
+            for (Item curr_item : routing_board.get_items())
+            {
+                if (!(curr_item instanceof Connectable) || curr_item.is_route())
+                {
+                    continue;
+                }
+                for (int i = 0; i < curr_item.net_count(); ++i)
+                {
+                    int curr_net_no = curr_item.get_net_no(i);
+                    if (!curr_item.get_unconnected_set(curr_net_no).isEmpty())
+                    {
+                        start_items.add(curr_item);
+                        net_nos.add(curr_net_no);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Random maze list elements to compare the expansion list implementations.
+     */
+    @State(Scope.Benchmark)
+    public static class ListState
+    {
+        @Param({"1000", "100000"})
+        public int element_count;
+
+        MazeListElement[] elements;
+
+        @Setup
+        public void setup()
+        {
+            Random random_generator = new Random(4711);
+            elements = new MazeListElement[element_count];
+            for (int i = 0; i < element_count; ++i)
+            {
+                // few distinct values to exercise the ordering of equal sorting values
+                double curr_sorting_value = random_generator.nextInt(element_count / 10 + 1);
+                elements[i] = new MazeListElement(null, i, null, 0, curr_sorting_value, curr_sorting_value,
+                        null, null, false, MazeSearchElement.Adjustment.NONE, false);
+            }
+        }
+    }
+
+    /**
+     * Searches a connection for each incomplete connection of the board.
+     * The time divided by the number of connections is the latency per connection.
+     */
+    @Benchmark
+    public void find_connection(BoardState p_state, Blackhole p_blackhole)
+    {
+        RoutingBoard routing_board = p_state.board_handling.get_routing_board();
+        for (int i = 0; i < p_state.start_items.size(); ++i)
+        {
+            Item curr_item = p_state.start_items.get(i);
+            int curr_net_no = p_state.net_nos.get(i);
+            AutorouteControl autoroute_control = new AutorouteControl(routing_board, curr_net_no, p_state.board_handling.get_settings());
+            AutorouteEngine autoroute_engine = routing_board.init_autoroute(curr_net_no,
+                    autoroute_control.trace_clearance_class_no, p_state.stoppable, new TimeLimit(MAX_MILLISECONDS_PER_CONNECTION), false);
+            Set<Item> start_set = curr_item.get_unconnected_set(curr_net_no);
+            Set<Item> dest_set = curr_item.get_connected_set(curr_net_no);
+            MazeSearchAlgo maze_search_algo = MazeSearchAlgo.get_instance(start_set, dest_set, autoroute_engine, autoroute_control);
+            if (maze_search_algo != null)
+            {
+                p_blackhole.consume(maze_search_algo.find_connection());
+            }
+        }
+        routing_board.finish_autoroute();
+    }
+
+    @Benchmark
+    public void expansion_list_heap(ListState p_state, Blackhole p_blackhole)
+    {
+        MazeExpansionList expansion_list = new MazeExpansionList();
+        for (MazeListElement curr_element : p_state.elements)
+        {
+            expansion_list.add(curr_element);
+        }
+        while (!expansion_list.is_empty())
+        {
+            p_blackhole.consume(expansion_list.poll());
+        }
+    }
+
+    @Benchmark
+    public void expansion_list_tree_set(ListState p_state, Blackhole p_blackhole)
+    {
+        TreeSet<MazeListElement> expansion_list = new TreeSet<MazeListElement>();
+        for (MazeListElement curr_element : p_state.elements)
+        {
+            expansion_list.add(curr_element);
+        }
+        while (!expansion_list.isEmpty())
+        {
+            p_blackhole.consume(expansion_list.pollFirst());
+        }
+    }
+
+    private static final int MAX_MILLISECONDS_PER_CONNECTION = 10000;
+}
@@ -0,0 +1,72 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * BenchmarkBoards.java
+ *
+ */
+package eu.mihosoft.freerouting.benchmark;
+
+import eu.mihosoft.freerouting.board.TestLevel;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
+import eu.mihosoft.freerouting.interactive.HeadlessBatchAutorouter;
+
+/**
+ * Loads the designs in the tests directory for the benchmarks.
+ * The directory is taken from the system property freerouting.tests.dir,
+ * which is set by the jmh task of the build.
+ */
+public class BenchmarkBoards
+{
+    /**
+     * Reads the design p_file_name from the tests directory into a new headless board handling.
+     * Throws an IllegalStateException, if the design could not be read.
+     */
+    public static BoardHandlingImpl read_board(String p_file_name)
+    {
+        BoardHandlingImpl result = HeadlessBatchAutorouter.read_design(new java.io.ByteArrayInputStream(read_design_file(p_file_name)),
+                TestLevel.RELEASE_VERSION);
+        if (result == null)
+        {
+            throw new IllegalStateException("design " + p_file_name + " could not be read");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the content of the design file p_file_name in the tests directory,
+     * so that reading the file from disk is not part of the measurement.
+     */
+    public static byte[] read_design_file(String p_file_name)
+    {
+        java.io.File design_file = new java.io.File(System.getProperty(TESTS_DIR_PROPERTY, "tests"), p_file_name);
+        try
+        {
+            return java.nio.file.Files.readAllBytes(design_file.toPath());
+        }
+        catch (java.io.IOException e)
+        {
+            throw new IllegalStateException("design " + design_file + " not found", e);
+        }
+    }
+
+    private BenchmarkBoards()
+    {
+    }
+
+    private static final String TESTS_DIR_PROPERTY = "freerouting.tests.dir";
+}
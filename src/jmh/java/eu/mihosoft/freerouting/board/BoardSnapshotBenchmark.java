@@ -0,0 +1,94 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * BoardSnapshotBenchmark.java
+ *
+ */
+package eu.mihosoft.freerouting.board;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import eu.mihosoft.freerouting.benchmark.BenchmarkBoards;
+
+/**
+ * Compares writing and reading a board in the binary board format with Java serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BoardSnapshotBenchmark
+{
+    @Param({"Issue29-hw48na.dsn", "Issue22-AutoRouter_interrupted.dsn"})
+    public String design_name;
+
+    private RoutingBoard routing_board;
+    private byte[] binary_board;
+    private byte[] serialized_board;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        routing_board = BenchmarkBoards.read_board(design_name).get_routing_board();
+        binary_board = write_binary();
+        serialized_board = write_serialized();
+    }
+
+    @Benchmark
+    public byte[] write_binary() throws IOException
+    {
+        ByteArrayOutputStream output_stream = new ByteArrayOutputStream();
+        routing_board.write_binary(output_stream);
+        return output_stream.toByteArray();
+    }
+
+    @Benchmark
+    public BasicBoard read_binary() throws IOException, ClassNotFoundException
+    {
+        return BasicBoard.read_binary(new ByteArrayInputStream(binary_board));
+    }
+
+    @Benchmark
+    public byte[] write_serialized() throws IOException
+    {
+        ByteArrayOutputStream output_stream = new ByteArrayOutputStream();
+        ObjectOutputStream object_stream = new ObjectOutputStream(output_stream);
+        object_stream.writeObject(routing_board);
+        object_stream.close();
+        return output_stream.toByteArray();
+    }
+
+    @Benchmark
+    public Object read_serialized() throws IOException, ClassNotFoundException
+    {
+        return new ObjectInputStream(new ByteArrayInputStream(serialized_board)).readObject();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * CompleteShapeBenchmark.java
+ *
+ */
+package eu.mihosoft.freerouting.board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.mihosoft.freerouting.autoroute.IncompleteFreeSpaceExpansionRoom;
+import eu.mihosoft.freerouting.benchmark.BenchmarkBoards;
+import eu.mihosoft.freerouting.geometry.planar.FortyfiveDegreeBoundingDirections;
+import eu.mihosoft.freerouting.geometry.planar.TileShape;
+import eu.mihosoft.freerouting.logger.FRMetrics;
+
+/**
+ * Measures ShapeSearchTree.complete_shape, which calculates the free space rooms of the autorouter,
+ * for a room around each pin of the board.
+ * The any angle tree uses the general shape calculations, where the exact geometry predicates are evaluated,
+ * the 45 degree tree uses the integer octagon calculations.
+ * The rate of the geometry predicates, which needed the exact BigInteger fallback, is printed at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompleteShapeBenchmark
+{
+    @Param({"Issue29-hw48na.dsn", "Issue22-AutoRouter_interrupted.dsn"})
+    public String design_name;
+
+    @Param({"true", "false"})
+    public boolean any_angle;
+
+    private ShapeSearchTree search_tree;
+    private final List<IncompleteFreeSpaceExpansionRoom> rooms = new ArrayList<IncompleteFreeSpaceExpansionRoom>();
+    private final List<Integer> room_net_nos = new ArrayList<Integer>();
+    private final FRMetrics metrics = new FRMetrics();
+
+    @Setup
+    public void setup()
+    {
+        RoutingBoard routing_board = BenchmarkBoards.read_board(design_name).get_routing_board();
+        List<Item> board_items = new ArrayList<Item>(routing_board.get_items());
+        if (any_angle)
+        {
+            search_tree = new ShapeSearchTree(FortyfiveDegreeBoundingDirections.INSTANCE, routing_board, 0);
+        }
+        else
+        {
+            search_tree = new ShapeSearchTree45Degree(routing_board, 0);
+        }
+        search_tree.insert_all(board_items);
+        for (Item curr_item : board_items)
+        {
+            if (!(curr_item instanceof Pin) || curr_item.net_count() == 0)
+            {
+                continue;
+            }
+            TileShape contained_shape = curr_item.get_tile_shape(0);
+            if (!any_angle)
+            {
+                contained_shape = contained_shape.bounding_octagon();
+            }
+            rooms.add(new IncompleteFreeSpaceExpansionRoom(null, curr_item.shape_layer(0), contained_shape));
+            room_net_nos.add(curr_item.get_net_no(0));
+        }
+        this.metrics.start_pass();
+    }
+
+    @Benchmark
+    public void complete_shape(Blackhole p_blackhole)
+    {
+        // the benchmark may run in another thread than the setup
+        FRMetrics.set_current(this.metrics);
+        for (int i = 0; i < rooms.size(); ++i)
+        {
+            p_blackhole.consume(search_tree.complete_shape(rooms.get(i), room_net_nos.get(i), null, null));
+        }
+    }
+
+    @TearDown
+    public void print_fallback_rate()
+    {
+        System.out.println(this.metrics.end_pass(0));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * PullTightBenchmark.java
+ *
+ */
+package eu.mihosoft.freerouting.board;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import eu.mihosoft.freerouting.benchmark.BenchmarkBoards;
+import eu.mihosoft.freerouting.geometry.planar.Polyline;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
+import eu.mihosoft.freerouting.interactive.HeadlessBatchAutorouter;
+
+/**
+ * Measures the pull tight optimization of all traces of routed designs.
+ * Each measurement starts on a fresh copy of the board, because the optimization changes the traces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PullTightBenchmark
+{
+    @Param({"Issue15-StackOverflow.dsn", "Issue22-AutoRouter_interrupted.dsn"})
+    public String design_name;
+
+    private BoardHandlingImpl board_handling;
+    private HeadlessBatchAutorouter stoppable;
+    private byte[] board_snapshot;
+    private RoutingBoard routing_board;
+
+    @Setup(Level.Trial)
+    public void setup_trial()
+    {
+        board_handling = BenchmarkBoards.read_board(design_name);
+        stoppable = new HeadlessBatchAutorouter(board_handling);
+        board_snapshot = board_handling.get_routing_board().get_snapshot();
+    }
+
+    @Setup(Level.Invocation)
+    public void setup_invocation()
+    {
+        routing_board = (RoutingBoard) board_handling.get_routing_board().copy_from_snapshot(board_snapshot);
+        routing_board.start_marking_changed_area();
+        for (Trace curr_trace : routing_board.get_traces())
+        {
+            if (!(curr_trace instanceof PolylineTrace))
+            {
+                continue;
+            }
+            Polyline curr_polyline = ((PolylineTrace) curr_trace).polyline();
+            for (int i = 0; i < curr_polyline.corner_count(); ++i)
+            {
+                routing_board.join_changed_area(curr_polyline.corner_approx(i), curr_trace.get_layer());
+            }
+        }
+    }
+
+    @Benchmark
+    public RoutingBoard opt_changed_area()
+    {
+        routing_board.opt_changed_area(new int[0], null, board_handling.get_settings().get_trace_pull_tight_accuracy(),
+                board_handling.get_settings().autoroute_settings.get_trace_cost_arr(), stoppable, 0);
+        return routing_board;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * SearchTreeBenchmark.java
+ *
+ */
+package eu.mihosoft.freerouting.board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.mihosoft.freerouting.benchmark.BenchmarkBoards;
+import eu.mihosoft.freerouting.geometry.planar.FortyfiveDegreeBoundingDirections;
+import eu.mihosoft.freerouting.geometry.planar.TileShape;
+
+/**
+ * Measures building a search tree from all board items and its queries with the shapes of all board items,
+ * for a tree packed at once and for a tree built by inserting the items one by one.
+ * Measures also building an autoroute tree in the search tree manager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SearchTreeBenchmark
+{
+    @Param({"Issue29-hw48na.dsn", "Issue22-AutoRouter_interrupted.dsn"})
+    public String design_name;
+
+    @Param({"true", "false"})
+    public boolean packed;
+
+    private RoutingBoard routing_board;
+    private List<Item> board_items;
+    private ShapeSearchTree search_tree;
+    private final List<TileShape> query_shapes = new ArrayList<TileShape>();
+    private final List<Integer> query_layers = new ArrayList<Integer>();
+
+    @Setup
+    public void setup()
+    {
+        routing_board = BenchmarkBoards.read_board(design_name).get_routing_board();
+        board_items = new ArrayList<Item>(routing_board.get_items());
+        search_tree = new_tree();
+        for (Item curr_item : board_items)
+        {
+            for (int i = 0; i < curr_item.tile_shape_count(); ++i)
+            {
+                query_shapes.add(curr_item.get_tile_shape(i));
+                query_layers.add(curr_item.shape_layer(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public void overlapping_objects(Blackhole p_blackhole)
+    {
+        int[] ignore_net_nos = new int[0];
+        for (int i = 0; i < query_shapes.size(); ++i)
+        {
+            Set<SearchTreeObject> overlaps = new TreeSet<SearchTreeObject>();
+            search_tree.overlapping_objects(query_shapes.get(i), query_layers.get(i), ignore_net_nos, overlaps);
+            p_blackhole.consume(overlaps);
+        }
+    }
+
+    @Benchmark
+    public ShapeSearchTree build_tree()
+    {
+        ShapeSearchTree result = new_tree();
+        for (Item curr_item : board_items)
+        {
+            curr_item.remove_search_tree_entries(result);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public ShapeSearchTree build_autoroute_tree()
+    {
+        routing_board.search_tree_manager.reset_compensated_trees();
+        return routing_board.search_tree_manager.get_autoroute_tree(1);
+    }
+
+    private ShapeSearchTree new_tree()
+    {
+        ShapeSearchTree result = new ShapeSearchTree(FortyfiveDegreeBoundingDirections.INSTANCE, routing_board, 0);
+        if (packed)
+        {
+            result.insert_all(board_items);
+        }
+        else
+        {
+            for (Item curr_item : board_items)
+            {
+                result.insert(curr_item);
+            }
+        }
+        return result;
+    }
+}
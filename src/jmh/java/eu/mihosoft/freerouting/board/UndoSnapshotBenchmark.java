@@ -0,0 +1,75 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * UndoSnapshotBenchmark.java
+ *
+ */
+package eu.mihosoft.freerouting.board;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import eu.mihosoft.freerouting.benchmark.BenchmarkBoards;
+
+/**
+ * Measures the cost of a snapshot of the board followed by a change, which is either
+ * rejected by undo or accepted by popping the snapshot, as done for each item in the optimizer.
+ * Run with the gc profiler to see the memory retained by the undo stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UndoSnapshotBenchmark
+{
+    @Param({"Issue29-hw48na.dsn", "Issue22-AutoRouter_interrupted.dsn"})
+    public String design_name;
+
+    private RoutingBoard routing_board;
+    private int item_id_no;
+
+    @Setup
+    public void setup()
+    {
+        routing_board = BenchmarkBoards.read_board(design_name).get_routing_board();
+        item_id_no = routing_board.get_items().iterator().next().get_id_no();
+    }
+
+    @Benchmark
+    public boolean rejected_change()
+    {
+        routing_board.generate_snapshot();
+        routing_board.item_list.save_for_undo(routing_board.get_item(item_id_no));
+        return routing_board.undo(null);
+    }
+
+    @Benchmark
+    public boolean accepted_change()
+    {
+        routing_board.generate_snapshot();
+        routing_board.item_list.save_for_undo(routing_board.get_item(item_id_no));
+        return routing_board.pop_snapshot();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * DsnReadBenchmark.java
+ *
+ */
+package eu.mihosoft.freerouting.designforms.specctra;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import eu.mihosoft.freerouting.benchmark.BenchmarkBoards;
+import eu.mihosoft.freerouting.board.BoardObserverAdaptor;
+import eu.mihosoft.freerouting.board.ItemIdNoGenerator;
+import eu.mihosoft.freerouting.board.TestLevel;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
+
+/**
+ * Measures the parsing of Specctra dsn files and the creation of the board from them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DsnReadBenchmark
+{
+    @Param({"Issue29-hw48na.dsn", "Issue22-AutoRouter_interrupted.dsn", "Issue35-ReadPlaceScope.dsn"})
+    public String design_name;
+
+    private byte[] design_file;
+
+    @Setup
+    public void setup()
+    {
+        design_file = BenchmarkBoards.read_design_file(design_name);
+    }
+
+    @Benchmark
+    public BoardHandlingImpl read()
+    {
+        BoardHandlingImpl board_handling = new BoardHandlingImpl();
+        DsnFile.ReadResult read_result = DsnFile.read(new java.io.ByteArrayInputStream(design_file), board_handling,
+                new BoardObserverAdaptor(), new ItemIdNoGenerator(), TestLevel.RELEASE_VERSION);
+        if (read_result != DsnFile.ReadResult.OK)
+        {
+            throw new IllegalStateException("design " + design_name + " could not be read");
+        }
+        return board_handling;
+    }
+}
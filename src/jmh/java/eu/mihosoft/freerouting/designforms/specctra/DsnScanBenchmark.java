@@ -0,0 +1,80 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * DsnScanBenchmark.java
+ *
+ */
+package eu.mihosoft.freerouting.designforms.specctra;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import eu.mihosoft.freerouting.benchmark.BenchmarkBoards;
+
+/**
+ * Compares the tokenizing of Specctra dsn files by the generated scanner and by the memory mapped scanner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DsnScanBenchmark
+{
+    @Param({"Issue29-hw48na.dsn", "Issue22-AutoRouter_interrupted.dsn", "Issue35-ReadPlaceScope.dsn"})
+    public String design_name;
+
+    private byte[] design_file;
+
+    @Setup
+    public void setup()
+    {
+        design_file = BenchmarkBoards.read_design_file(design_name);
+    }
+
+    @Benchmark
+    public int scan_generated() throws java.io.IOException
+    {
+        return scan(new SpecctraFileScanner(new java.io.ByteArrayInputStream(design_file)));
+    }
+
+    @Benchmark
+    public int scan_mapped() throws java.io.IOException
+    {
+        return scan(new MappedSpecctraFileScanner(java.nio.ByteBuffer.wrap(design_file)));
+    }
+
+    /**
+     * Reads all tokens of the design file and returns their count.
+     */
+    private static int scan(Scanner p_scanner) throws java.io.IOException
+    {
+        int result = 0;
+        while (p_scanner.next_token() != null)
+        {
+            ++result;
+        }
+        return result;
+    }
+}
@@ -222,6 +222,12 @@ public class AutorouteControl
     public boolean ripup_allowed;
     public int ripup_costs;
     public int ripup_pass_no;
+    /** Added to the seed of the random numbers of the ripup algorithm, so that different autorouter starts make different choices */
+    public long random_seed;
+    /** The maze search stops without result after this number of expansions */
+    int max_expansion_count = Integer.MAX_VALUE;
+    /** The history costs of the negotiated congestion mode, or null, if the mode is not used */
+    CongestionMap congestion_map = null;
     public final boolean with_neckdown;
     /** If true, the autoroute algorithm completes after the first drill */
     public boolean is_fanout;
@@ -45,6 +45,7 @@ import eu.mihosoft.freerouting.board.ShapeSearchTree90Degree;
 import eu.mihosoft.freerouting.board.ShapeSearchTree45Degree;
 import eu.mihosoft.freerouting.board.TestLevel;
 import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
 
 /**
  * Temporary autoroute data stored on the RoutingBoard.
@@ -125,6 +126,7 @@ public class AutorouteEngine
             maze_search_algo = null;
         }
         MazeSearchAlgo.Result search_result = null;
+        this.expansion_count = 0;
         if (maze_search_algo != null)
         {
             try
@@ -134,6 +136,7 @@ public class AutorouteEngine
             {
                 FRLogger.error("AutorouteEngine.autoroute_connection: Exception in maze_search_algo.find_connection", e);
             }
+            this.expansion_count = maze_search_algo.get_expansion_count();
         }
         LocateFoundConnectionAlgo autoroute_result = null;
         if (search_result != null)
@@ -224,6 +227,14 @@ public class AutorouteEngine
         return this.net_no;
     }
 
+    /**
+     * Returns the number of maze expansions of the last connection routed with autoroute_connection.
+     */
+    public int get_expansion_count()
+    {
+        return this.expansion_count;
+    }
+
     /**
      * Returns if the user has stopped the autorouter.
      */
@@ -354,9 +365,25 @@ public class AutorouteEngine
                     int[] touching_sides = room_shape.touching_sides(neighbour_shape);
                     Line[] line_arr = new Line[1];
                     line_arr[0] = neighbour_shape.border_line(touching_sides[1]).opposite();
-                    Simplex new_incomplete_room_shape = Simplex.get_instance(line_arr);
+                    TileShape new_incomplete_room_shape = Simplex.get_instance(line_arr);
+                    TileShape new_contained_shape = intersection;
+                    // The fast search trees complete only boxes or octagons.
+                    // The border lines of their rooms are horizontal, vertical or diagonal,
+                    // so the shapes are not enlarged by this conversion.
+                    if (this.autoroute_search_tree instanceof ShapeSearchTree90Degree)
+                    {
+                        new_incomplete_room_shape =
+                                new_incomplete_room_shape.intersection(this.board.get_bounding_box()).bounding_box();
+                        new_contained_shape = intersection.bounding_box();
+                    }
+                    else if (this.autoroute_search_tree instanceof ShapeSearchTree45Degree)
+                    {
+                        new_incomplete_room_shape =
+                                new_incomplete_room_shape.intersection(this.board.get_bounding_box().bounding_octagon()).bounding_octagon();
+                        new_contained_shape = intersection.bounding_octagon();
+                    }
                     IncompleteFreeSpaceExpansionRoom new_incomplete_room =
-                            add_incomplete_expansion_room(new_incomplete_room_shape, room_layer, intersection);
+                            add_incomplete_expansion_room(new_incomplete_room_shape, room_layer, new_contained_shape);
                     ExpansionDoor new_door = new ExpansionDoor(curr_neighbour, new_incomplete_room, 1);
                     curr_neighbour.add_door(new_door);
                     new_incomplete_room.add_door(new_door);
@@ -383,6 +410,7 @@ public class AutorouteEngine
      */
     public Collection<CompleteFreeSpaceExpansionRoom> complete_expansion_room(IncompleteFreeSpaceExpansionRoom p_room)
     {
+        FRMetrics.increment(FRMetrics.Counter.ROOMS_COMPLETED);
 
         try
         {
@@ -566,6 +594,19 @@ public class AutorouteEngine
         p_room.clear_doors();
     }
 
+    /**
+     * Removes the doors of the obstacle expansion rooms of p_item, which is changed or deleted.
+     * Otherwise the maintained rooms of other items may keep doors to the outdated rooms of p_item.
+     */
+    public void remove_obstacle_doors(Item p_item)
+    {
+        ItemAutorouteInfo item_info = p_item.get_autoroute_info_pur();
+        if (item_info != null)
+        {
+            item_info.remove_doors(this);
+        }
+    }
+
     /**
      * Returns all complete free space expansion rooms with a target door to an item in the set p_items.
      */
@@ -666,6 +707,8 @@ public class AutorouteEngine
      * To stop the expansion algorithm after a time limit is exceeded.
      */
     private TimeLimit time_limit;
+    /** The number of maze expansions of the last autorouted connection. */
+    private int expansion_count = 0;
     /** The PCB-board of this autoroute algorithm. */
     final RoutingBoard board;
     /** The list of incomplete expansion rooms on the routing board */
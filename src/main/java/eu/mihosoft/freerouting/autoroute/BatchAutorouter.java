@@ -21,15 +21,19 @@ package eu.mihosoft.freerouting.autoroute;
 import java.util.*;
 
 import eu.mihosoft.freerouting.board.*;
+import eu.mihosoft.freerouting.datastructures.Stoppable;
 import eu.mihosoft.freerouting.datastructures.TimeLimit;
 import eu.mihosoft.freerouting.datastructures.UndoableObjects;
 
 import eu.mihosoft.freerouting.geometry.planar.FloatPoint;
 import eu.mihosoft.freerouting.geometry.planar.FloatLine;
+import eu.mihosoft.freerouting.geometry.planar.IntBox;
 
-import eu.mihosoft.freerouting.interactive.BoardHandling;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
 import eu.mihosoft.freerouting.interactive.InteractiveActionThread;
+import eu.mihosoft.freerouting.interactive.ScreenMessages;
 import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
 
 /**
  * Handles the sequencing of the batch autoroute passes.
@@ -38,7 +42,7 @@ import eu.mihosoft.freerouting.logger.FRLogger;
  */
 public class BatchAutorouter
 {
-    private HashSet<String> already_checked_board_hashes = new HashSet<String>();
+    private HashSet<Long> already_checked_board_hashes = new HashSet<Long>();
 
     /**
      *  Autoroutes ripup passes until the board is completed or the autorouter is stopped by the user,
@@ -46,10 +50,19 @@ public class BatchAutorouter
      *  Returns the number of passes to complete the board or p_max_pass_count + 1,
      *  if the board is not completed.
      */
-    public static int autoroute_passes_for_optimizing_item(InteractiveActionThread p_thread,
+    public static int autoroute_passes_for_optimizing_item(Stoppable p_thread, BoardHandlingImpl p_board_handling,
             int p_max_pass_count, int p_ripup_costs, boolean p_with_prefered_directions)
     {
-        BatchAutorouter router_instance = new BatchAutorouter(p_thread, true, p_with_prefered_directions, p_ripup_costs);
+        BatchAutorouter router_instance = new BatchAutorouter(p_thread, p_board_handling, true, p_with_prefered_directions, p_ripup_costs);
+        // the optimizer routes only a few connections, so the parallel pass is not worth its overhead
+        router_instance.thread_count = 1;
+        // the optimizer restores the board by undo, so the autoroute database is not retained
+        router_instance.retain_autoroute_database = false;
+        // the optimizer routes only the connections of a single item
+        router_instance.localized_reroute = false;
+        // too few connections for a history, so they are routed without an expansion budget
+        router_instance.expansion_budget = null;
+        router_instance.congestion_map = null;
         boolean still_unrouted_items = true;
         int curr_pass_no = 1;
         while (still_unrouted_items && !router_instance.is_interrupted && curr_pass_no <= p_max_pass_count)
@@ -61,7 +74,7 @@ public class BatchAutorouter
             still_unrouted_items = router_instance.autoroute_pass(curr_pass_no, false);
             if (still_unrouted_items && !router_instance.is_interrupted)
             {
-                p_thread.hdlg.get_settings().autoroute_settings.increment_pass_no();
+                p_board_handling.get_settings().autoroute_settings.increment_pass_no();
             }
             ++curr_pass_no;
         }
@@ -78,9 +91,20 @@ public class BatchAutorouter
      */
     public BatchAutorouter(InteractiveActionThread p_thread, boolean p_remove_unconnected_vias, boolean p_with_preferred_directions,
             int p_start_ripup_costs)
+    {
+        this(p_thread, p_thread.hdlg, p_remove_unconnected_vias, p_with_preferred_directions, p_start_ripup_costs);
+    }
+
+    /**
+     * Creates a new batch autorouter working on the board of p_board_handling.
+     * Messages are only displayed, if p_board_handling has a graphical user interface,
+     * so that the autorouter can also run headless.
+     */
+    public BatchAutorouter(Stoppable p_thread, BoardHandlingImpl p_board_handling, boolean p_remove_unconnected_vias,
+            boolean p_with_preferred_directions, int p_start_ripup_costs)
     {
         this.thread = p_thread;
-        this.hdlg = p_thread.hdlg;
+        this.hdlg = p_board_handling;
         this.routing_board = this.hdlg.get_routing_board();
         this.remove_unconnected_vias = p_remove_unconnected_vias;
         if (p_with_preferred_directions)
@@ -99,7 +123,92 @@ public class BatchAutorouter
         }
 
         this.start_ripup_costs = p_start_ripup_costs;
-        this.retain_autoroute_database = false;
+        this.retain_autoroute_database = this.hdlg.get_settings().autoroute_settings.get_retain_autoroute_database();
+        this.thread_count = this.hdlg.get_settings().autoroute_settings.get_thread_count();
+        this.connection_order = this.hdlg.get_settings().autoroute_settings.get_connection_order();
+        this.localized_reroute = this.hdlg.get_settings().autoroute_settings.get_localized_reroute();
+        if (this.hdlg.get_settings().autoroute_settings.get_negotiated_congestion())
+        {
+            this.congestion_map = new CongestionMap(this.routing_board.bounding_box, this.routing_board.get_layer_count());
+        }
+        this.expansion_budget = new ConnectionExpansionBudget();
+    }
+
+    /**
+     * Creates a batch autorouter with the settings of p_parent, which works on p_board
+     * instead of the board of the board handling.
+     * Used for routing on copies of the board in the threads of the parallel autorouter.
+     */
+    BatchAutorouter(BatchAutorouter p_parent, RoutingBoard p_board)
+    {
+        this.thread = p_parent.thread;
+        this.hdlg = p_parent.hdlg;
+        this.routing_board = p_board;
+        this.remove_unconnected_vias = p_parent.remove_unconnected_vias;
+        this.trace_cost_arr = p_parent.trace_cost_arr;
+        this.start_ripup_costs = p_parent.start_ripup_costs;
+        this.retain_autoroute_database = p_parent.retain_autoroute_database;
+        this.random_seed = p_parent.random_seed;
+        this.thread_count = 1;
+        this.connection_order = p_parent.connection_order;
+        // the board copies of the parallel autorouter route only a single pass
+        this.localized_reroute = false;
+        this.congestion_map = p_parent.congestion_map;
+        this.expansion_budget = p_parent.expansion_budget;
+        this.metrics = p_parent.metrics;
+    }
+
+    /**
+     * If p_random_seed is not 0, the items of each pass are routed in a random order depending on p_random_seed,
+     * and the ripup algorithm uses different random numbers.
+     * With a connection order other than BOARD_ORDER only items with equal sort values are routed in a random order.
+     * Used by the multi start autorouter to route the board copies differently.
+     */
+    void set_random_seed(long p_random_seed)
+    {
+        this.random_seed = p_random_seed;
+    }
+
+    /**
+     * Sets the metrics, in which the events of the passes are counted and reported.
+     * Used by the multi start autorouter to mark the metrics with the number of the start.
+     */
+    void set_metrics(FRMetrics p_metrics)
+    {
+        this.metrics = p_metrics;
+    }
+
+    /**
+     * Returns the metrics of this autorouter, which are shared with the workers of the parallel autorouter.
+     */
+    FRMetrics get_metrics()
+    {
+        return this.metrics;
+    }
+
+    /**
+     * Sets a listener, which is notified in the thread of the autorouter after each completed pass.
+     */
+    public void set_pass_listener(PassListener p_listener)
+    {
+        this.pass_listener = p_listener;
+    }
+
+    /**
+     * Returns the fingerprints of the boards, from which an autoroute pass was already started.
+     * A board with one of these fingerprints stops the autorouter to avoid an endless loop.
+     */
+    public Collection<Long> get_checked_board_hashes()
+    {
+        return new ArrayList<Long>(this.already_checked_board_hashes);
+    }
+
+    /**
+     * Adds fingerprints of already routed boards, for example when the routing is resumed from a checkpoint.
+     */
+    public void add_checked_board_hashes(Collection<Long> p_board_hashes)
+    {
+        this.already_checked_board_hashes.addAll(p_board_hashes);
     }
 
     private LinkedList<Integer> diffBetweenBoards = new LinkedList<Integer>();
@@ -120,7 +229,7 @@ public class BatchAutorouter
                 this.is_interrupted = true;
             }
 
-            String current_board_hash = this.routing_board.get_hash();
+            long current_board_hash = this.routing_board.get_fingerprint();
             if (already_checked_board_hashes.contains(current_board_hash))
             {
                 FRLogger.warn("This board was already evaluated, so we stop autorouter to avoid the endless loop.");
@@ -135,17 +244,29 @@ public class BatchAutorouter
                 break;
             }
 
-            String start_message = resources.getString("batch_autorouter") + " " + resources.getString("stop_message") + "        " + resources.getString("pass") + " " + curr_pass_no.toString() + ": ";
-            hdlg.screen_messages.set_status_message(start_message);
+            ScreenMessages screen_messages = hdlg.get_screen_messages();
+            if (screen_messages != null)
+            {
+                String start_message = resources.getString("batch_autorouter") + " " + resources.getString("stop_message") + "        " + resources.getString("pass") + " " + curr_pass_no.toString() + ": ";
+                screen_messages.set_status_message(start_message);
+            }
 
-            BasicBoard boardBefore = this.routing_board.clone();
+            this.routing_board.start_recording_changes();
 
-            FRLogger.traceEntry("BatchAutorouter.autoroute_pass #"+curr_pass_no+" on board '"+current_board_hash+"' making {} changes");
-            already_checked_board_hashes.add(this.routing_board.get_hash());
-            still_unrouted_items = autoroute_pass(curr_pass_no, true);
+            FRLogger.traceEntry("BatchAutorouter.autoroute_pass #"+curr_pass_no+" on board '"+Long.toHexString(current_board_hash)+"' making {} changes");
+            already_checked_board_hashes.add(current_board_hash);
+            FRMetrics.set_current(this.metrics);
+            this.metrics.start_pass();
+            still_unrouted_items = autoroute_pass(curr_pass_no, screen_messages != null);
+            this.metrics.end_pass(curr_pass_no);
+            FRMetrics.set_current(null);
+            if (this.pass_listener != null)
+            {
+                this.pass_listener.pass_finished(curr_pass_no, this.routing_board);
+            }
 
             // let's check if there was enough change in the last pass, because if it were little, so should probably stop
-            int newTraceDifferences = this.routing_board.diff_traces(boardBefore);
+            int newTraceDifferences = this.routing_board.get_trace_change_count();
             diffBetweenBoards.add(newTraceDifferences);
 
             if (diffBetweenBoards.size() > 20) {
@@ -161,7 +282,7 @@ public class BatchAutorouter
                     FRLogger.warn("There were only " + average.getAsDouble() + " changes in the last 20 passes, so it's very likely that autorouter can't improve the result much further. It is recommended to stop it and finish the board manually.");
                 }
             }
-            FRLogger.traceExit("BatchAutorouter.autoroute_pass #"+curr_pass_no+" on board '"+current_board_hash+"' making {} changes", newTraceDifferences);
+            FRLogger.traceExit("BatchAutorouter.autoroute_pass #"+curr_pass_no+" on board '"+Long.toHexString(current_board_hash)+"' making {} changes", newTraceDifferences);
 
             // check if there are still unrouted items
             if (still_unrouted_items && !is_interrupted)
@@ -181,95 +302,159 @@ public class BatchAutorouter
     }
 
     /**
-     * Autoroutes one ripup pass of all items of the board.
+     * Autoroutes one ripup pass of all items of the board, or only of the items in the reroute regions
+     * collected in the previous pass, if localized_reroute is true.
      * Returns false, if the board is already completely routed.
      */
     private boolean autoroute_pass(int p_pass_no, boolean p_with_screen_message)
     {
         try
         {
-            Collection<Item> autoroute_item_list = new java.util.LinkedList<Item>();
-            Set<Item> handeled_items = new TreeSet<Item>();
-            Iterator<UndoableObjects.UndoableObjectNode> it = routing_board.item_list.start_read_object();
-            for (;;)
+            Collection<Item> autoroute_item_list = null;
+            if (this.localized_reroute)
             {
-                UndoableObjects.Storable curr_ob = routing_board.item_list.read_object(it);
-                if (curr_ob == null)
-                {
-                    break;
-                }
-                if (curr_ob instanceof Connectable && curr_ob instanceof Item)
-                {
-                    Item curr_item = (Item) curr_ob;
-                    if (!curr_item.is_route())
-                    {
-                        if (!handeled_items.contains(curr_item))
-                        {
-                            for (int i = 0; i < curr_item.net_count(); ++i)
-                            {
-                                int curr_net_no = curr_item.get_net_no(i);
-                                Set<Item> connected_set = curr_item.get_connected_set(curr_net_no);
-                                for (Item curr_connected_item : connected_set)
-                                {
-                                    if (curr_connected_item.net_count() <= 1)
-                                    {
-                                        handeled_items.add(curr_connected_item);
-                                    }
-                                }
-                                int net_item_count = routing_board.connectable_item_count(curr_net_no);
-                                if (connected_set.size() < net_item_count)
-                                {
-                                    autoroute_item_list.add(curr_item);
-                                }
-                            }
-                        }
-                    }
-                }
+                autoroute_item_list = collect_region_items(this.reroute_regions.start_pass());
+            }
+            if (autoroute_item_list == null || autoroute_item_list.isEmpty())
+            {
+                // Only a scan of the whole board detects, if the board is completed.
+                autoroute_item_list = collect_board_items();
             }
             if (autoroute_item_list.isEmpty())
             {
                 this.air_line = null;
                 return false;
             }
+            if (this.random_seed != 0)
+            {
+                List<Item> shuffled_item_list = new ArrayList<Item>(autoroute_item_list);
+                Collections.shuffle(shuffled_item_list, new Random(this.random_seed + p_pass_no));
+                autoroute_item_list = shuffled_item_list;
+            }
             int items_to_go_count = autoroute_item_list.size();
             int ripped_item_count = 0;
             int not_found = 0;
             int routed = 0;
             if (p_with_screen_message)
             {
-                hdlg.screen_messages.set_batch_autoroute_info(items_to_go_count, routed, ripped_item_count, not_found);
+                hdlg.get_screen_messages().set_batch_autoroute_info(items_to_go_count, routed, ripped_item_count, not_found);
             }
+            if (this.thread_count > 1 && !this.is_interrupted)
+            {
+                // route the spatially independent connections in parallel, the rest sequentially with ripup
+                ParallelBatchAutorouter parallel_autorouter = new ParallelBatchAutorouter(this, this.routing_board, this.thread_count);
+                if (this.expansion_budget != null)
+                {
+                    this.expansion_budget.freeze_history();
+                }
+                Collection<Item> sequential_item_list = parallel_autorouter.autoroute_pass(autoroute_item_list, p_pass_no);
+                if (this.expansion_budget != null)
+                {
+                    this.expansion_budget.unfreeze_history();
+                }
+                routed += autoroute_item_list.size() - sequential_item_list.size();
+                FRMetrics.add(FRMetrics.Counter.CONNECTIONS_ATTEMPTED, routed);
+                FRMetrics.add(FRMetrics.Counter.CONNECTIONS_ROUTED, routed);
+                items_to_go_count = sequential_item_list.size();
+                autoroute_item_list = sequential_item_list;
+                hdlg.repaint();
+                if (p_with_screen_message)
+                {
+                    hdlg.get_screen_messages().set_batch_autoroute_info(items_to_go_count, routed, ripped_item_count, not_found);
+                }
+            }
+            // Sorted after the parallel routing, which does not keep the order of the items.
+            // The sort is stable, so that the starts of the multi start autorouter
+            // still route items with equal sort values in their random order.
+            if (this.connection_order != ConnectionOrder.BOARD_ORDER)
+            {
+                autoroute_item_list = sort_autoroute_items(autoroute_item_list);
+            }
+            Set<Integer> curr_failed_item_ids = new TreeSet<Integer>();
+            // Connections exceeding their expansion budget are deferred to the end of the pass,
+            // where they are routed again without budget.
+            LinkedList<RouteRequest> route_requests = new LinkedList<RouteRequest>();
             for (Item curr_item : autoroute_item_list)
             {
-                if (this.is_interrupted)
+                for (int i = 0; i < curr_item.net_count(); ++i)
                 {
+                    route_requests.add(new RouteRequest(curr_item, curr_item.get_net_no(i)));
+                }
+            }
+            while (!route_requests.isEmpty())
+            {
+                if (this.thread.is_stop_requested())
+                {
+                    this.is_interrupted = true;
                     break;
                 }
-                for (int i = 0; i < curr_item.net_count(); ++i)
+                RouteRequest curr_request = route_requests.removeFirst();
+                routing_board.start_marking_changed_area();
+                SortedSet<Item> ripped_item_list = new TreeSet<Item>();
+                if (!curr_request.deferred)
                 {
-                    if (this.thread.is_stop_requested())
-                    {
-                        this.is_interrupted = true;
-                        break;
-                    }
-                    routing_board.start_marking_changed_area();
-                    SortedSet<Item> ripped_item_list = new TreeSet<Item>();
-                    if (autoroute_item(curr_item, curr_item.get_net_no(i), ripped_item_list, p_pass_no))
+                    FRMetrics.increment(FRMetrics.Counter.CONNECTIONS_ATTEMPTED);
+                }
+                boolean routed_ok = autoroute_item(curr_request.item, curr_request.net_no, ripped_item_list, p_pass_no, true,
+                        curr_request.deferred);
+                ripped_item_count += ripped_item_list.size();
+                FRMetrics.add(FRMetrics.Counter.RIPPED_ITEMS, ripped_item_list.size());
+                if (this.localized_reroute)
+                {
+                    for (Item curr_ripped_item : ripped_item_list)
                     {
-                        ++routed;
-                        hdlg.repaint();
+                        this.reroute_regions.add(curr_ripped_item.bounding_box(), 1);
                     }
-                    else
+                }
+                if (this.congestion_map != null)
+                {
+                    for (Item curr_ripped_item : ripped_item_list)
                     {
-                        ++not_found;
+                        this.congestion_map.add_ripped_item(curr_ripped_item);
                     }
+                }
+                if (routed_ok)
+                {
+                    ++routed;
+                    --items_to_go_count;
+                    FRMetrics.increment(FRMetrics.Counter.CONNECTIONS_ROUTED);
+                    hdlg.repaint();
+                }
+                else if (!curr_request.deferred && this.expansion_budget_exceeded)
+                {
+                    curr_request.deferred = true;
+                    route_requests.addLast(curr_request);
+                    FRMetrics.increment(FRMetrics.Counter.CONNECTIONS_DEFERRED);
+                }
+                else
+                {
+                    ++not_found;
                     --items_to_go_count;
-                    ripped_item_count += ripped_item_list.size();
-                    if (p_with_screen_message)
+                    curr_failed_item_ids.add(curr_request.item.get_id_no());
+                    FRMetrics.increment(FRMetrics.Counter.CONNECTIONS_FAILED);
+                    if (this.localized_reroute || this.congestion_map != null)
                     {
-                        hdlg.screen_messages.set_batch_autoroute_info(items_to_go_count, routed, ripped_item_count, not_found);
+                        IntBox curr_region = connection_region(curr_request.item, curr_request.net_no);
+                        if (this.localized_reroute)
+                        {
+                            this.reroute_regions.add(curr_region, 1);
+                        }
+                        if (this.congestion_map != null)
+                        {
+                            this.congestion_map.add_failed_connection(curr_region);
+                        }
                     }
                 }
+                if (p_with_screen_message)
+                {
+                    hdlg.get_screen_messages().set_batch_autoroute_info(items_to_go_count, routed, ripped_item_count, not_found);
+                }
+            }
+            this.failed_item_ids = curr_failed_item_ids;
+            if (this.congestion_map != null)
+            {
+                // no maze search of the parallel autorouter is running at this point
+                this.congestion_map.end_pass();
             }
             if (routing_board.get_test_level() != eu.mihosoft.freerouting.board.TestLevel.ALL_DEBUGGING_OUTPUT)
             {
@@ -293,6 +478,180 @@ public class BatchAutorouter
         }
     }
 
+    /**
+     * Returns the items with incomplete connections on the whole board in the order of the board.
+     */
+    private Collection<Item> collect_board_items()
+    {
+        Collection<Item> result = new LinkedList<Item>();
+        Set<Item> handeled_items = new TreeSet<Item>();
+        Iterator<UndoableObjects.UndoableObjectNode> it = routing_board.item_list.start_read_object();
+        for (;;)
+        {
+            UndoableObjects.Storable curr_ob = routing_board.item_list.read_object(it);
+            if (curr_ob == null)
+            {
+                break;
+            }
+            if (curr_ob instanceof Item)
+            {
+                add_if_incomplete((Item) curr_ob, handeled_items, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the items with incomplete connections, which overlap with the regions in p_regions,
+     * in the order of the regions. Returns null, if p_regions is empty.
+     */
+    private Collection<Item> collect_region_items(Collection<IntBox> p_regions)
+    {
+        if (p_regions.isEmpty())
+        {
+            return null;
+        }
+        Collection<Item> result = new LinkedList<Item>();
+        Set<Item> handeled_items = new TreeSet<Item>();
+        for (IntBox curr_region : p_regions)
+        {
+            for (Item curr_item : routing_board.overlapping_items(curr_region, -1))
+            {
+                add_if_incomplete(curr_item, handeled_items, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds p_item to p_result, if it is a connectable item, which is not a trace or via,
+     * and if its net contains items not connected to it.
+     * Items connected to an already handled item are not added again.
+     */
+    private void add_if_incomplete(Item p_item, Set<Item> p_handeled_items, Collection<Item> p_result)
+    {
+        if (!(p_item instanceof Connectable) || p_item.is_route() || p_handeled_items.contains(p_item))
+        {
+            return;
+        }
+        for (int i = 0; i < p_item.net_count(); ++i)
+        {
+            int curr_net_no = p_item.get_net_no(i);
+            Set<Item> connected_set = p_item.get_connected_set(curr_net_no);
+            for (Item curr_connected_item : connected_set)
+            {
+                if (curr_connected_item.net_count() <= 1)
+                {
+                    p_handeled_items.add(curr_connected_item);
+                }
+            }
+            int net_item_count = routing_board.connectable_item_count(curr_net_no);
+            if (connected_set.size() < net_item_count)
+            {
+                p_result.add(p_item);
+            }
+        }
+    }
+
+    /**
+     * Returns the items of p_item_list sorted by the connection order of this autorouter.
+     * Items with equal sort values keep their order in p_item_list.
+     */
+    private Collection<Item> sort_autoroute_items(Collection<Item> p_item_list)
+    {
+        List<SortedItem> sorted_items = new ArrayList<SortedItem>(p_item_list.size());
+        for (Item curr_item : p_item_list)
+        {
+            sorted_items.add(new SortedItem(curr_item, calc_sort_value(curr_item)));
+        }
+        sorted_items.sort((p_1, p_2) -> Double.compare(p_1.sort_value, p_2.sort_value));
+        Collection<Item> result = new LinkedList<Item>();
+        for (SortedItem curr_sorted_item : sorted_items)
+        {
+            result.add(curr_sorted_item.item);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the value, by which p_item is sorted in ascending order.
+     */
+    private double calc_sort_value(Item p_item)
+    {
+        int net_no = p_item.get_net_no(0);
+        switch (this.connection_order)
+        {
+            case SHORTEST_AIRLINE_FIRST:
+            {
+                FloatLine curr_air_line = calc_airline(p_item.get_unconnected_set(net_no), p_item.get_connected_set(net_no));
+                if (curr_air_line.a == null || curr_air_line.b == null)
+                {
+                    return Double.MAX_VALUE;
+                }
+                return curr_air_line.a.distance(curr_air_line.b);
+            }
+            case MOST_CONSTRAINED_FIRST:
+            {
+                return -calc_item_density(p_item, net_no);
+            }
+            case FAILED_FIRST:
+            {
+                return this.failed_item_ids.contains(p_item.get_id_no()) ? 0 : 1;
+            }
+            case NET_CLASS_PRIORITY:
+            {
+                eu.mihosoft.freerouting.rules.Net curr_net = routing_board.rules.nets.get(net_no);
+                if (curr_net == null)
+                {
+                    return Integer.MAX_VALUE;
+                }
+                eu.mihosoft.freerouting.rules.NetClasses net_classes = routing_board.rules.net_classes;
+                // the default net class at index 0 is routed last
+                for (int i = 1; i < net_classes.count(); ++i)
+                {
+                    if (net_classes.get(i) == curr_net.get_class())
+                    {
+                        return i;
+                    }
+                }
+                return net_classes.count();
+            }
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Returns the number of board items per area in the region around the airline
+     * of the connection of p_item in the net p_net_no.
+     */
+    private double calc_item_density(Item p_item, int p_net_no)
+    {
+        IntBox region = connection_region(p_item, p_net_no);
+        if (region == null)
+        {
+            return 0;
+        }
+        return routing_board.overlapping_items(region, -1).size() / Math.max(region.area(), 1);
+    }
+
+    /**
+     * Returns the box around the airline of the connection of p_item in the net p_net_no
+     * enlarged by a margin for detours, or null, if the connection has no airline.
+     */
+    private IntBox connection_region(Item p_item, int p_net_no)
+    {
+        FloatLine curr_air_line = calc_airline(p_item.get_unconnected_set(p_net_no), p_item.get_connected_set(p_net_no));
+        if (curr_air_line.a == null || curr_air_line.b == null)
+        {
+            return null;
+        }
+        IntBox region = new IntBox(curr_air_line.a.round(), curr_air_line.a.round()).union(
+                new IntBox(curr_air_line.b.round(), curr_air_line.b.round()));
+        double min_margin = 10 * routing_board.rules.get_trace_half_width(p_net_no, 0);
+        return region.offset(Math.max(0.25 * curr_air_line.a.distance(curr_air_line.b), min_margin));
+    }
+
     private void remove_tails(Item.StopConnectionOption p_stop_connection_option)
     {
         routing_board.start_marking_changed_area();
@@ -301,8 +660,28 @@ public class BatchAutorouter
                 this.trace_cost_arr, this.thread, TIME_LIMIT_TO_PREVENT_ENDLESS_LOOP);
     }
 
-    private boolean autoroute_item(Item p_item, int p_route_net_no, SortedSet<Item> p_ripped_item_list, int p_ripup_pass_no)
+    /**
+     * Autoroutes the connections of p_item in the net p_route_net_no.
+     * If p_ripup_allowed is false, no items of other nets are ripped up.
+     * Returns false, if no route was found.
+     */
+    boolean autoroute_item(Item p_item, int p_route_net_no, SortedSet<Item> p_ripped_item_list, int p_ripup_pass_no,
+            boolean p_ripup_allowed)
     {
+        return autoroute_item(p_item, p_route_net_no, p_ripped_item_list, p_ripup_pass_no, p_ripup_allowed, false);
+    }
+
+    /**
+     * Autoroutes the connections of p_item in the net p_route_net_no.
+     * The number of maze expansions is limited by the budget calculated from the airline length of the connection
+     * and the routing history, unless p_without_budget. The time limit is the maximal time limit of the pass.
+     * If no route was found, because the expansion budget was used up, expansion_budget_exceeded is set to true.
+     */
+    private boolean autoroute_item(Item p_item, int p_route_net_no, SortedSet<Item> p_ripped_item_list, int p_ripup_pass_no,
+            boolean p_ripup_allowed, boolean p_without_budget)
+    {
+        long start_time = System.currentTimeMillis();
+        this.expansion_budget_exceeded = false;
         try
         {
             boolean contains_plane = false;
@@ -322,8 +701,10 @@ public class BatchAutorouter
                 curr_via_costs = hdlg.get_settings().autoroute_settings.get_via_costs();
             }
             AutorouteControl autoroute_control = new AutorouteControl(this.routing_board, p_route_net_no, hdlg.get_settings(), curr_via_costs, this.trace_cost_arr);
-            autoroute_control.ripup_allowed = true;
+            autoroute_control.ripup_allowed = p_ripup_allowed;
             autoroute_control.ripup_costs = this.start_ripup_costs * p_ripup_pass_no;
+            autoroute_control.random_seed = this.random_seed;
+            autoroute_control.congestion_map = this.congestion_map;
             autoroute_control.remove_unconnected_vias = this.remove_unconnected_vias;
 
             Set<Item> unconnected_set = p_item.get_unconnected_set(p_route_net_no);
@@ -357,18 +738,34 @@ public class BatchAutorouter
                 route_dest_set = connected_set;
             }
 
-            calc_airline(route_start_set, route_dest_set);
-            double max_milliseconds = 100000 * Math.pow(2, p_ripup_pass_no - 1);
-            max_milliseconds = Math.min(max_milliseconds, Integer.MAX_VALUE);
-            TimeLimit time_limit = new TimeLimit((int) max_milliseconds);
+            this.air_line = calc_airline(route_start_set, route_dest_set);
+            double airline_length = 0;
+            if (this.air_line.a != null && this.air_line.b != null)
+            {
+                airline_length = this.air_line.a.distance(this.air_line.b);
+            }
+            if (!p_without_budget && this.expansion_budget != null)
+            {
+                autoroute_control.max_expansion_count = this.expansion_budget.get_max_expansions(airline_length, p_ripup_pass_no);
+            }
+            TimeLimit time_limit = new TimeLimit(ConnectionExpansionBudget.get_max_millis(p_ripup_pass_no));
             AutorouteEngine autoroute_engine = routing_board.init_autoroute(p_route_net_no,
                     autoroute_control.trace_clearance_class_no, this.thread, time_limit, this.retain_autoroute_database);
             AutorouteEngine.AutorouteResult autoroute_result = autoroute_engine.autoroute_connection(route_start_set, route_dest_set, autoroute_control,
                     p_ripped_item_list);
             if (autoroute_result == AutorouteEngine.AutorouteResult.ROUTED)
             {
+                if (this.expansion_budget != null)
+                {
+                    this.expansion_budget.connection_routed(airline_length, autoroute_engine.get_expansion_count());
+                }
                 routing_board.opt_changed_area(new int[0], null, this.hdlg.get_settings().get_trace_pull_tight_accuracy(), autoroute_control.trace_costs, this.thread, TIME_LIMIT_TO_PREVENT_ENDLESS_LOOP);
             }
+            else if (autoroute_result == AutorouteEngine.AutorouteResult.NOT_ROUTED
+                    && autoroute_engine.get_expansion_count() >= autoroute_control.max_expansion_count)
+            {
+                this.expansion_budget_exceeded = true;
+            }
             // eu.mihosoft.freerouting.tests.Validate.check("Autoroute  ", hdlg.get_routing_board());
             boolean result = autoroute_result == AutorouteEngine.AutorouteResult.ROUTED || autoroute_result == AutorouteEngine.AutorouteResult.ALREADY_CONNECTED;
             return result;
@@ -376,6 +773,18 @@ public class BatchAutorouter
         {
             return false;
         }
+        finally
+        {
+            FRMetrics.record(FRMetrics.Histogram.CONNECTION_MILLIS, System.currentTimeMillis() - start_time);
+        }
+    }
+
+    /**
+     * Returns true, if the thread controlling this autorouter requested a stop.
+     */
+    boolean is_stop_requested()
+    {
+        return this.is_interrupted || this.thread.is_stop_requested();
     }
 
     /**
@@ -395,7 +804,11 @@ public class BatchAutorouter
         return this.air_line;
     }
 
-    private void calc_airline(Collection<Item> p_from_items, Collection<Item> p_to_items)
+    /**
+     * Returns the shortest line between the centers of the drill items in p_from_items and p_to_items.
+     * The end points of the line are null, if no such drill items exist.
+     */
+    private static FloatLine calc_airline(Collection<Item> p_from_items, Collection<Item> p_to_items)
     {
         FloatPoint from_corner = null;
         FloatPoint to_corner = null;
@@ -423,17 +836,87 @@ public class BatchAutorouter
                 }
             }
         }
-        this.air_line = new FloatLine(from_corner, to_corner);
+        return new FloatLine(from_corner, to_corner);
     }
-    private final InteractiveActionThread thread;
-    private final BoardHandling hdlg;
+    private final Stoppable thread;
+    private final BoardHandlingImpl hdlg;
     private final RoutingBoard routing_board;
     private boolean is_interrupted = false;
     private final boolean remove_unconnected_vias;
     private final AutorouteControl.ExpansionCostFactor[] trace_cost_arr;
-    private final boolean retain_autoroute_database;
+    private boolean retain_autoroute_database;
     private final int start_ripup_costs;
+    /** The number of threads used for routing independent connections in parallel. */
+    private int thread_count;
+    /** The order, in which the incomplete connections of a pass are routed. */
+    private final ConnectionOrder connection_order;
+    /** The ids of the items, whose connections were not found in the previous pass. */
+    private Set<Integer> failed_item_ids = new TreeSet<Integer>();
+    /**
+     * If true, the passes after the first pass route only the incomplete connections in the regions,
+     * where connections were not found or items were ripped up in the previous pass.
+     */
+    private boolean localized_reroute;
+    /** The regions to route in the next pass, if localized_reroute is true. */
+    private final RerouteRegions reroute_regions = new RerouteRegions();
+    /** The history costs of the negotiated congestion mode accumulated over all passes, or null. */
+    private CongestionMap congestion_map = null;
+    private long random_seed = 0;
+    /** The metrics of the passes of this autorouter. */
+    private FRMetrics metrics = new FRMetrics();
+    private PassListener pass_listener = null;
+    /**
+     * Calculates the expansion budgets of the connections, shared with the workers of the parallel autorouter,
+     * or null, if the connections are routed without budget.
+     */
+    private ConnectionExpansionBudget expansion_budget;
+    /** Set by autoroute_item, if the last connection was not found because its expansion budget was used up. */
+    private boolean expansion_budget_exceeded = false;
     /** Used to draw the airline of the current routed incomplete. */
     private FloatLine air_line = null;
     private static final int TIME_LIMIT_TO_PREVENT_ENDLESS_LOOP = 1000;
+
+    /**
+     * A connection to route in the sequential part of an autoroute pass.
+     */
+    private static class RouteRequest
+    {
+        RouteRequest(Item p_item, int p_net_no)
+        {
+            this.item = p_item;
+            this.net_no = p_net_no;
+        }
+
+        final Item item;
+        final int net_no;
+        /** True, if the connection exceeded its expansion budget and is routed again at the end of the pass. */
+        boolean deferred = false;
+    }
+
+    /**
+     * An item to route together with the value, by which it is sorted.
+     */
+    private static class SortedItem
+    {
+        SortedItem(Item p_item, double p_sort_value)
+        {
+            this.item = p_item;
+            this.sort_value = p_sort_value;
+        }
+
+        final Item item;
+        final double sort_value;
+    }
+
+    /**
+     * Receives the board after each pass of the batch autorouter.
+     */
+    public interface PassListener
+    {
+        /**
+         * Called after the pass with number p_pass_no. The autorouter continues after the call returns,
+         * so the board must not be used afterwards.
+         */
+        void pass_finished(int p_pass_no, RoutingBoard p_board);
+    }
 }
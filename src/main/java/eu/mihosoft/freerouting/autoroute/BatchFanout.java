@@ -21,13 +21,16 @@ package eu.mihosoft.freerouting.autoroute;
 import java.util.Collection;
 import java.util.SortedSet;
 
+import eu.mihosoft.freerouting.datastructures.Stoppable;
 import eu.mihosoft.freerouting.datastructures.TimeLimit;
 
 import eu.mihosoft.freerouting.geometry.planar.FloatPoint;
 
 import eu.mihosoft.freerouting.board.RoutingBoard;
 
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
 import eu.mihosoft.freerouting.interactive.InteractiveActionThread;
+import eu.mihosoft.freerouting.interactive.ScreenMessages;
 import eu.mihosoft.freerouting.logger.FRLogger;
 
 /**
@@ -40,7 +43,12 @@ public class BatchFanout
 
     public static void fanout_board(InteractiveActionThread p_thread)
     {
-        BatchFanout fanout_instance = new BatchFanout(p_thread);
+        fanout_board(p_thread, p_thread.hdlg);
+    }
+
+    public static void fanout_board(Stoppable p_thread, BoardHandlingImpl p_board_handling)
+    {
+        BatchFanout fanout_instance = new BatchFanout(p_thread, p_board_handling);
         final int MAX_PASS_COUNT = 20;
         for (int i = 0; i < MAX_PASS_COUNT; ++i)
         {
@@ -52,10 +60,11 @@ public class BatchFanout
         }
     }
 
-    private BatchFanout(InteractiveActionThread p_thread)
+    private BatchFanout(Stoppable p_thread, BoardHandlingImpl p_board_handling)
     {
         this.thread = p_thread;
-        this.routing_board = p_thread.hdlg.get_routing_board();
+        this.hdlg = p_board_handling;
+        this.routing_board = p_board_handling.get_routing_board();
         Collection<eu.mihosoft.freerouting.board.Pin> board_smd_pin_list = routing_board.get_smd_pins();
         this.sorted_components = new java.util.TreeSet<Component>();
         for (int i = 1; i <= routing_board.components.count(); ++i)
@@ -79,17 +88,21 @@ public class BatchFanout
         int routed_count = 0;
         int not_routed_count = 0;
         int insert_error_count = 0;
-        int ripup_costs = this.thread.hdlg.get_settings().autoroute_settings.get_start_ripup_costs() * (p_pass_no + 1);
+        int ripup_costs = this.hdlg.get_settings().autoroute_settings.get_start_ripup_costs() * (p_pass_no + 1);
+        ScreenMessages screen_messages = this.hdlg.get_screen_messages();
         for (Component curr_component : this.sorted_components)
         {
-            this.thread.hdlg.screen_messages.set_batch_fanout_info(p_pass_no + 1, components_to_go);
+            if (screen_messages != null)
+            {
+                screen_messages.set_batch_fanout_info(p_pass_no + 1, components_to_go);
+            }
             for (Component.Pin curr_pin : curr_component.smd_pins)
             {
                 double max_milliseconds = 10000 * (p_pass_no + 1);
                 TimeLimit time_limit = new TimeLimit((int) max_milliseconds);
                 this.routing_board.start_marking_changed_area();
                 AutorouteEngine.AutorouteResult curr_result =
-                        this.routing_board.fanout(curr_pin.board_pin, this.thread.hdlg.get_settings(), ripup_costs, this.thread, time_limit);
+                        this.routing_board.fanout(curr_pin.board_pin, this.hdlg.get_settings(), ripup_costs, this.thread, time_limit);
                 if (curr_result == AutorouteEngine.AutorouteResult.ROUTED)
                 {
                     ++routed_count;
@@ -104,7 +117,7 @@ public class BatchFanout
                 }
                 if (curr_result != AutorouteEngine.AutorouteResult.NOT_ROUTED)
                 {
-                    this.thread.hdlg.repaint();
+                    this.hdlg.repaint();
                 }
                 if (this.thread.is_stop_requested())
                 {
@@ -121,7 +134,8 @@ public class BatchFanout
         return routed_count;
     }
     
-    private final InteractiveActionThread thread;
+    private final Stoppable thread;
+    private final BoardHandlingImpl hdlg;
     private final RoutingBoard routing_board;
 
     private static class Component implements Comparable<Component>
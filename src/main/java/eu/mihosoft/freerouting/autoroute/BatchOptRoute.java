@@ -20,8 +20,11 @@ package eu.mihosoft.freerouting.autoroute;
 
 import java.util.Iterator;
 import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
+import eu.mihosoft.freerouting.datastructures.Stoppable;
 import eu.mihosoft.freerouting.datastructures.UndoableObjects;
 
 import eu.mihosoft.freerouting.geometry.planar.FloatPoint;
@@ -33,7 +36,10 @@ import eu.mihosoft.freerouting.board.RoutingBoard;
 import eu.mihosoft.freerouting.board.FixedState;
 import eu.mihosoft.freerouting.board.TestLevel;
 
+import eu.mihosoft.freerouting.interactive.BoardHandling;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
 import eu.mihosoft.freerouting.interactive.InteractiveActionThread;
+import eu.mihosoft.freerouting.interactive.RatsNest;
 import eu.mihosoft.freerouting.logger.FRLogger;
 
 /**
@@ -48,33 +54,90 @@ public class BatchOptRoute
      *  To optimize the route on the board after the autoroute task is finished.
      */
     public BatchOptRoute(InteractiveActionThread p_thread)
+    {
+        this(p_thread, p_thread.hdlg);
+    }
+
+    /**
+     *  To optimize the route on the board of p_board_handling without a graphical user interface.
+     */
+    public BatchOptRoute(Stoppable p_thread, BoardHandlingImpl p_board_handling)
     {
         this.thread = p_thread;
-        this.routing_board = p_thread.hdlg.get_routing_board();
+        this.hdlg = p_board_handling;
+        this.routing_board = p_board_handling.get_routing_board();
+        this.sorted_route_items = null;
+        this.thread_count = p_board_handling.get_settings().autoroute_settings.get_thread_count();
+    }
+
+    /**
+     * Creates an optimizer with the state of p_parent for the board of p_board_handling,
+     * which is a copy of the board of p_parent.
+     * Used for optimizing on copies of the board in the threads of the parallel optimizer.
+     */
+    BatchOptRoute(BatchOptRoute p_parent, BoardHandlingImpl p_board_handling)
+    {
+        this.thread = p_parent.thread;
+        this.hdlg = p_board_handling;
+        this.routing_board = p_board_handling.get_routing_board();
         this.sorted_route_items = null;
+        this.thread_count = 1;
+        this.use_increased_ripup_costs = p_parent.use_increased_ripup_costs;
+        this.min_cumulative_trace_length_before = p_parent.min_cumulative_trace_length_before;
     }
 
     /**
      * Optimize the route on the board.
      */
     public void optimize_board()
+    {
+        optimize_board(1, true);
+    }
+
+    /**
+     * Optimizes the route on the board starting with the pass p_start_pass_no,
+     * for example to resume an optimization from a checkpoint.
+     */
+    public void optimize_board(int p_start_pass_no, boolean p_use_increased_ripup_costs)
     {
         if (routing_board.get_test_level() != TestLevel.RELEASE_VERSION)
         {
             FRLogger.warn("Before optimize: Via count: " + routing_board.get_vias().size() + ", trace length: " + Math.round(routing_board.cumulative_trace_length()));
         }
         boolean route_improved = true;
-        int curr_pass_no = 0;
-        use_increased_ripup_costs = true;
+        int curr_pass_no = p_start_pass_no - 1;
+        use_increased_ripup_costs = p_use_increased_ripup_costs;
+        // the incomplete connections are updated incrementally by opt_route_item
+        this.hdlg.remove_ratsnest();
 
         while (route_improved)
         {
             ++curr_pass_no;
             boolean with_prefered_directions = (curr_pass_no % 2 != 0); // to create more variations
             route_improved = opt_route_pass(curr_pass_no, with_prefered_directions);
+            if (this.pass_listener != null)
+            {
+                this.pass_listener.pass_finished(curr_pass_no, this.routing_board);
+            }
         }
     }
 
+    /**
+     * Sets a listener, which is notified in the thread of the optimizer after each completed pass.
+     */
+    public void set_pass_listener(BatchAutorouter.PassListener p_listener)
+    {
+        this.pass_listener = p_listener;
+    }
+
+    /**
+     * Returns true, if the next pass uses increased ripup costs.
+     */
+    public boolean get_use_increased_ripup_costs()
+    {
+        return this.use_increased_ripup_costs;
+    }
+
     /**
      * Pass to reduce the number of vias an to shorten the trace length a completely routed board.
      * Returns true, if the route was improved.
@@ -83,24 +146,57 @@ public class BatchOptRoute
     {
         boolean route_improved = false;
         int via_count_before = this.routing_board.get_vias().size();
-        double trace_length_before = this.thread.hdlg.coordinate_transform.board_to_user(this.routing_board.cumulative_trace_length());
-        this.thread.hdlg.screen_messages.set_post_route_info(via_count_before, trace_length_before);
+        this.display_post_route_info(via_count_before);
         this.sorted_route_items = new ReadSortedRouteItems();
         this.min_cumulative_trace_length_before = calc_weighted_trace_length(routing_board);
-        for (;;)
+        if (this.thread_count > 1)
         {
-            if (this.thread.is_stop_requested())
+            // optimize the items in separate strips of the board in parallel, the rest sequentially
+            List<Item> sorted_item_list = new LinkedList<Item>();
+            for (;;)
             {
-                return route_improved;
+                Item curr_item = sorted_route_items.next();
+                if (curr_item == null)
+                {
+                    break;
+                }
+                sorted_item_list.add(curr_item);
             }
-            Item curr_item = sorted_route_items.next();
-            if (curr_item == null)
+            List<Item> sequential_item_list = new LinkedList<Item>();
+            ParallelBatchOptRoute parallel_opt_route = new ParallelBatchOptRoute(this, this.hdlg, this.thread_count);
+            route_improved = parallel_opt_route.opt_route_pass(sorted_item_list, p_pass_no, p_with_prefered_directions,
+                    sequential_item_list);
+            this.min_cumulative_trace_length_before = Math.min(this.min_cumulative_trace_length_before,
+                    calc_weighted_trace_length(routing_board));
+            for (Item curr_item : sequential_item_list)
             {
-                break;
+                if (this.thread.is_stop_requested())
+                {
+                    return route_improved;
+                }
+                if (curr_item.is_on_the_board() && opt_route_item(curr_item, p_pass_no, p_with_prefered_directions))
+                {
+                    route_improved = true;
+                }
             }
-            if (opt_route_item(curr_item, p_pass_no, p_with_prefered_directions))
+        }
+        else
+        {
+            for (;;)
             {
-                route_improved = true;
+                if (this.thread.is_stop_requested())
+                {
+                    return route_improved;
+                }
+                Item curr_item = sorted_route_items.next();
+                if (curr_item == null)
+                {
+                    break;
+                }
+                if (opt_route_item(curr_item, p_pass_no, p_with_prefered_directions))
+                {
+                    route_improved = true;
+                }
             }
         }
         this.sorted_route_items = null;
@@ -115,43 +211,22 @@ public class BatchOptRoute
     /**
      * Trie to improve the route by retouting the connections containing p_item.
      */
-    private boolean opt_route_item(Item p_item, int p_pass_no, boolean p_with_prefered_directions)
+    boolean opt_route_item(Item p_item, int p_pass_no, boolean p_with_prefered_directions)
     {
-        java.util.ResourceBundle resources =
-                java.util.ResourceBundle.getBundle("eu.mihosoft.freerouting.interactive.InteractiveState", this.thread.hdlg.get_locale());
-        String start_message = resources.getString("batch_optimizer") + " " + resources.getString("stop_message") + "        " + resources.getString("pass") + " " + (Integer.valueOf(p_pass_no)).toString() + ": ";
-        this.thread.hdlg.screen_messages.set_status_message(start_message);
-        this.thread.hdlg.remove_ratsnest();
-        int incomplete_count_before = this.thread.hdlg.get_ratsnest().incomplete_count();
-        int via_count_before = this.routing_board.get_vias().size();
-        Set<Item> ripped_items = new java.util.TreeSet<Item>();
-        ripped_items.add(p_item);
-        if (p_item instanceof Trace)
-        {
-            // add also the fork items, especially because not all fork items may be 
-            // returned by ReadSortedRouteItems because of matching end points.
-            Trace curr_trace = (Trace) p_item;
-            Set<Item> curr_contact_list = curr_trace.get_start_contacts();
-            for (int i = 0; i < 2; ++i)
-            {
-                if (contains_only_unfixed_traces(curr_contact_list))
-                {
-                    ripped_items.addAll(curr_contact_list);
-                }
-                curr_contact_list = curr_trace.get_end_contacts();
-            }
-        }
-        Set<Item> ripped_connections = new java.util.TreeSet<Item>();
-        for (Item curr_item : ripped_items)
+        if (this.hdlg.get_screen_messages() != null)
         {
-            ripped_connections.addAll(curr_item.get_connection_items(Item.StopConnectionOption.NONE));
+            java.util.ResourceBundle resources =
+                    java.util.ResourceBundle.getBundle("eu.mihosoft.freerouting.interactive.InteractiveState", this.hdlg.get_locale());
+            String start_message = resources.getString("batch_optimizer") + " " + resources.getString("stop_message") + "        " + resources.getString("pass") + " " + (Integer.valueOf(p_pass_no)).toString() + ": ";
+            this.hdlg.get_screen_messages().set_status_message(start_message);
         }
-        for (Item curr_item : ripped_connections)
+        RatsNest ratsnest = this.hdlg.get_ratsnest();
+        int incomplete_count_before = ratsnest.incomplete_count();
+        int via_count_before = this.routing_board.get_vias().size();
+        Set<Item> ripped_connections = get_ripped_connections(p_item);
+        if (ripped_connections == null)
         {
-            if (curr_item.is_user_fixed())
-            {
-                return false;
-            }
+            return false;
         }
         routing_board.generate_snapshot();
         this.routing_board.remove_items(ripped_connections, false);
@@ -159,7 +234,7 @@ public class BatchOptRoute
         {
             this.routing_board.combine_traces(p_item.get_net_no(i));
         }
-        int ripup_costs = this.thread.hdlg.get_settings().autoroute_settings.get_start_ripup_costs();
+        int ripup_costs = this.hdlg.get_settings().autoroute_settings.get_start_ripup_costs();
         if (this.use_increased_ripup_costs)
         {
             ripup_costs *= ADDITIONAL_RIPUP_COST_FACTOR_AT_START;
@@ -169,10 +244,10 @@ public class BatchOptRoute
             // taking less ripup costs seems to produce better results
             ripup_costs = (int) Math.round(0.6 * (double) ripup_costs);
         }
-        BatchAutorouter.autoroute_passes_for_optimizing_item(this.thread, MAX_AUTOROUTE_PASSES,
+        BatchAutorouter.autoroute_passes_for_optimizing_item(this.thread, this.hdlg, MAX_AUTOROUTE_PASSES,
                 ripup_costs, p_with_prefered_directions);
-        this.thread.hdlg.remove_ratsnest();
-        int incomplete_count_after = this.thread.hdlg.get_ratsnest().incomplete_count();
+        // the ratsnest recalculates only the incomplete connections of the nets with changed items
+        int incomplete_count_after = ratsnest.incomplete_count();
         int via_count_after = this.routing_board.get_vias().size();
         double trace_length_after = calc_weighted_trace_length(routing_board);
         boolean route_improved = !this.thread.is_stop_requested() && (incomplete_count_after < incomplete_count_before ||
@@ -194,8 +269,7 @@ public class BatchOptRoute
                 this.min_cumulative_trace_length_before = Math.min(this.min_cumulative_trace_length_before, trace_length_after);
             }
             routing_board.pop_snapshot();
-            double new_trace_length = this.thread.hdlg.coordinate_transform.board_to_user(this.routing_board.cumulative_trace_length());
-            this.thread.hdlg.screen_messages.set_post_route_info(via_count_after, new_trace_length);
+            this.display_post_route_info(via_count_after);
         }
         else
         {
@@ -204,6 +278,62 @@ public class BatchOptRoute
         return route_improved;
     }
 
+    boolean is_stop_requested()
+    {
+        return this.thread.is_stop_requested();
+    }
+
+    /**
+     * Returns the items of the connections, which are ripped up for rerouting p_item,
+     * or null, if one of them is fixed by the user.
+     */
+    Set<Item> get_ripped_connections(Item p_item)
+    {
+        Set<Item> ripped_items = new java.util.TreeSet<Item>();
+        ripped_items.add(p_item);
+        if (p_item instanceof Trace)
+        {
+            // add also the fork items, especially because not all fork items may be 
+            // returned by ReadSortedRouteItems because of matching end points.
+            Trace curr_trace = (Trace) p_item;
+            Set<Item> curr_contact_list = curr_trace.get_start_contacts();
+            for (int i = 0; i < 2; ++i)
+            {
+                if (contains_only_unfixed_traces(curr_contact_list))
+                {
+                    ripped_items.addAll(curr_contact_list);
+                }
+                curr_contact_list = curr_trace.get_end_contacts();
+            }
+        }
+        Set<Item> ripped_connections = new java.util.TreeSet<Item>();
+        for (Item curr_item : ripped_items)
+        {
+            ripped_connections.addAll(curr_item.get_connection_items(Item.StopConnectionOption.NONE));
+        }
+        for (Item curr_item : ripped_connections)
+        {
+            if (curr_item.is_user_fixed())
+            {
+                return null;
+            }
+        }
+        return ripped_connections;
+    }
+
+    /**
+     * Displays the via count and the trace length of the board, if a graphical user interface is attached.
+     */
+    private void display_post_route_info(int p_via_count)
+    {
+        if (this.hdlg instanceof BoardHandling)
+        {
+            BoardHandling board_handling = (BoardHandling) this.hdlg;
+            double trace_length = board_handling.coordinate_transform.board_to_user(this.routing_board.cumulative_trace_length());
+            board_handling.screen_messages.set_post_route_info(p_via_count, trace_length);
+        }
+    }
+
     static boolean contains_only_unfixed_traces(Collection<Item> p_item_list)
     {
         for (Item curr_item : p_item_list)
@@ -262,11 +392,14 @@ public class BatchOptRoute
         }
         return sorted_route_items.get_current_position();
     }
-    private final InteractiveActionThread thread;
+    private final Stoppable thread;
+    private final BoardHandlingImpl hdlg;
     private final RoutingBoard routing_board;
+    private final int thread_count;
     private ReadSortedRouteItems sorted_route_items;
     private boolean use_increased_ripup_costs; // in the first passes the ripup costs are icreased for better performance.
     private double min_cumulative_trace_length_before = 0;
+    private BatchAutorouter.PassListener pass_listener = null;
     private static int MAX_AUTOROUTE_PASSES = 6;
     private static int ADDITIONAL_RIPUP_COST_FACTOR_AT_START = 10;
 
@@ -0,0 +1,193 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * CongestionMap.java
+ *
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+import eu.mihosoft.freerouting.board.Item;
+import eu.mihosoft.freerouting.geometry.planar.FloatPoint;
+import eu.mihosoft.freerouting.geometry.planar.IntBox;
+
+/**
+ * The history costs of the negotiated congestion mode of the batch autorouter.
+ * The board is divided into a grid of cells on each layer. The history cost of a cell grows with each item
+ * ripped up and each connection not found in the cell over all passes, and it never decreases.
+ * The maze search multiplies the trace costs and the ripup costs in a cell with its cost factor,
+ * so that the nets negotiate, which of them use the congested regions and which of them make a detour.
+ * As in PathFinder the history costs are updated at the end of each pass: the costs recorded during a pass
+ * are collected separately and added by end_pass, so that the costs read by the maze searches
+ * of the parallel autorouter threads do not change during a pass.
+ */
+class CongestionMap
+{
+
+    /**
+     * Creates a congestion map with no history costs for a board with the bounding box p_board_box
+     * and p_layer_count layers.
+     */
+    CongestionMap(IntBox p_board_box, int p_layer_count)
+    {
+        this.board_box = p_board_box;
+        int max_board_width = Math.max(p_board_box.width(), p_board_box.height());
+        this.cell_width = Math.max((max_board_width + MAX_CELL_COUNT - 1) / MAX_CELL_COUNT, 1);
+        this.x_cell_count = p_board_box.width() / this.cell_width + 1;
+        this.y_cell_count = p_board_box.height() / this.cell_width + 1;
+        this.history_arr = new float[p_layer_count][this.x_cell_count * this.y_cell_count];
+        this.pass_history_arr = new float[p_layer_count][this.x_cell_count * this.y_cell_count];
+    }
+
+    /**
+     * Adds the history costs of the ripped up item p_item to the cells overlapped by its bounding box.
+     * The costs take effect after the current pass.
+     */
+    synchronized void add_ripped_item(Item p_item)
+    {
+        add_history(p_item.bounding_box(), p_item.first_layer(), p_item.last_layer(), RIPUP_HISTORY_COST);
+    }
+
+    /**
+     * Adds the history costs of a connection, which was not found, to the cells overlapped by p_region on all layers.
+     * The costs take effect after the current pass.
+     */
+    synchronized void add_failed_connection(IntBox p_region)
+    {
+        add_history(p_region, 0, this.history_arr.length - 1, FAILURE_HISTORY_COST);
+    }
+
+    /**
+     * Adds the history costs recorded during the current pass to the history costs used by the maze search.
+     * Must not be called while a maze search is running.
+     */
+    synchronized void end_pass()
+    {
+        for (int layer = 0; layer < this.history_arr.length; ++layer)
+        {
+            float[] layer_history = this.history_arr[layer];
+            float[] layer_pass_history = this.pass_history_arr[layer];
+            for (int i = 0; i < layer_history.length; ++i)
+            {
+                if (layer_pass_history[i] > 0)
+                {
+                    layer_history[i] = Math.min(layer_history[i] + layer_pass_history[i], MAX_HISTORY_COST);
+                    layer_pass_history[i] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the factor, by which the costs at p_point on the layer p_layer are multiplied.
+     */
+    double get_cost_factor(FloatPoint p_point, int p_layer)
+    {
+        if (p_layer < 0 || p_layer >= this.history_arr.length)
+        {
+            return 1;
+        }
+        return 1 + HISTORY_COST_FACTOR * this.history_arr[p_layer][cell_index(p_point.x, p_point.y)];
+    }
+
+    /**
+     * Returns the average cost factor of the cells on the line from p_from_point to p_to_point on the layer p_layer.
+     */
+    double get_cost_factor(FloatPoint p_from_point, FloatPoint p_to_point, int p_layer)
+    {
+        if (p_layer < 0 || p_layer >= this.history_arr.length)
+        {
+            return 1;
+        }
+        float[] layer_history = this.history_arr[p_layer];
+        int sample_count = (int) Math.min(p_from_point.distance(p_to_point) / this.cell_width, MAX_SAMPLE_COUNT) + 1;
+        double dx = (p_to_point.x - p_from_point.x) / sample_count;
+        double dy = (p_to_point.y - p_from_point.y) / sample_count;
+        double history_sum = 0;
+        for (int i = 0; i < sample_count; ++i)
+        {
+            // sample in the middle of each piece of the line
+            history_sum += layer_history[cell_index(p_from_point.x + (i + 0.5) * dx, p_from_point.y + (i + 0.5) * dy)];
+        }
+        return 1 + HISTORY_COST_FACTOR * history_sum / sample_count;
+    }
+
+    private void add_history(IntBox p_box, int p_first_layer, int p_last_layer, float p_cost)
+    {
+        if (p_box == null || p_box.is_empty())
+        {
+            return;
+        }
+        int min_x = cell_x(p_box.ll.x);
+        int max_x = cell_x(p_box.ur.x);
+        int min_y = cell_y(p_box.ll.y);
+        int max_y = cell_y(p_box.ur.y);
+        int first_layer = Math.max(p_first_layer, 0);
+        int last_layer = Math.min(p_last_layer, this.history_arr.length - 1);
+        for (int layer = first_layer; layer <= last_layer; ++layer)
+        {
+            float[] layer_pass_history = this.pass_history_arr[layer];
+            for (int y = min_y; y <= max_y; ++y)
+            {
+                for (int x = min_x; x <= max_x; ++x)
+                {
+                    int index = y * this.x_cell_count + x;
+                    layer_pass_history[index] = Math.min(layer_pass_history[index] + p_cost, MAX_HISTORY_COST);
+                }
+            }
+        }
+    }
+
+    private int cell_index(double p_x, double p_y)
+    {
+        return cell_y(p_y) * this.x_cell_count + cell_x(p_x);
+    }
+
+    private int cell_x(double p_x)
+    {
+        int result = (int) ((p_x - this.board_box.ll.x) / this.cell_width);
+        return Math.max(Math.min(result, this.x_cell_count - 1), 0);
+    }
+
+    private int cell_y(double p_y)
+    {
+        int result = (int) ((p_y - this.board_box.ll.y) / this.cell_width);
+        return Math.max(Math.min(result, this.y_cell_count - 1), 0);
+    }
+
+    private final IntBox board_box;
+    private final int cell_width;
+    private final int x_cell_count;
+    private final int y_cell_count;
+    /** The history costs of the cells on each layer, row by row, as used by the maze search. */
+    private final float[][] history_arr;
+    /** The history costs recorded during the current pass, which are added to history_arr by end_pass. */
+    private final float[][] pass_history_arr;
+
+    /** The maximal number of cells in the larger dimension of the board. */
+    private static final int MAX_CELL_COUNT = 128;
+    /** The maximal number of cells sampled for the cost factor of a line. */
+    private static final int MAX_SAMPLE_COUNT = 16;
+    /** The history cost added to the cells of a ripped up item. */
+    private static final float RIPUP_HISTORY_COST = 1;
+    /** The history cost added to the cells around a connection, which was not found. */
+    private static final float FAILURE_HISTORY_COST = 0.5f;
+    /** The upper bound of the history cost of a cell, so that no region becomes completely blocked. */
+    private static final float MAX_HISTORY_COST = 50;
+    /** The factor, by which the history cost of a cell increases the costs of the maze search. */
+    private static final double HISTORY_COST_FACTOR = 0.2;
+}
@@ -0,0 +1,132 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * ConnectionExpansionBudget.java
+ *
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+/**
+ * Calculates the limits of the maze search for the connections routed by the batch autorouter.
+ * The number of maze expansions of a connection is limited by a budget derived from its airline length
+ * and from the expansions of the connections routed before, so that a single hard connection cannot block
+ * the pass for minutes. The budget counts expansions instead of milliseconds, so that the routing result
+ * does not depend on the speed and the load of the machine.
+ * While the workers of the parallel autorouter are running, the history is frozen, so that the budgets
+ * do not depend on the order, in which the workers finish their connections.
+ * The time limit of a connection stays the maximal time limit of the pass as a safety net.
+ */
+class ConnectionExpansionBudget
+{
+
+    /**
+     * Returns the maximal time limit in milliseconds of a connection in the pass p_pass_no.
+     * This is the time limit used by the batch autorouter before the budget was introduced.
+     */
+    static int get_max_millis(int p_pass_no)
+    {
+        double result = MAX_MILLIS * Math.pow(2, p_pass_no - 1);
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the maximal number of maze expansions for routing a connection with airline length p_airline_length
+     * in the pass p_pass_no, or Integer.MAX_VALUE, as long as not enough connections are routed
+     * to derive a budget from the history.
+     */
+    synchronized int get_max_expansions(double p_airline_length, int p_pass_no)
+    {
+        if (this.routed_count < MIN_ROUTED_COUNT)
+        {
+            return Integer.MAX_VALUE;
+        }
+        double expected_expansions;
+        if (p_airline_length > 0 && this.airline_length_sum > 0)
+        {
+            expected_expansions = p_airline_length * this.expansion_sum / this.airline_length_sum;
+        }
+        else
+        {
+            expected_expansions = (double) this.expansion_sum / this.routed_count;
+        }
+        double pass_factor = Math.pow(2, p_pass_no - 1);
+        double result = Math.max(BUDGET_FACTOR * expected_expansions, MIN_EXPANSIONS) * pass_factor;
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds a routed connection with airline length p_airline_length, whose maze search needed
+     * p_expansion_count expansions, to the history for calculating the budgets.
+     */
+    synchronized void connection_routed(double p_airline_length, int p_expansion_count)
+    {
+        long airline_length = Math.round(Math.max(p_airline_length, 0));
+        if (this.history_frozen)
+        {
+            ++this.pending_routed_count;
+            this.pending_airline_length_sum += airline_length;
+            this.pending_expansion_sum += p_expansion_count;
+            return;
+        }
+        ++this.routed_count;
+        this.airline_length_sum += airline_length;
+        this.expansion_sum += p_expansion_count;
+    }
+
+    /**
+     * Freezes the history, from which the budgets are calculated, while the workers of the parallel autorouter
+     * are routing. The connections routed in the meantime are added to the history by unfreeze_history.
+     */
+    synchronized void freeze_history()
+    {
+        this.history_frozen = true;
+    }
+
+    /**
+     * Adds the connections routed since freeze_history to the history.
+     */
+    synchronized void unfreeze_history()
+    {
+        this.history_frozen = false;
+        this.routed_count += this.pending_routed_count;
+        this.airline_length_sum += this.pending_airline_length_sum;
+        this.expansion_sum += this.pending_expansion_sum;
+        this.pending_routed_count = 0;
+        this.pending_airline_length_sum = 0;
+        this.pending_expansion_sum = 0;
+    }
+
+    private int routed_count = 0;
+    /** The airline lengths are summed up as integers, so that the sum does not depend on the order of the additions. */
+    private long airline_length_sum = 0;
+    private long expansion_sum = 0;
+
+    private boolean history_frozen = false;
+    private int pending_routed_count = 0;
+    private long pending_airline_length_sum = 0;
+    private long pending_expansion_sum = 0;
+
+    /** The number of routed connections, from which on the budgets are derived from the history. */
+    private static final int MIN_ROUTED_COUNT = 10;
+    /** The minimal number of maze expansions of a connection in the first pass. */
+    private static final int MIN_EXPANSIONS = 2000;
+    /** The maximal time limit in the first pass. */
+    private static final int MAX_MILLIS = 100000;
+    /** The factor, by which a connection may exceed the number of expansions expected from the history. */
+    private static final double BUDGET_FACTOR = 20;
+}
@@ -0,0 +1,46 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/> 
+ *   for more details.
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+/**
+ * The order, in which the batch autorouter routes the incomplete connections of a pass.
+ */
+public enum ConnectionOrder
+{
+    /** The order of the items on the board, which is the order of their creation. */
+    BOARD_ORDER,
+
+    /** The connections with the shortest airline are routed first. */
+    SHORTEST_AIRLINE_FIRST,
+
+    /**
+     * The connections in the regions with the highest density of board items are routed first,
+     * while there is still room for them.
+     */
+    MOST_CONSTRAINED_FIRST,
+
+    /** The connections, which could not be routed in the previous pass, are routed first. */
+    FAILED_FIRST,
+
+    /**
+     * The connections are routed in the order of the net classes of their nets in the net class table,
+     * with the default net class last.
+     */
+    NET_CLASS_PRIORITY
+}
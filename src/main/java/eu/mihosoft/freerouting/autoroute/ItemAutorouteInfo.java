@@ -115,6 +115,24 @@ public class ItemAutorouteInfo
         }
     }
     
+    /**
+     * Removes the doors of the expansion rooms of this info from their neighbour rooms.
+     * Used before the info is cleared, because the item has changed.
+     */
+    void remove_doors(AutorouteEngine p_autoroute_engine)
+    {
+        if (expansion_room_arr != null)
+        {
+            for (ObstacleExpansionRoom curr_room: expansion_room_arr)
+            {
+                if (curr_room != null)
+                {
+                    p_autoroute_engine.remove_all_doors(curr_room);
+                }
+            }
+        }
+    }
+    
     /**
      * Draws the shapes of the expansion rooms of this info for testing purposes.
      */
@@ -0,0 +1,180 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * MazeExpansionList.java
+ *
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+/**
+ * Priority queue of the MazeListElements of the maze search algorithm,
+ * implemented as binary min heap on the sorting value of the elements.
+ * Elements with equal sorting value are returned in the order of their insertion,
+ * which is the same order as in the previously used TreeSet, so that the search results do not change.
+ * The keys are stored in separate arrays, so that no objects are allocated and no compareTo
+ * calls are necessary for sifting.
+ */
+class MazeExpansionList
+{
+
+    MazeExpansionList()
+    {
+        elements = new MazeListElement[INITIAL_CAPACITY];
+        sorting_values = new double[INITIAL_CAPACITY];
+        insertion_nos = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns true, if this list contains no elements.
+     */
+    boolean is_empty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     */
+    int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Inserts p_element into this list.
+     */
+    void add(MazeListElement p_element)
+    {
+        if (this.size >= this.elements.length)
+        {
+            int new_capacity = 2 * this.elements.length;
+            this.elements = java.util.Arrays.copyOf(this.elements, new_capacity);
+            this.sorting_values = java.util.Arrays.copyOf(this.sorting_values, new_capacity);
+            this.insertion_nos = java.util.Arrays.copyOf(this.insertion_nos, new_capacity);
+        }
+        sift_up(this.size, p_element, p_element.sorting_value, this.next_insertion_no++);
+        ++this.size;
+    }
+
+    /**
+     * Removes and returns the element with the smallest sorting value,
+     * or null, if this list is empty.
+     */
+    MazeListElement poll()
+    {
+        if (this.size == 0)
+        {
+            return null;
+        }
+        MazeListElement result = this.elements[0];
+        --this.size;
+        MazeListElement last_element = this.elements[this.size];
+        double last_sorting_value = this.sorting_values[this.size];
+        long last_insertion_no = this.insertion_nos[this.size];
+        this.elements[this.size] = null;
+        if (this.size > 0)
+        {
+            sift_down(0, last_element, last_sorting_value, last_insertion_no);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all elements from this list.
+     */
+    void clear()
+    {
+        java.util.Arrays.fill(this.elements, 0, this.size, null);
+        this.size = 0;
+        this.next_insertion_no = 0;
+    }
+
+    private void sift_up(int p_index, MazeListElement p_element, double p_sorting_value, long p_insertion_no)
+    {
+        int curr_index = p_index;
+        while (curr_index > 0)
+        {
+            int parent_index = (curr_index - 1) >>> 1;
+            if (!is_less(p_sorting_value, p_insertion_no, this.sorting_values[parent_index], this.insertion_nos[parent_index]))
+            {
+                break;
+            }
+            move(parent_index, curr_index);
+            curr_index = parent_index;
+        }
+        set(curr_index, p_element, p_sorting_value, p_insertion_no);
+    }
+
+    private void sift_down(int p_index, MazeListElement p_element, double p_sorting_value, long p_insertion_no)
+    {
+        int curr_index = p_index;
+        int half_size = this.size >>> 1;
+        while (curr_index < half_size)
+        {
+            int child_index = 2 * curr_index + 1;
+            int right_index = child_index + 1;
+            if (right_index < this.size && is_less(this.sorting_values[right_index], this.insertion_nos[right_index],
+                    this.sorting_values[child_index], this.insertion_nos[child_index]))
+            {
+                child_index = right_index;
+            }
+            if (!is_less(this.sorting_values[child_index], this.insertion_nos[child_index], p_sorting_value, p_insertion_no))
+            {
+                break;
+            }
+            move(child_index, curr_index);
+            curr_index = child_index;
+        }
+        set(curr_index, p_element, p_sorting_value, p_insertion_no);
+    }
+
+    private static boolean is_less(double p_value_1, long p_insertion_no_1, double p_value_2, long p_insertion_no_2)
+    {
+        if (p_value_1 < p_value_2)
+        {
+            return true;
+        }
+        if (p_value_1 > p_value_2)
+        {
+            return false;
+        }
+        return p_insertion_no_1 < p_insertion_no_2;
+    }
+
+    private void move(int p_from_index, int p_to_index)
+    {
+        this.elements[p_to_index] = this.elements[p_from_index];
+        this.sorting_values[p_to_index] = this.sorting_values[p_from_index];
+        this.insertion_nos[p_to_index] = this.insertion_nos[p_from_index];
+    }
+
+    private void set(int p_index, MazeListElement p_element, double p_sorting_value, long p_insertion_no)
+    {
+        this.elements[p_index] = p_element;
+        this.sorting_values[p_index] = p_sorting_value;
+        this.insertion_nos[p_index] = p_insertion_no;
+    }
+
+    private MazeListElement[] elements;
+    private double[] sorting_values;
+    /** Used to return elements with equal sorting values in the order of their insertion. */
+    private long[] insertion_nos;
+    private int size = 0;
+    private long next_insertion_no = 0;
+    private static final int INITIAL_CAPACITY = 256;
+}
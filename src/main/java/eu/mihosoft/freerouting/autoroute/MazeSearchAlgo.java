@@ -48,6 +48,7 @@ import eu.mihosoft.freerouting.board.AngleRestriction;
 import eu.mihosoft.freerouting.board.SearchTreeObject;
 import eu.mihosoft.freerouting.board.ItemSelectionFilter;
 import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
 
 /**
  * Class for autorouting an incomplete connection via a maze search algorithm.
@@ -83,9 +84,9 @@ public class MazeSearchAlgo
     {
         autoroute_engine = p_autoroute_engine;
         ctrl = p_ctrl;
-        random_generator.setSeed(p_ctrl.ripup_costs); // To get reproducable random numbers in the ripup algorithm.
+        random_generator.setSeed(p_ctrl.ripup_costs + p_ctrl.random_seed); // To get reproducable random numbers in the ripup algorithm.
         this.search_tree = p_autoroute_engine.autoroute_search_tree;
-        maze_expansion_list = new TreeSet<MazeListElement>();
+        maze_expansion_list = new MazeExpansionList();
         destination_distance =
                 new DestinationDistance(ctrl.trace_costs, ctrl.layer_active,
                 ctrl.min_normal_via_cost, ctrl.min_cheap_via_cost);
@@ -102,6 +103,7 @@ public class MazeSearchAlgo
         while (occupy_next_element())
         {
         }
+        FRMetrics.record(FRMetrics.Histogram.CONNECTION_MAZE_EXPANSIONS, this.expansion_count);
         if (this.destination_door == null)
         {
             return null;
@@ -109,6 +111,14 @@ public class MazeSearchAlgo
         return new Result(this.destination_door, this.section_no_of_destination_door);
     }
 
+    /**
+     * Returns the number of expansions of the maze search done so far.
+     */
+    public int get_expansion_count()
+    {
+        return this.expansion_count;
+    }
+
     /**
      * Expands the next element in the maze expansion list.
      * Returns false, if the expansion list is exhausted or the destination is reached.
@@ -119,21 +129,23 @@ public class MazeSearchAlgo
         {
             return false; // destination already reached
         }
+        if (this.expansion_count >= this.ctrl.max_expansion_count)
+        {
+            return false; // the expansion budget of the connection is used up
+        }
         MazeListElement list_element = null;
         MazeSearchElement curr_door_section = null;
         // Search the next element, which is not yet expanded.
         boolean next_element_found = false;
-        while (!maze_expansion_list.isEmpty())
+        while (!maze_expansion_list.is_empty())
         {
             if (this.autoroute_engine.is_stop_requested())
             {
                 return false;
             }
-            Iterator<MazeListElement> it = maze_expansion_list.iterator();
-            list_element = it.next();
+            list_element = maze_expansion_list.poll();
             int curr_section_no = list_element.section_no_of_door;
             curr_door_section = list_element.door.get_maze_search_element(curr_section_no);
-            it.remove();
             if (!curr_door_section.is_occupied)
             {
                 next_element_found = true;
@@ -144,6 +156,8 @@ public class MazeSearchAlgo
         {
             return false;
         }
+        ++this.expansion_count;
+        FRMetrics.increment(FRMetrics.Counter.MAZE_EXPANSIONS);
         curr_door_section.backtrack_door = list_element.backtrack_door;
         curr_door_section.section_no_of_backtrack_door = list_element.section_no_of_backtrack_door;
         curr_door_section.room_ripped = list_element.room_ripped;
@@ -592,9 +606,15 @@ public class MazeSearchAlgo
         CompleteExpansionRoom next_room = p_door.other_room(p_from_element.next_room);
         int layer = p_from_element.next_room.get_layer();
         FloatPoint shape_entry_middle = p_shape_entry.a.middle_point(p_shape_entry.b);
-        double expansion_value = p_from_element.expansion_value + p_add_costs
-                + shape_entry_middle.weighted_distance(p_from_element.shape_entry.a.middle_point(p_from_element.shape_entry.b),
+        FloatPoint from_shape_entry_middle = p_from_element.shape_entry.a.middle_point(p_from_element.shape_entry.b);
+        double trace_costs = shape_entry_middle.weighted_distance(from_shape_entry_middle,
                 ctrl.trace_costs[layer].horizontal, ctrl.trace_costs[layer].vertical);
+        if (ctrl.congestion_map != null)
+        {
+            // the history costs only increase the costs, so that the destination distance remains a lower bound
+            trace_costs *= ctrl.congestion_map.get_cost_factor(from_shape_entry_middle, shape_entry_middle, layer);
+        }
+        double expansion_value = p_from_element.expansion_value + p_add_costs + trace_costs;
         double sorting_value = expansion_value + this.destination_distance.calculate(shape_entry_middle, layer);
         boolean room_ripped = p_add_costs > 0 && p_adjustment == MazeSearchElement.Adjustment.NONE || p_from_element.already_checked && p_from_element.room_ripped;
 
@@ -1152,6 +1172,13 @@ public class MazeSearchAlgo
         ripup_cost /= detour;
 
         ripup_cost *= fanout_via_cost_factor;
+        if (this.ctrl.congestion_map != null)
+        {
+            // ripping items in regions with a history of congestion gets more and more expensive
+            IntBox obstacle_box = p_obstacle_item.bounding_box();
+            FloatPoint obstacle_center = obstacle_box.ll.to_float().middle_point(obstacle_box.ur.to_float());
+            ripup_cost *= this.ctrl.congestion_map.get_cost_factor(obstacle_center, p_obstacle_item.first_layer());
+        }
         int result = Math.max((int) ripup_cost, 1);
         final int MAX_RIPUP_COSTS = Integer.MAX_VALUE / 100;
         return Math.min(result, MAX_RIPUP_COSTS);
@@ -1451,7 +1478,9 @@ public class MazeSearchAlgo
     /**
      * The queue of of expanded elements used in this search algorithm.
      */
-    final java.util.SortedSet<MazeListElement> maze_expansion_list;
+    final MazeExpansionList maze_expansion_list;
+    /** The number of elements of the maze expansion list expanded so far. */
+    private int expansion_count = 0;
     /**
      * Used for calculating of a good lower bound for the distance between a new MazeExpansionElement
      * and the destination set of the expansion.
@@ -0,0 +1,215 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * MultiStartAutorouter.java
+ *
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.mihosoft.freerouting.board.RoutingBoard;
+import eu.mihosoft.freerouting.datastructures.Stoppable;
+import eu.mihosoft.freerouting.interactive.AutorouteSettings;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
+import eu.mihosoft.freerouting.interactive.Settings;
+import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
+
+/**
+ * Routes several copies of a board in parallel with differently configured batch autorouters
+ * and selects the best result.
+ * The starts differ in the order of the routed items, in the random numbers of the ripup algorithm
+ * and in the start ripup costs. The first start uses the unchanged settings, but shares the threads
+ * with the other starts, so the selected result may still be worse than the result of a single batch autorouter.
+ * The starts write no intermediate session files and no checkpoints, because their passes do not belong
+ * to a single board.
+ */
+public class MultiStartAutorouter
+{
+
+    /**
+     * Autoroutes p_start_count copies of the board of p_board_handling in parallel.
+     * Returns a board handling containing the routed copy with the fewest incomplete connections,
+     * then the fewest vias, then the shortest cumulative trace length,
+     * or null, if no start was successful.
+     * The board of p_board_handling is not changed.
+     */
+    public static BoardHandlingImpl autoroute(Stoppable p_thread, BoardHandlingImpl p_board_handling, int p_start_count)
+    {
+        RoutingBoard routing_board = p_board_handling.get_routing_board();
+        byte[] board_snapshot = routing_board.get_snapshot();
+        if (board_snapshot == null)
+        {
+            return null;
+        }
+        int thread_count = Math.min(p_start_count, Runtime.getRuntime().availableProcessors());
+        // the cores are used by the starts, the remaining ones by the parallel passes inside the starts
+        int threads_per_start = Math.max(p_board_handling.get_settings().autoroute_settings.get_thread_count() / p_start_count, 1);
+        List<Start> starts = new ArrayList<Start>();
+        for (int i = 0; i < p_start_count; ++i)
+        {
+            starts.add(new Start(i, p_thread));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(thread_count);
+        List<Future<BoardHandlingImpl>> futures = new ArrayList<Future<BoardHandlingImpl>>();
+        for (Start curr_start : starts)
+        {
+            futures.add(executor.submit(() -> curr_start.route(routing_board, board_snapshot, p_board_handling.get_settings(), threads_per_start)));
+        }
+        Start best_start = null;
+        try
+        {
+            for (int i = 0; i < futures.size(); ++i)
+            {
+                Start curr_start = starts.get(i);
+                try
+                {
+                    curr_start.board_handling = futures.get(i).get();
+                }
+                catch (Exception e)
+                {
+                    FRLogger.error("MultiStartAutorouter: start " + i + " failed", e);
+                    continue;
+                }
+                if (curr_start.board_handling == null)
+                {
+                    continue;
+                }
+                curr_start.evaluate();
+                FRLogger.info("MultiStartAutorouter: start " + i + " left " + curr_start.incomplete_count + " connections not found, "
+                        + curr_start.via_count + " vias, trace length " + Math.round(curr_start.trace_length));
+                if (best_start == null || curr_start.is_better_than(best_start))
+                {
+                    best_start = curr_start;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        if (best_start == null)
+        {
+            return null;
+        }
+        FRLogger.info("MultiStartAutorouter: selected the result of start " + best_start.start_no);
+        if (best_start.stop_requested)
+        {
+            // the selected autorouter stopped itself, for example after its last pass
+            p_thread.request_stop();
+        }
+        return best_start.board_handling;
+    }
+
+    /**
+     * One of the differently configured batch autorouters.
+     * The stop requests of the autorouter are kept local,
+     * so that an autorouter finishing early does not stop the other starts.
+     */
+    private static class Start implements Stoppable
+    {
+        Start(int p_start_no, Stoppable p_parent_thread)
+        {
+            this.start_no = p_start_no;
+            this.parent_thread = p_parent_thread;
+        }
+
+        /**
+         * Routes a copy of the board created from p_board_snapshot.
+         * Called in a worker thread.
+         */
+        BoardHandlingImpl route(RoutingBoard p_board, byte[] p_board_snapshot, Settings p_settings, int p_thread_count)
+        {
+            RoutingBoard board_copy = (RoutingBoard) p_board.copy_from_snapshot(p_board_snapshot);
+            if (board_copy == null)
+            {
+                return null;
+            }
+            Settings settings_copy = new Settings(p_settings);
+            AutorouteSettings autoroute_settings = settings_copy.autoroute_settings;
+            autoroute_settings.set_thread_count(p_thread_count);
+            int start_ripup_costs = autoroute_settings.get_start_ripup_costs();
+            if (this.start_no > 0)
+            {
+                double ripup_cost_factor = RIPUP_COST_FACTORS[this.start_no % RIPUP_COST_FACTORS.length];
+                start_ripup_costs = Math.max((int) Math.round(ripup_cost_factor * start_ripup_costs), 1);
+            }
+            BoardHandlingImpl board_handling = new BoardHandlingImpl(board_copy, settings_copy);
+            BatchAutorouter batch_autorouter = new BatchAutorouter(this, board_handling, !autoroute_settings.get_with_fanout(), true,
+                    start_ripup_costs);
+            batch_autorouter.set_random_seed(this.start_no);
+            batch_autorouter.set_metrics(new FRMetrics(this.start_no));
+            batch_autorouter.autoroute_passes();
+            board_copy.finish_autoroute();
+            return board_handling;
+        }
+
+        void evaluate()
+        {
+            RoutingBoard routing_board = this.board_handling.get_routing_board();
+            this.board_handling.remove_ratsnest();
+            this.incomplete_count = this.board_handling.get_ratsnest().incomplete_count();
+            this.via_count = routing_board.get_vias().size();
+            this.trace_length = routing_board.cumulative_trace_length();
+        }
+
+        /**
+         * Compares by the number of incomplete connections, then by the number of vias,
+         * then by the cumulative trace length.
+         * Returns false, if both results are equal, so that the earlier start is preferred.
+         */
+        boolean is_better_than(Start p_other)
+        {
+            if (this.incomplete_count != p_other.incomplete_count)
+            {
+                return this.incomplete_count < p_other.incomplete_count;
+            }
+            if (this.via_count != p_other.via_count)
+            {
+                return this.via_count < p_other.via_count;
+            }
+            return this.trace_length < p_other.trace_length;
+        }
+
+        public synchronized void request_stop()
+        {
+            this.stop_requested = true;
+        }
+
+        public synchronized boolean is_stop_requested()
+        {
+            return this.stop_requested || this.parent_thread.is_stop_requested();
+        }
+
+        final int start_no;
+        private final Stoppable parent_thread;
+        private boolean stop_requested = false;
+        BoardHandlingImpl board_handling = null;
+        int incomplete_count;
+        int via_count;
+        double trace_length;
+    }
+
+    /** The factors for the start ripup costs of the starts after the first one. */
+    private static final double[] RIPUP_COST_FACTORS = {1.0, 0.5, 2.0, 0.75, 1.5};
+}
@@ -0,0 +1,488 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * ParallelBatchAutorouter.java
+ *
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.mihosoft.freerouting.board.Item;
+import eu.mihosoft.freerouting.board.PolylineTrace;
+import eu.mihosoft.freerouting.board.RoutingBoard;
+import eu.mihosoft.freerouting.board.Via;
+import eu.mihosoft.freerouting.geometry.planar.IntBox;
+import eu.mihosoft.freerouting.library.Padstack;
+import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
+
+/**
+ * Speculative parallel part of a batch autoroute pass.
+ * The connections to route are partitioned into groups, whose nets have disjoint bounding boxes.
+ * The groups are routed without ripup on copies of the board in separate threads.
+ * Afterwards the new traces and vias are copied to the board net by net,
+ * if they do not conflict with the items already on the board.
+ * The connections of conflicting or unrouted nets are left to the sequential autorouter.
+ */
+class ParallelBatchAutorouter
+{
+
+    ParallelBatchAutorouter(BatchAutorouter p_batch_autorouter, RoutingBoard p_board, int p_thread_count)
+    {
+        this.batch_autorouter = p_batch_autorouter;
+        this.routing_board = p_board;
+        this.thread_count = p_thread_count;
+    }
+
+    /**
+     * Routes the items in p_autoroute_item_list in parallel, as far as they are spatially independent.
+     * Returns the items, which are not yet routed and must be routed sequentially.
+     */
+    Collection<Item> autoroute_pass(Collection<Item> p_autoroute_item_list, int p_pass_no)
+    {
+        Collection<Item> result = new LinkedList<Item>();
+        List<NetTask> net_tasks = create_net_tasks(p_autoroute_item_list, result);
+        List<List<NetTask>> groups = create_independent_groups(net_tasks);
+        if (groups.size() < 2)
+        {
+            // nothing to parallelize
+            return p_autoroute_item_list;
+        }
+        List<List<NetTask>> worker_tasks = distribute_to_workers(groups);
+
+        byte[] board_snapshot = this.routing_board.get_snapshot();
+        if (board_snapshot == null)
+        {
+            return p_autoroute_item_list;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(worker_tasks.size());
+        List<Future<List<NetResult>>> futures = new ArrayList<Future<List<NetResult>>>();
+        for (List<NetTask> curr_worker_tasks : worker_tasks)
+        {
+            futures.add(executor.submit(() -> route_on_board_copy(board_snapshot, curr_worker_tasks, p_pass_no)));
+        }
+        int committed_net_count = 0;
+        int conflicting_net_count = 0;
+        try
+        {
+            for (int i = 0; i < futures.size(); ++i)
+            {
+                List<NetResult> worker_result;
+                try
+                {
+                    worker_result = futures.get(i).get();
+                }
+                catch (Exception e)
+                {
+                    FRLogger.error("ParallelBatchAutorouter: routing on board copy failed", e);
+                    worker_result = null;
+                }
+                if (worker_result == null)
+                {
+                    for (NetTask curr_task : worker_tasks.get(i))
+                    {
+                        result.addAll(curr_task.items);
+                    }
+                    continue;
+                }
+                for (NetResult curr_net_result : worker_result)
+                {
+                    if (curr_net_result.unrouted_items.size() < curr_net_result.task.items.size()
+                            && commit(this.routing_board, curr_net_result.task.net_no, curr_net_result.removed_item_ids, curr_net_result.new_items))
+                    {
+                        ++committed_net_count;
+                        result.addAll(curr_net_result.unrouted_items);
+                    }
+                    else
+                    {
+                        if (curr_net_result.unrouted_items.size() < curr_net_result.task.items.size())
+                        {
+                            ++conflicting_net_count;
+                        }
+                        result.addAll(curr_net_result.task.items);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        if (this.routing_board.get_test_level() != eu.mihosoft.freerouting.board.TestLevel.RELEASE_VERSION)
+        {
+            FRLogger.info("ParallelBatchAutorouter: " + groups.size() + " independent groups on " + worker_tasks.size()
+                    + " threads, " + committed_net_count + " nets committed, " + conflicting_net_count + " nets with conflicts");
+        }
+        return result;
+    }
+
+    /**
+     * Groups the items of p_item_list by net and calculates the bounding box of each net.
+     * Items, which cannot be routed in parallel, are added to p_sequential_items.
+     */
+    private List<NetTask> create_net_tasks(Collection<Item> p_item_list, Collection<Item> p_sequential_items)
+    {
+        Map<Integer, NetTask> net_tasks = new HashMap<Integer, NetTask>();
+        List<NetTask> result = new ArrayList<NetTask>();
+        int margin = get_bounding_box_margin(this.routing_board);
+        for (Item curr_item : p_item_list)
+        {
+            if (curr_item.net_count() != 1)
+            {
+                p_sequential_items.add(curr_item);
+                continue;
+            }
+            int curr_net_no = curr_item.get_net_no(0);
+            NetTask curr_task = net_tasks.get(curr_net_no);
+            if (curr_task == null)
+            {
+                IntBox net_box = routing_board.get_bounding_box(routing_board.get_connectable_items(curr_net_no));
+                curr_task = new NetTask(curr_net_no, net_box.offset(margin));
+                net_tasks.put(curr_net_no, curr_task);
+                result.add(curr_task);
+            }
+            curr_task.items.add(curr_item);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distance, by which the bounding box of a connection is enlarged,
+     * so that connections with disjoint enlarged boxes can be routed independently in most cases.
+     */
+    static int get_bounding_box_margin(RoutingBoard p_board)
+    {
+        int result = p_board.get_max_trace_half_width();
+        for (int i = 0; i < p_board.get_layer_count(); ++i)
+        {
+            result = Math.max(result, p_board.get_max_trace_half_width() + p_board.rules.clearance_matrix.max_value(i));
+        }
+        return result * BOUNDING_BOX_MARGIN_FACTOR;
+    }
+
+    /**
+     * Partitions p_net_tasks into groups, so that the bounding boxes of nets
+     * in different groups do not intersect.
+     */
+    private static List<List<NetTask>> create_independent_groups(List<NetTask> p_net_tasks)
+    {
+        int[] parent = new int[p_net_tasks.size()];
+        for (int i = 0; i < parent.length; ++i)
+        {
+            parent[i] = i;
+        }
+        for (int i = 0; i < parent.length; ++i)
+        {
+            IntBox curr_box = p_net_tasks.get(i).bounding_box;
+            for (int j = i + 1; j < parent.length; ++j)
+            {
+                if (curr_box.intersects(p_net_tasks.get(j).bounding_box))
+                {
+                    int root_i = find_root(parent, i);
+                    int root_j = find_root(parent, j);
+                    if (root_i != root_j)
+                    {
+                        parent[root_j] = root_i;
+                    }
+                }
+            }
+        }
+        Map<Integer, List<NetTask>> groups = new HashMap<Integer, List<NetTask>>();
+        List<List<NetTask>> result = new ArrayList<List<NetTask>>();
+        for (int i = 0; i < parent.length; ++i)
+        {
+            int curr_root = find_root(parent, i);
+            List<NetTask> curr_group = groups.get(curr_root);
+            if (curr_group == null)
+            {
+                curr_group = new ArrayList<NetTask>();
+                groups.put(curr_root, curr_group);
+                result.add(curr_group);
+            }
+            curr_group.add(p_net_tasks.get(i));
+        }
+        return result;
+    }
+
+    private static int find_root(int[] p_parent, int p_index)
+    {
+        int result = p_index;
+        while (p_parent[result] != result)
+        {
+            p_parent[result] = p_parent[p_parent[result]];
+            result = p_parent[result];
+        }
+        return result;
+    }
+
+    /**
+     * Distributes the groups to the workers, so that the workers get approximately
+     * the same number of connections to route.
+     */
+    private List<List<NetTask>> distribute_to_workers(List<List<NetTask>> p_groups)
+    {
+        p_groups.sort((p_group_1, p_group_2) -> connection_count(p_group_2) - connection_count(p_group_1));
+        int worker_count = Math.min(this.thread_count, p_groups.size());
+        List<List<NetTask>> result = new ArrayList<List<NetTask>>();
+        int[] worker_load = new int[worker_count];
+        for (int i = 0; i < worker_count; ++i)
+        {
+            result.add(new ArrayList<NetTask>());
+        }
+        for (List<NetTask> curr_group : p_groups)
+        {
+            int min_load_worker = 0;
+            for (int i = 1; i < worker_count; ++i)
+            {
+                if (worker_load[i] < worker_load[min_load_worker])
+                {
+                    min_load_worker = i;
+                }
+            }
+            result.get(min_load_worker).addAll(curr_group);
+            worker_load[min_load_worker] += connection_count(curr_group);
+        }
+        return result;
+    }
+
+    private static int connection_count(List<NetTask> p_group)
+    {
+        int result = 0;
+        for (NetTask curr_task : p_group)
+        {
+            result += curr_task.items.size();
+        }
+        return result;
+    }
+
+    /**
+     * Routes p_net_tasks on a copy of the board created from p_board_snapshot.
+     * Called in a worker thread.
+     */
+    private List<NetResult> route_on_board_copy(byte[] p_board_snapshot, List<NetTask> p_net_tasks, int p_pass_no)
+    {
+        RoutingBoard board_copy = (RoutingBoard) this.routing_board.copy_from_snapshot(p_board_snapshot);
+        if (board_copy == null)
+        {
+            return null;
+        }
+        Map<Integer, Item> items_before = new HashMap<Integer, Item>();
+        for (Item curr_item : board_copy.get_items())
+        {
+            items_before.put(curr_item.get_id_no(), curr_item);
+        }
+        BatchAutorouter worker = new BatchAutorouter(this.batch_autorouter, board_copy);
+        FRMetrics.set_current(worker.get_metrics());
+        List<NetResult> result = new ArrayList<NetResult>();
+        for (NetTask curr_task : p_net_tasks)
+        {
+            NetResult curr_result = new NetResult(curr_task);
+            result.add(curr_result);
+            for (Item curr_item : curr_task.items)
+            {
+                Item copied_item = items_before.get(curr_item.get_id_no());
+                if (worker.is_stop_requested() || copied_item == null || !copied_item.is_on_the_board())
+                {
+                    curr_result.unrouted_items.add(curr_item);
+                    continue;
+                }
+                board_copy.start_marking_changed_area();
+                if (!worker.autoroute_item(copied_item, curr_task.net_no, new TreeSet<Item>(), p_pass_no, false))
+                {
+                    curr_result.unrouted_items.add(curr_item);
+                }
+            }
+        }
+        board_copy.finish_autoroute();
+        FRMetrics.set_current(null);
+
+        // collect the changes of the routed nets
+        Map<Integer, NetResult> result_by_net = new HashMap<Integer, NetResult>();
+        for (NetResult curr_result : result)
+        {
+            result_by_net.put(curr_result.task.net_no, curr_result);
+        }
+        Set<Integer> items_after = new HashSet<Integer>();
+        for (Item curr_item : board_copy.get_items())
+        {
+            items_after.add(curr_item.get_id_no());
+            if (items_before.containsKey(curr_item.get_id_no()) || curr_item.net_count() != 1)
+            {
+                continue;
+            }
+            NetResult curr_result = result_by_net.get(curr_item.get_net_no(0));
+            if (curr_result != null)
+            {
+                curr_result.new_items.add(curr_item);
+            }
+        }
+        for (Item curr_item : items_before.values())
+        {
+            if (items_after.contains(curr_item.get_id_no()) || curr_item.net_count() != 1)
+            {
+                continue;
+            }
+            NetResult curr_result = result_by_net.get(curr_item.get_net_no(0));
+            if (curr_result != null)
+            {
+                curr_result.removed_item_ids.add(curr_item.get_id_no());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Transfers the changes of the net with number p_net_no on a copy of the board to p_board,
+     * if the new items do not conflict with the items on p_board.
+     * Returns false, if nothing was changed because of conflicts.
+     */
+    static boolean commit(RoutingBoard p_board, int p_net_no, Collection<Integer> p_removed_item_ids, Collection<Item> p_new_items)
+    {
+        Collection<Item> removed_items = new LinkedList<Item>();
+        for (Integer curr_id_no : p_removed_item_ids)
+        {
+            Item curr_item = p_board.get_item(curr_id_no);
+            if (curr_item == null || !curr_item.is_route() || curr_item.is_user_fixed())
+            {
+                return false;
+            }
+            removed_items.add(curr_item);
+        }
+        for (Item curr_item : p_new_items)
+        {
+            if (!check_new_item(p_board, curr_item))
+            {
+                return false;
+            }
+        }
+        p_board.remove_items(removed_items, false);
+        for (Item curr_item : p_new_items)
+        {
+            int[] net_no_arr = get_net_no_arr(curr_item);
+            if (curr_item instanceof PolylineTrace)
+            {
+                PolylineTrace curr_trace = (PolylineTrace) curr_item;
+                p_board.insert_trace_without_cleaning(curr_trace.polyline(), curr_trace.get_layer(),
+                        curr_trace.get_half_width(), net_no_arr, curr_trace.clearance_class_no(), curr_trace.get_fixed_state());
+            }
+            else
+            {
+                Via curr_via = (Via) curr_item;
+                Padstack board_padstack = p_board.library.padstacks.get(curr_via.get_padstack().no);
+                p_board.insert_via(board_padstack, curr_via.get_center(), net_no_arr,
+                        curr_via.clearance_class_no(), curr_via.get_fixed_state(), curr_via.attach_allowed);
+            }
+        }
+        p_board.combine_traces(p_net_no);
+        return true;
+    }
+
+    /**
+     * Checks, if p_item, which was created on a copy of the board, can be inserted
+     * into p_board without clearance violations.
+     */
+    private static boolean check_new_item(RoutingBoard p_board, Item p_item)
+    {
+        int[] net_no_arr = get_net_no_arr(p_item);
+        if (p_item instanceof PolylineTrace)
+        {
+            PolylineTrace curr_trace = (PolylineTrace) p_item;
+            return p_board.check_polyline_trace(curr_trace.polyline(), curr_trace.get_layer(),
+                    curr_trace.get_half_width(), net_no_arr, curr_trace.clearance_class_no());
+        }
+        if (!(p_item instanceof Via))
+        {
+            return false;
+        }
+        Via curr_via = (Via) p_item;
+        if (p_board.library.padstacks.get(curr_via.get_padstack().no) == null)
+        {
+            return false;
+        }
+        for (int i = 0; i < curr_via.tile_shape_count(); ++i)
+        {
+            if (!p_board.check_trace_shape(curr_via.get_tile_shape(i), curr_via.shape_layer(i),
+                    net_no_arr, curr_via.clearance_class_no(), null))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] get_net_no_arr(Item p_item)
+    {
+        int[] result = new int[p_item.net_count()];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = p_item.get_net_no(i);
+        }
+        return result;
+    }
+
+    private final BatchAutorouter batch_autorouter;
+    private final RoutingBoard routing_board;
+    private final int thread_count;
+    /** The bounding box of a net is enlarged by this factor times the maximal trace width plus clearance. */
+    private static final int BOUNDING_BOX_MARGIN_FACTOR = 4;
+
+    /**
+     * The connections of a net to route in parallel.
+     */
+    private static class NetTask
+    {
+        NetTask(int p_net_no, IntBox p_bounding_box)
+        {
+            net_no = p_net_no;
+            bounding_box = p_bounding_box;
+        }
+        final int net_no;
+        final IntBox bounding_box;
+        final Collection<Item> items = new LinkedList<Item>();
+    }
+
+    /**
+     * The changes of the route of a net on a copy of the board.
+     */
+    private static class NetResult
+    {
+        NetResult(NetTask p_task)
+        {
+            task = p_task;
+        }
+        final NetTask task;
+        /** Items of the board, which could not be routed on the board copy. */
+        final Collection<Item> unrouted_items = new LinkedList<Item>();
+        /** New traces and vias of the net on the board copy. */
+        final Collection<Item> new_items = new LinkedList<Item>();
+        /** Id numbers of items of the net, which were removed on the board copy. */
+        final Collection<Integer> removed_item_ids = new LinkedList<Integer>();
+    }
+}
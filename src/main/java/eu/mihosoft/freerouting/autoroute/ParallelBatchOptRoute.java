@@ -0,0 +1,382 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * ParallelBatchOptRoute.java
+ *
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.mihosoft.freerouting.board.Item;
+import eu.mihosoft.freerouting.board.RoutingBoard;
+import eu.mihosoft.freerouting.board.Trace;
+import eu.mihosoft.freerouting.board.Via;
+import eu.mihosoft.freerouting.geometry.planar.IntBox;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
+import eu.mihosoft.freerouting.interactive.RatsNest;
+import eu.mihosoft.freerouting.interactive.Settings;
+import eu.mihosoft.freerouting.logger.FRLogger;
+
+/**
+ * Parallel part of a pass of the batch optimizer.
+ * The board is divided into vertical strips with about the same number of route items.
+ * The items, whose ripped connections lie inside a strip, are optimized on a copy of the board
+ * in a separate thread for each strip.
+ * Afterwards the changed nets are copied to the board net by net, if they do not conflict
+ * with the items on the board and improve the route of the net.
+ * The items crossing the border of a strip are left to the sequential optimizer.
+ */
+class ParallelBatchOptRoute
+{
+
+    ParallelBatchOptRoute(BatchOptRoute p_batch_opt_route, BoardHandlingImpl p_board_handling, int p_thread_count)
+    {
+        this.batch_opt_route = p_batch_opt_route;
+        this.hdlg = p_board_handling;
+        this.routing_board = p_board_handling.get_routing_board();
+        this.thread_count = p_thread_count;
+    }
+
+    /**
+     * Optimizes the route items in p_item_list in parallel, as far as they are spatially independent.
+     * The items, which must be optimized sequentially, are added to p_sequential_items.
+     * Returns true, if the route was improved.
+     */
+    boolean opt_route_pass(List<Item> p_item_list, int p_pass_no, boolean p_with_prefered_directions,
+            Collection<Item> p_sequential_items)
+    {
+        List<List<Item>> strips = create_strips(p_item_list, p_sequential_items);
+        if (strips == null)
+        {
+            p_sequential_items.addAll(p_item_list);
+            return false;
+        }
+        byte[] board_snapshot = this.routing_board.get_snapshot();
+        if (board_snapshot == null)
+        {
+            p_sequential_items.clear();
+            p_sequential_items.addAll(p_item_list);
+            return false;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(strips.size());
+        List<Future<Map<Integer, NetChanges>>> futures = new ArrayList<Future<Map<Integer, NetChanges>>>();
+        for (List<Item> curr_strip : strips)
+        {
+            futures.add(executor.submit(() -> opt_route_on_board_copy(board_snapshot, curr_strip, p_pass_no, p_with_prefered_directions)));
+        }
+        int committed_net_count = 0;
+        int rejected_net_count = 0;
+        try
+        {
+            for (int i = 0; i < futures.size(); ++i)
+            {
+                Map<Integer, NetChanges> worker_result;
+                try
+                {
+                    worker_result = futures.get(i).get();
+                }
+                catch (Exception e)
+                {
+                    FRLogger.error("ParallelBatchOptRoute: optimizing on board copy failed", e);
+                    worker_result = null;
+                }
+                if (worker_result == null)
+                {
+                    p_sequential_items.addAll(strips.get(i));
+                    continue;
+                }
+                for (NetChanges curr_net_changes : worker_result.values())
+                {
+                    if (commit(curr_net_changes))
+                    {
+                        ++committed_net_count;
+                    }
+                    else
+                    {
+                        ++rejected_net_count;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        if (this.routing_board.get_test_level() != eu.mihosoft.freerouting.board.TestLevel.RELEASE_VERSION)
+        {
+            FRLogger.info("ParallelBatchOptRoute: " + strips.size() + " strips, " + committed_net_count
+                    + " nets committed, " + rejected_net_count + " nets rejected");
+        }
+        return committed_net_count > 0;
+    }
+
+    /**
+     * Divides the board into vertical strips and returns the items lying inside each strip.
+     * Items crossing the border of a strip are added to p_sequential_items.
+     * Returns null, if there are too few items for optimizing in parallel.
+     */
+    private List<List<Item>> create_strips(List<Item> p_item_list, Collection<Item> p_sequential_items)
+    {
+        int strip_count = Math.min(this.thread_count, p_item_list.size() / MIN_ITEMS_PER_STRIP);
+        if (strip_count < 2)
+        {
+            return null;
+        }
+        int margin = ParallelBatchAutorouter.get_bounding_box_margin(this.routing_board);
+        List<Item> item_list = new ArrayList<Item>();
+        List<IntBox> box_list = new ArrayList<IntBox>();
+        for (Item curr_item : p_item_list)
+        {
+            Set<Item> ripped_connections = this.batch_opt_route.get_ripped_connections(curr_item);
+            if (ripped_connections == null)
+            {
+                // nothing to optimize
+                continue;
+            }
+            item_list.add(curr_item);
+            box_list.add(this.routing_board.get_bounding_box(ripped_connections).offset(margin));
+        }
+        if (item_list.size() < strip_count * MIN_ITEMS_PER_STRIP)
+        {
+            return null;
+        }
+        // the borders of the strips are chosen, so that the strips contain about the same number of items
+        int[] center_x_arr = new int[box_list.size()];
+        for (int i = 0; i < center_x_arr.length; ++i)
+        {
+            IntBox curr_box = box_list.get(i);
+            center_x_arr[i] = (int) (((long) curr_box.ll.x + curr_box.ur.x) / 2);
+        }
+        Arrays.sort(center_x_arr);
+        TreeMap<Integer, List<Item>> strips_by_left_border = new TreeMap<Integer, List<Item>>();
+        strips_by_left_border.put(Integer.MIN_VALUE, new ArrayList<Item>());
+        for (int i = 1; i < strip_count; ++i)
+        {
+            strips_by_left_border.put(center_x_arr[i * center_x_arr.length / strip_count], new ArrayList<Item>());
+        }
+        for (int i = 0; i < item_list.size(); ++i)
+        {
+            IntBox curr_box = box_list.get(i);
+            Map.Entry<Integer, List<Item>> curr_strip = strips_by_left_border.floorEntry(curr_box.ll.x);
+            Integer next_border = strips_by_left_border.higherKey(curr_strip.getKey());
+            if (next_border != null && curr_box.ur.x >= next_border)
+            {
+                p_sequential_items.add(item_list.get(i));
+            }
+            else
+            {
+                curr_strip.getValue().add(item_list.get(i));
+            }
+        }
+        List<List<Item>> result = new ArrayList<List<Item>>();
+        for (List<Item> curr_strip : strips_by_left_border.values())
+        {
+            if (!curr_strip.isEmpty())
+            {
+                result.add(curr_strip);
+            }
+        }
+        if (result.size() < 2)
+        {
+            p_sequential_items.clear();
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Optimizes the items in p_item_list on a copy of the board created from p_board_snapshot.
+     * Returns the changes of the nets on the board copy.
+     * Called in a worker thread.
+     */
+    private Map<Integer, NetChanges> opt_route_on_board_copy(byte[] p_board_snapshot, List<Item> p_item_list,
+            int p_pass_no, boolean p_with_prefered_directions)
+    {
+        RoutingBoard board_copy = (RoutingBoard) this.routing_board.copy_from_snapshot(p_board_snapshot);
+        if (board_copy == null)
+        {
+            return null;
+        }
+        Map<Integer, Item> items_before = new HashMap<Integer, Item>();
+        for (Item curr_item : board_copy.get_items())
+        {
+            items_before.put(curr_item.get_id_no(), curr_item);
+        }
+        BoardHandlingImpl board_handling = new BoardHandlingImpl(board_copy, new Settings(this.hdlg.get_settings()));
+        BatchOptRoute worker = new BatchOptRoute(this.batch_opt_route, board_handling);
+        boolean route_improved = false;
+        for (Item curr_item : p_item_list)
+        {
+            Item copied_item = items_before.get(curr_item.get_id_no());
+            if (copied_item == null || !copied_item.is_on_the_board())
+            {
+                // removed by the optimization of a previous item
+                continue;
+            }
+            if (worker.opt_route_item(copied_item, p_pass_no, p_with_prefered_directions))
+            {
+                route_improved = true;
+            }
+            if (worker.is_stop_requested())
+            {
+                break;
+            }
+        }
+        board_copy.finish_autoroute();
+        Map<Integer, NetChanges> result = new TreeMap<Integer, NetChanges>();
+        if (!route_improved)
+        {
+            return result;
+        }
+
+        // collect the changes of the nets
+        Set<Integer> items_after = new HashSet<Integer>();
+        for (Item curr_item : board_copy.get_items())
+        {
+            items_after.add(curr_item.get_id_no());
+            if (!items_before.containsKey(curr_item.get_id_no()))
+            {
+                if (curr_item.net_count() != 1)
+                {
+                    // cannot be assigned to a net, so nothing of this worker is committed
+                    return null;
+                }
+                get_net_changes(result, curr_item.get_net_no(0)).new_items.add(curr_item);
+            }
+        }
+        for (Item curr_item : items_before.values())
+        {
+            if (!items_after.contains(curr_item.get_id_no()))
+            {
+                if (curr_item.net_count() != 1)
+                {
+                    return null;
+                }
+                get_net_changes(result, curr_item.get_net_no(0)).removed_item_ids.add(curr_item.get_id_no());
+            }
+        }
+        return result;
+    }
+
+    private static NetChanges get_net_changes(Map<Integer, NetChanges> p_net_changes, int p_net_no)
+    {
+        NetChanges result = p_net_changes.get(p_net_no);
+        if (result == null)
+        {
+            result = new NetChanges(p_net_no);
+            p_net_changes.put(p_net_no, result);
+        }
+        return result;
+    }
+
+    /**
+     * Transfers p_net_changes to the board, if the new items do not conflict with the items on the board
+     * and the route of the net is improved.
+     * Returns false, if the board was not changed.
+     */
+    private boolean commit(NetChanges p_net_changes)
+    {
+        RatsNest ratsnest = this.hdlg.get_ratsnest();
+        int incomplete_count_before = ratsnest.incomplete_count(p_net_changes.net_no);
+        NetRoute route_before = new NetRoute(this.routing_board, p_net_changes.net_no);
+        this.routing_board.generate_snapshot();
+        if (!ParallelBatchAutorouter.commit(this.routing_board, p_net_changes.net_no, p_net_changes.removed_item_ids,
+                p_net_changes.new_items))
+        {
+            this.routing_board.pop_snapshot();
+            return false;
+        }
+        int incomplete_count_after = ratsnest.incomplete_count(p_net_changes.net_no);
+        NetRoute route_after = new NetRoute(this.routing_board, p_net_changes.net_no);
+        boolean route_improved = incomplete_count_after < incomplete_count_before ||
+                incomplete_count_after == incomplete_count_before && route_after.is_better_than(route_before);
+        if (!route_improved)
+        {
+            this.routing_board.undo(null);
+            return false;
+        }
+        this.routing_board.pop_snapshot();
+        return true;
+    }
+
+    private final BatchOptRoute batch_opt_route;
+    private final BoardHandlingImpl hdlg;
+    private final RoutingBoard routing_board;
+    private final int thread_count;
+    /** Below this number of items per thread the optimizer runs sequentially. */
+    private static final int MIN_ITEMS_PER_STRIP = 8;
+
+    /**
+     * The via count and the trace length of a net on the board.
+     */
+    private static class NetRoute
+    {
+        NetRoute(RoutingBoard p_board, int p_net_no)
+        {
+            for (Item curr_item : p_board.get_connectable_items(p_net_no))
+            {
+                if (curr_item instanceof Via)
+                {
+                    ++via_count;
+                }
+                else if (curr_item instanceof Trace)
+                {
+                    trace_length += ((Trace) curr_item).get_length();
+                }
+            }
+        }
+
+        boolean is_better_than(NetRoute p_other)
+        {
+            return this.via_count < p_other.via_count ||
+                    this.via_count == p_other.via_count && this.trace_length < p_other.trace_length;
+        }
+
+        int via_count = 0;
+        double trace_length = 0;
+    }
+
+    /**
+     * The changes of the route of a net on a copy of the board.
+     */
+    private static class NetChanges
+    {
+        NetChanges(int p_net_no)
+        {
+            net_no = p_net_no;
+        }
+        final int net_no;
+        /** New traces and vias of the net on the board copy. */
+        final Collection<Item> new_items = new LinkedList<Item>();
+        /** Id numbers of items of the net, which were removed on the board copy. */
+        final Collection<Integer> removed_item_ids = new LinkedList<Integer>();
+    }
+}
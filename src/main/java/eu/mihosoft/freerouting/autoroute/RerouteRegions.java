@@ -0,0 +1,103 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * RerouteRegions.java
+ *
+ */
+package eu.mihosoft.freerouting.autoroute;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import eu.mihosoft.freerouting.geometry.planar.IntBox;
+
+/**
+ * The work queue of the localized reroute mode of the batch autorouter.
+ * Collects the regions of the board, where connections were not found or items were ripped up during a pass.
+ * Overlapping regions are merged, and their congestion is added up.
+ * In the next pass only the incomplete connections in these regions are routed again,
+ * the most congested regions first.
+ */
+class RerouteRegions
+{
+
+    /**
+     * Adds the region p_box with the congestion p_congestion to the regions of the next pass.
+     */
+    void add(IntBox p_box, int p_congestion)
+    {
+        if (p_box == null || p_box.is_empty())
+        {
+            return;
+        }
+        IntBox new_box = p_box;
+        int new_congestion = p_congestion;
+        boolean merged = true;
+        while (merged)
+        {
+            // the merged box may overlap regions, which the original box did not overlap
+            merged = false;
+            Iterator<Region> it = this.next_regions.iterator();
+            while (it.hasNext())
+            {
+                Region curr_region = it.next();
+                if (curr_region.box.intersects(new_box))
+                {
+                    new_box = new_box.union(curr_region.box);
+                    new_congestion += curr_region.congestion;
+                    it.remove();
+                    merged = true;
+                }
+            }
+        }
+        this.next_regions.add(new Region(new_box, new_congestion));
+    }
+
+    /**
+     * Returns the regions collected since the last call, the most congested regions first,
+     * and starts collecting the regions of the next pass.
+     */
+    List<IntBox> start_pass()
+    {
+        List<Region> curr_regions = this.next_regions;
+        this.next_regions = new LinkedList<Region>();
+        curr_regions.sort((p_1, p_2) -> Integer.compare(p_2.congestion, p_1.congestion));
+        List<IntBox> result = new ArrayList<IntBox>(curr_regions.size());
+        for (Region curr_region : curr_regions)
+        {
+            result.add(curr_region.box);
+        }
+        return result;
+    }
+
+    private List<Region> next_regions = new LinkedList<Region>();
+
+    private static class Region
+    {
+        Region(IntBox p_box, int p_congestion)
+        {
+            this.box = p_box;
+            this.congestion = p_congestion;
+        }
+
+        final IntBox box;
+        final int congestion;
+    }
+}
@@ -20,6 +20,7 @@ package eu.mihosoft.freerouting.board;
 
 import eu.mihosoft.freerouting.geometry.planar.Area;
 import eu.mihosoft.freerouting.geometry.planar.ConvexShape;
+import eu.mihosoft.freerouting.geometry.planar.FloatPoint;
 import eu.mihosoft.freerouting.geometry.planar.IntBox;
 import eu.mihosoft.freerouting.geometry.planar.IntOctagon;
 import eu.mihosoft.freerouting.geometry.planar.Point;
@@ -32,9 +33,6 @@ import java.awt.Graphics;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.security.MessageDigest;
 import java.util.*;
 
 import eu.mihosoft.freerouting.datastructures.ShapeTree.TreeEntry;
@@ -76,31 +74,24 @@ public class BasicBoard implements java.io.Serializable
         rules = p_rules;
         library = new BoardLibrary();
         item_list = new UndoableObjects();
+        item_index = new ItemIndex(item_list);
+        item_list.set_change_listener(item_index);
         components = new Components();
         communication = p_communication;
         bounding_box = p_bounding_box;
         this.test_level = p_test_level;
+        connectivity = new NetConnectivity(this);
         search_tree_manager = new SearchTreeManager(this);
         p_rules.nets.set_board(this);
         insert_outline(p_outline_shapes, p_outline_cl_class_no);
     }
 
-    private byte[] serialize(boolean basicProfile)
+    private byte[] serialize()
     {
         try
         {
             ByteArrayOutputStream output_stream = new ByteArrayOutputStream();
-            ObjectOutputStream object_stream = new ObjectOutputStream(output_stream);
-
-            if (basicProfile) {
-                object_stream.writeObject(this.get_traces());
-                object_stream.writeObject(this.get_vias());
-                object_stream.writeObject(this.item_list);
-            } else {
-                object_stream.writeObject(this);
-            }
-
-            object_stream.close();
+            BoardBinaryFormat.write(this, output_stream);
 
             return output_stream.toByteArray();
         }
@@ -115,10 +106,7 @@ public class BasicBoard implements java.io.Serializable
     {
         try
         {
-            ByteArrayInputStream input_stream = new ByteArrayInputStream(object_byte_array);
-            ObjectInputStream object_stream = new ObjectInputStream(input_stream);
-
-            return (BasicBoard)object_stream.readObject();
+            return BoardBinaryFormat.read(new ByteArrayInputStream(object_byte_array));
         }
         catch (Exception e) {
             FRLogger.error("Couldn't deserialize board", e);
@@ -129,56 +117,168 @@ public class BasicBoard implements java.io.Serializable
 
     public BasicBoard clone()
     {
-        return deserialize(this.serialize(false));
+        return copy_from_snapshot(this.serialize());
     }
-    
-    public String get_hash()
+
+    /**
+     * Writes this board in the binary board format to p_output_stream.
+     * The undo history of the items is not written.
+     */
+    public void write_binary(java.io.OutputStream p_output_stream) throws java.io.IOException
     {
-        try
-        {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            digest.update(this.serialize(true));
-            byte[] hashedBytes = digest.digest();
+        BoardBinaryFormat.write(this, p_output_stream);
+    }
 
-            return convert_byte_array_to_hex_string(hashedBytes);
-        }
-        catch (Exception e) {
-            FRLogger.error("Couldn't calculate hash for board", e);
-        }
+    /**
+     * Reads a board written by write_binary.
+     */
+    public static BasicBoard read_binary(java.io.InputStream p_input_stream)
+            throws java.io.IOException, ClassNotFoundException
+    {
+        return BoardBinaryFormat.read(p_input_stream);
+    }
 
-        return null;
+    /**
+     * Returns true, if p_bytes contain a board written by write_binary.
+     */
+    public static boolean is_binary_board(byte[] p_bytes)
+    {
+        return BoardBinaryFormat.is_binary_board(p_bytes);
     }
 
-    public int diff_traces(BasicBoard compare_to)
+    /**
+     * Returns the serialized state of this board. Independent copies of the board
+     * can be created from it with copy_from_snapshot, for example in separate threads.
+     */
+    public byte[] get_snapshot()
     {
-        int result = 0;
-        HashSet<Integer> traceIds = new HashSet<>();
-        for (Trace trace : this.get_traces()) {
-            traceIds.add(trace.get_id_no());
-        }
+        return this.serialize();
+    }
 
-        for (Trace trace : compare_to.get_traces()) {
-            if (!traceIds.contains(trace.get_id_no()))
-            {
-                result++;
-            } else {
-                traceIds.remove(trace.get_id_no());
-            }
+    /**
+     * Creates a new board from p_snapshot, which must be created by get_snapshot of this board.
+     * The settings of this board, which are not serialized, are transferred to the new board.
+     * Returns null, if the snapshot could not be read.
+     */
+    public BasicBoard copy_from_snapshot(byte[] p_snapshot)
+    {
+        BasicBoard result = deserialize(p_snapshot);
+        if (result != null)
+        {
+            result.set_test_level(this.test_level);
+            result.search_tree_manager.set_clearance_compensation_used(this.search_tree_manager.is_clearance_compensation_used());
         }
-        result += traceIds.size();
-
         return result;
     }
+    
+    /**
+     * Returns a fingerprint of the geometry and the nets of the items on the board.
+     * Boards with the same routing result in the same fingerprint with high probability.
+     * The fingerprint is maintained incrementally, so that only the items changed since the
+     * previous call are evaluated.
+     */
+    public long get_fingerprint()
+    {
+        return this.item_list.get_fingerprint(BasicBoard::item_fingerprint);
+    }
+
+    /**
+     * Starts recording the items inserted into or removed from the board.
+     * The changes can be read with get_trace_change_count.
+     */
+    public void start_recording_changes()
+    {
+        this.item_list.start_recording_changes();
+    }
+
+    /**
+     * Returns the number of traces inserted into or removed from the board
+     * since the last call of start_recording_changes.
+     */
+    public int get_trace_change_count()
+    {
+        return this.item_list.changed_object_count(p_object -> p_object instanceof Trace);
+    }
+
+    /**
+     * Returns a number, which changes whenever an item is inserted into or removed from the board,
+     * or the geometry or the nets of an item on the board change.
+     */
+    public long get_change_count()
+    {
+        return connectivity.get_change_count();
+    }
 
-    private static String convert_byte_array_to_hex_string(byte[] arrayBytes) {
-        StringBuilder stringBuffer = new StringBuilder();
-        for (int i = 0; i < arrayBytes.length; i++) {
-            stringBuffer.append(Integer.toString((arrayBytes[i] & 0xff) + 0x100, 16)
-                    .substring(1));
+    /**
+     * Returns a number, which changes whenever an item of the net with number p_net_no is inserted into
+     * or removed from the board, or its geometry or its nets change.
+     * Can be used to recalculate information depending on the items of a net only after changes.
+     */
+    public int get_net_change_count(int p_net_no)
+    {
+        return connectivity.get_net_change_count(p_net_no);
+    }
+
+    private static long item_fingerprint(UndoableObjects.Storable p_object)
+    {
+        if (!(p_object instanceof Item))
+        {
+            return 0;
         }
-        return stringBuffer.toString();
+        Item curr_item = (Item) p_object;
+        long result = curr_item.getClass().getName().hashCode();
+        result = mix_fingerprint(result, curr_item.first_layer());
+        result = mix_fingerprint(result, curr_item.last_layer());
+        for (int i = 0; i < curr_item.net_count(); ++i)
+        {
+            result = mix_fingerprint(result, curr_item.get_net_no(i));
+        }
+        if (curr_item instanceof PolylineTrace)
+        {
+            PolylineTrace curr_trace = (PolylineTrace) curr_item;
+            result = mix_fingerprint(result, curr_trace.get_half_width());
+            Polyline curr_polyline = curr_trace.polyline();
+            for (int i = 0; i < curr_polyline.corner_count(); ++i)
+            {
+                FloatPoint curr_corner = curr_polyline.corner_approx(i);
+                result = mix_fingerprint(result, Double.doubleToLongBits(curr_corner.x));
+                result = mix_fingerprint(result, Double.doubleToLongBits(curr_corner.y));
+            }
+        }
+        else if (curr_item instanceof DrillItem)
+        {
+            DrillItem curr_drill_item = (DrillItem) curr_item;
+            FloatPoint curr_center = curr_drill_item.get_center().to_float();
+            result = mix_fingerprint(result, Double.doubleToLongBits(curr_center.x));
+            result = mix_fingerprint(result, Double.doubleToLongBits(curr_center.y));
+            Padstack curr_padstack = curr_drill_item.get_padstack();
+            if (curr_padstack != null)
+            {
+                result = mix_fingerprint(result, curr_padstack.no);
+            }
+        }
+        else
+        {
+            IntBox curr_box = curr_item.bounding_box();
+            result = mix_fingerprint(result, curr_box.ll.x);
+            result = mix_fingerprint(result, curr_box.ll.y);
+            result = mix_fingerprint(result, curr_box.ur.x);
+            result = mix_fingerprint(result, curr_box.ur.y);
+        }
+        return mix_fingerprint(result, 0);
     }
 
+    /**
+     * Combines p_value into the fingerprint p_fingerprint with the finalizer of the SplitMix64 generator,
+     * so that the sum of item fingerprints does not cancel out for similar items.
+     */
+    private static long mix_fingerprint(long p_fingerprint, long p_value)
+    {
+        long result = p_fingerprint * 31 + p_value + 0x9E3779B97F4A7C15L;
+        result = (result ^ (result >>> 30)) * 0xBF58476D1CE4E5B9L;
+        result = (result ^ (result >>> 27)) * 0x94D049BB133111EBL;
+        return result ^ (result >>> 31);
+    }
 
     /**
      * Inserts a trace into the board, whose geometry is described by
@@ -539,21 +639,7 @@ public class BasicBoard implements java.io.Serializable
      */
     public Collection<Item> get_connectable_items(int p_net_no)
     {
-        Collection<Item> result = new LinkedList<>();
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
-        {
-            Item curr_item = (Item) item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item instanceof Connectable && curr_item.contains_net(p_net_no))
-            {
-                result.add(curr_item);
-            }
-        }
-        return result;
+        return item_index.get_connectable_items(p_net_no);
     }
 
     /**
@@ -561,21 +647,7 @@ public class BasicBoard implements java.io.Serializable
      */
     public int connectable_item_count(int p_net_no)
     {
-        int result = 0;
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
-        {
-            Item curr_item = (Item) item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item instanceof Connectable && curr_item.contains_net(p_net_no))
-            {
-                ++result;
-            }
-        }
-        return result;
+        return item_index.connectable_item_count(p_net_no);
     }
 
     /**
@@ -583,21 +655,15 @@ public class BasicBoard implements java.io.Serializable
      */
     public Collection<Item> get_component_items(int p_component_no)
     {
-        Collection<Item> result = new LinkedList<>();
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
-        {
-            Item curr_item = (Item) item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item.get_component_no() == p_component_no)
-            {
-                result.add(curr_item);
-            }
-        }
-        return result;
+        return item_index.get_component_items(p_component_no);
+    }
+
+    /**
+     * Returns the count of items with the input component number
+     */
+    public int component_item_count(int p_component_no)
+    {
+        return item_index.component_item_count(p_component_no);
     }
 
     /**
@@ -606,15 +672,9 @@ public class BasicBoard implements java.io.Serializable
     public Collection<Pin> get_component_pins(int p_component_no)
     {
         Collection<Pin> result = new LinkedList<>();
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
+        for (Item curr_item : item_index.get_component_items(p_component_no))
         {
-            Item curr_item = (Item) item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item.get_component_no() == p_component_no && curr_item instanceof Pin)
+            if (curr_item instanceof Pin)
             {
                 result.add((Pin) curr_item);
             }
@@ -627,15 +687,9 @@ public class BasicBoard implements java.io.Serializable
      */
     public Pin get_pin(int p_component_no, int p_pin_no)
     {
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
+        for (Item curr_item : item_index.get_component_items(p_component_no))
         {
-            Item curr_item = (Item) item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item.get_component_no() == p_component_no && curr_item instanceof Pin)
+            if (curr_item instanceof Pin)
             {
                 Pin curr_pin = (Pin) curr_item;
                 if (curr_pin.pin_no == p_pin_no)
@@ -675,21 +729,7 @@ public class BasicBoard implements java.io.Serializable
      */
     public Collection<ConductionArea> get_conduction_areas()
     {
-        Collection<ConductionArea> result = new LinkedList<>();
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
-        {
-            UndoableObjects.Storable curr_item = item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item instanceof ConductionArea)
-            {
-                result.add((ConductionArea) curr_item);
-            }
-        }
-        return result;
+        return item_index.get_items(ConductionArea.class);
     }
 
     /**
@@ -697,21 +737,7 @@ public class BasicBoard implements java.io.Serializable
      */
     public Collection<Pin> get_pins()
     {
-        Collection<Pin> result = new LinkedList<>();
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
-        {
-            UndoableObjects.Storable curr_item = item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item instanceof Pin)
-            {
-                result.add((Pin) curr_item);
-            }
-        }
-        return result;
+        return item_index.get_items(Pin.class);
     }
 
     /**
@@ -720,21 +746,11 @@ public class BasicBoard implements java.io.Serializable
     public Collection<Pin> get_smd_pins()
     {
         Collection<Pin> result = new LinkedList<>();
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
+        for (Pin curr_pin : item_index.get_items(Pin.class))
         {
-            UndoableObjects.Storable curr_item = item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item instanceof Pin)
+            if (curr_pin.first_layer() == curr_pin.last_layer())
             {
-                Pin curr_pin = (Pin) curr_item;
-                if (curr_pin.first_layer() == curr_pin.last_layer())
-                {
-                    result.add(curr_pin);
-                }
+                result.add(curr_pin);
             }
         }
         return result;
@@ -745,21 +761,7 @@ public class BasicBoard implements java.io.Serializable
      */
     public Collection<Via> get_vias()
     {
-        Collection<Via> result = new LinkedList<>();
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
-        {
-            UndoableObjects.Storable curr_item = item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item instanceof Via)
-            {
-                result.add((Via) curr_item);
-            }
-        }
-        return result;
+        return item_index.get_items(Via.class);
     }
 
     /**
@@ -767,21 +769,7 @@ public class BasicBoard implements java.io.Serializable
      */
     public Collection<Trace> get_traces()
     {
-        Collection<Trace> result = new LinkedList<>();
-        Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-        for (;;)
-        {
-            UndoableObjects.Storable curr_item = item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item instanceof Trace)
-            {
-                result.add((Trace) curr_item);
-            }
-        }
-        return result;
+        return item_index.get_items(Trace.class);
     }
 
     /**
@@ -847,27 +835,14 @@ public class BasicBoard implements java.io.Serializable
     {
         boolean result = false;
         boolean something_changed = true;
-        Item curr_item = null;
         while (something_changed)
         {
             something_changed = false;
-            Iterator<UndoableObjects.UndoableObjectNode> it = item_list.start_read_object();
-            for (;;)
+            // Only the items of the net are traversed instead of the whole item list.
+            // Traces inserted by the normalization are handled in the next pass.
+            for (Item curr_item : get_connectable_items(p_net_no))
             {
-                try
-                {
-                    curr_item = (Item) item_list.read_object(it);
-                }
-                catch (java.util.ConcurrentModificationException e)
-                {
-                    something_changed = true;
-                    break;
-                }
-                if (curr_item == null)
-                {
-                    break;
-                }
-                if (curr_item.contains_net(p_net_no) && curr_item instanceof PolylineTrace && curr_item.is_on_the_board())
+                if (curr_item instanceof PolylineTrace && curr_item.is_on_the_board() && curr_item.contains_net(p_net_no))
                 {
                     PolylineTrace curr_trace = (PolylineTrace) curr_item;
                     if (curr_trace.normalize(null))
@@ -916,35 +891,24 @@ public class BasicBoard implements java.io.Serializable
      */
     public Collection<Collection<Item>> get_connected_sets(int p_net_no)
     {
-        Collection<Collection<Item>> result = new LinkedList<>();
         if (p_net_no <= 0)
         {
-            return result;
+            return new LinkedList<>();
         }
-        SortedSet<Item> items_to_handle = new TreeSet<>();
-        Iterator<UndoableObjects.UndoableObjectNode> it = this.item_list.start_read_object();
-        for (;;)
-        {
-            Item curr_item = (Item) item_list.read_object(it);
-            if (curr_item == null)
-            {
-                break;
-            }
-            if (curr_item instanceof Connectable && curr_item.contains_net(p_net_no))
-            {
-                items_to_handle.add(curr_item);
-            }
-        }
-        Iterator<Item> it2 = items_to_handle.iterator();
-        while (it2.hasNext())
+        return connectivity.get_connected_sets(p_net_no);
+    }
+
+    /**
+     * Returns the number of connected sets of the net with number p_net_no.
+     * The net is completely routed, if the result is 1.
+     */
+    public int connected_set_count(int p_net_no)
+    {
+        if (p_net_no <= 0)
         {
-            Item curr_item = it2.next();
-            Collection<Item> next_connected_set = curr_item.get_connected_set(p_net_no);
-            result.add(next_connected_set);
-            items_to_handle.removeAll(next_connected_set);
-            it2 = items_to_handle.iterator();
+            return 0;
         }
-        return result;
+        return connectivity.connected_set_count(p_net_no);
     }
 
     /**
@@ -1403,6 +1367,7 @@ public class BasicBoard implements java.io.Serializable
         while (it.hasNext())
         {
             Item curr_item = (Item) it.next();
+            additional_update_after_change(curr_item);
             search_tree_manager.remove(curr_item);
 
             // let the observers syncronize the deletion
@@ -1422,6 +1387,7 @@ public class BasicBoard implements java.io.Serializable
             curr_item.board = this;
             search_tree_manager.insert(curr_item);
             curr_item.clear_autoroute_info();
+            additional_update_after_change(curr_item);
             // let the observers know the insertion
             communication.observers.notify_new(curr_item);
             if (p_changed_nets != null)
@@ -1451,6 +1417,7 @@ public class BasicBoard implements java.io.Serializable
         while (it.hasNext())
         {
             Item curr_item = (Item) it.next();
+            additional_update_after_change(curr_item);
             search_tree_manager.remove(curr_item);
             // let the observers syncronize the deletion
             communication.observers.notify_deleted(curr_item);
@@ -1469,6 +1436,7 @@ public class BasicBoard implements java.io.Serializable
             curr_item.board = this;
             search_tree_manager.insert(curr_item);
             curr_item.clear_autoroute_info();
+            additional_update_after_change(curr_item);
             // let the observers know the insertion
             communication.observers.notify_new(curr_item);
             if (p_changed_nets != null)
@@ -1500,6 +1468,7 @@ public class BasicBoard implements java.io.Serializable
      */
     public boolean pop_snapshot()
     {
+        components.pop_snapshot();
         return item_list.pop_snapshot();
     }
 
@@ -1611,15 +1580,17 @@ public class BasicBoard implements java.io.Serializable
             throws java.io.IOException, java.lang.ClassNotFoundException
     {
         p_stream.defaultReadObject();
+        item_index = new ItemIndex(item_list);
+        item_list.set_change_listener(item_index);
+        connectivity = new NetConnectivity(this);
         // insert the items on the board into the search trees
         search_tree_manager = new SearchTreeManager(this);
-        Iterator<Item> it = this.get_items().iterator();
-        while (it.hasNext())
+        Collection<Item> board_items = this.get_items();
+        for (Item curr_item : board_items)
         {
-            Item curr_item = it.next();
             curr_item.board = this;
-            search_tree_manager.insert(curr_item);
         }
+        search_tree_manager.insert_all(board_items);
     }
     /**
      * List of items inserted into this board
@@ -1645,6 +1616,14 @@ public class BasicBoard implements java.io.Serializable
      * Handels the search trees pointing into the items of this board
      */
     public transient SearchTreeManager search_tree_manager;
+    /**
+     * Indexes of the items in item_list by net, class and component, updated by item_list.
+     */
+    transient ItemIndex item_index;
+    /**
+     * Caches the connected sets of the nets, updated by the search_tree_manager.
+     */
+    transient NetConnectivity connectivity;
     /**
      * For communication with a host system or host design file formats.
      */
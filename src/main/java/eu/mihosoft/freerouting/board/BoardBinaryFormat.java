@@ -0,0 +1,464 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * BoardBinaryFormat.java
+ *
+ */
+package eu.mihosoft.freerouting.board;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.mihosoft.freerouting.datastructures.UndoableObjects;
+import eu.mihosoft.freerouting.geometry.planar.IntPoint;
+import eu.mihosoft.freerouting.geometry.planar.Line;
+import eu.mihosoft.freerouting.geometry.planar.Polyline;
+import eu.mihosoft.freerouting.library.Padstack;
+
+/**
+ * Versioned binary format for storing a board.
+ * The pins, vias and traces, which make up most of the items of a routed board,
+ * are stored column by column: each field of the items of a kind is written as one array
+ * of plain integers. The rest of the board, like the library, the rules and the less frequent items,
+ * is stored with Java serialization.
+ * The undo history of the items is not stored.
+ */
+class BoardBinaryFormat
+{
+    private BoardBinaryFormat()
+    {
+    }
+
+    /**
+     * Writes p_board to p_output_stream. The stream is flushed, but not closed.
+     */
+    static void write(BasicBoard p_board, OutputStream p_output_stream) throws IOException
+    {
+        Collection<Item> board_items = p_board.get_items();
+        List<Pin> pins = new ArrayList<Pin>();
+        List<Via> vias = new ArrayList<Via>();
+        List<PolylineTrace> traces = new ArrayList<PolylineTrace>();
+        List<Item> other_items = new ArrayList<Item>();
+        for (Item curr_item : board_items)
+        {
+            if (curr_item instanceof Pin && ((Pin) curr_item).get_center() instanceof IntPoint)
+            {
+                pins.add((Pin) curr_item);
+            }
+            else if (curr_item instanceof Via && is_stored_in_columns((Via) curr_item, p_board))
+            {
+                vias.add((Via) curr_item);
+            }
+            else if (curr_item instanceof PolylineTrace && is_stored_in_columns((PolylineTrace) curr_item))
+            {
+                traces.add((PolylineTrace) curr_item);
+            }
+            else
+            {
+                other_items.add(curr_item);
+            }
+        }
+        DataOutputStream out = new DataOutputStream(new java.io.BufferedOutputStream(p_output_stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        write_frame(p_board, other_items, out);
+
+        out.writeInt(pins.size());
+        ColumnWriter columns = new ColumnWriter(PIN_COLUMN_COUNT);
+        for (Pin curr_pin : pins)
+        {
+            columns.add_item_columns(curr_pin);
+            columns.add(PIN_NO_COLUMN, curr_pin.pin_no);
+            IntPoint center = (IntPoint) curr_pin.get_center();
+            columns.add(PIN_X_COLUMN, center.x);
+            columns.add(PIN_Y_COLUMN, center.y);
+            Pin changed_to = curr_pin.get_changed_to();
+            columns.add(PIN_CHANGED_TO_COLUMN, changed_to == curr_pin || changed_to == null ? -1 : changed_to.get_id_no());
+        }
+        columns.write(out);
+
+        out.writeInt(vias.size());
+        columns = new ColumnWriter(VIA_COLUMN_COUNT);
+        for (Via curr_via : vias)
+        {
+            columns.add_item_columns(curr_via);
+            columns.add(VIA_PADSTACK_COLUMN, curr_via.get_padstack().no);
+            IntPoint center = (IntPoint) curr_via.get_center();
+            columns.add(VIA_X_COLUMN, center.x);
+            columns.add(VIA_Y_COLUMN, center.y);
+            columns.add(VIA_ATTACH_ALLOWED_COLUMN, curr_via.attach_allowed ? 1 : 0);
+        }
+        columns.write(out);
+
+        out.writeInt(traces.size());
+        columns = new ColumnWriter(TRACE_COLUMN_COUNT);
+        for (PolylineTrace curr_trace : traces)
+        {
+            columns.add_item_columns(curr_trace);
+            columns.add(TRACE_LAYER_COLUMN, curr_trace.get_layer());
+            columns.add(TRACE_HALF_WIDTH_COLUMN, curr_trace.get_half_width());
+            Line[] lines = curr_trace.polyline().arr;
+            columns.add(TRACE_LINE_COUNT_COLUMN, lines.length);
+            for (Line curr_line : lines)
+            {
+                IntPoint a = (IntPoint) curr_line.a;
+                IntPoint b = (IntPoint) curr_line.b;
+                columns.add(LINE_A_X_COLUMN, a.x);
+                columns.add(LINE_A_Y_COLUMN, a.y);
+                columns.add(LINE_B_X_COLUMN, b.x);
+                columns.add(LINE_B_Y_COLUMN, b.y);
+            }
+        }
+        columns.write(out);
+        out.flush();
+    }
+
+    /**
+     * Reads a board written by write from p_input_stream and inserts its items into the search trees.
+     */
+    static BasicBoard read(InputStream p_input_stream) throws IOException, ClassNotFoundException
+    {
+        DataInputStream in = new DataInputStream(p_input_stream);
+        if (in.readInt() != MAGIC)
+        {
+            throw new IOException("BoardBinaryFormat.read: no binary board");
+        }
+        int version = in.readInt();
+        if (version != VERSION)
+        {
+            throw new IOException("BoardBinaryFormat.read: unsupported version " + version);
+        }
+        byte[] frame = new byte[in.readInt()];
+        in.readFully(frame);
+        ObjectInputStream object_stream = new ObjectInputStream(new ByteArrayInputStream(frame));
+        BasicBoard board = (BasicBoard) object_stream.readObject();
+        Item[] other_items = (Item[]) object_stream.readObject();
+        List<Item> items = new ArrayList<Item>(Arrays.asList(other_items));
+
+        int pin_count = in.readInt();
+        ColumnReader columns = new ColumnReader(in, PIN_COLUMN_COUNT);
+        Map<Pin, Integer> changed_pins = new IdentityHashMap<Pin, Integer>();
+        Map<Integer, Pin> pin_of_id = new java.util.HashMap<Integer, Pin>();
+        for (Item curr_item : other_items)
+        {
+            if (curr_item instanceof Pin)
+            {
+                pin_of_id.put(curr_item.get_id_no(), (Pin) curr_item);
+            }
+        }
+        for (int i = 0; i < pin_count; ++i)
+        {
+            int id_no = columns.next(ID_COLUMN);
+            int clearance_class = columns.next(CLEARANCE_CLASS_COLUMN);
+            FixedState fixed_state = FIXED_STATES[columns.next(FIXED_STATE_COLUMN)];
+            int component_no = columns.next(COMPONENT_COLUMN);
+            int[] net_no_arr = columns.next_net_no_arr();
+            Pin curr_pin = new Pin(component_no, columns.next(PIN_NO_COLUMN), net_no_arr, clearance_class, id_no, fixed_state, board);
+            curr_pin.set_center(new IntPoint(columns.next(PIN_X_COLUMN), columns.next(PIN_Y_COLUMN)));
+            int changed_to_id = columns.next(PIN_CHANGED_TO_COLUMN);
+            if (changed_to_id >= 0)
+            {
+                changed_pins.put(curr_pin, changed_to_id);
+            }
+            pin_of_id.put(id_no, curr_pin);
+            items.add(curr_pin);
+        }
+        for (Map.Entry<Pin, Integer> curr_entry : changed_pins.entrySet())
+        {
+            curr_entry.getKey().set_changed_to(pin_of_id.get(curr_entry.getValue()));
+        }
+
+        int via_count = in.readInt();
+        columns = new ColumnReader(in, VIA_COLUMN_COUNT);
+        for (int i = 0; i < via_count; ++i)
+        {
+            int id_no = columns.next(ID_COLUMN);
+            int clearance_class = columns.next(CLEARANCE_CLASS_COLUMN);
+            FixedState fixed_state = FIXED_STATES[columns.next(FIXED_STATE_COLUMN)];
+            int component_no = columns.next(COMPONENT_COLUMN);
+            int[] net_no_arr = columns.next_net_no_arr();
+            Padstack padstack = board.library.padstacks.get(columns.next(VIA_PADSTACK_COLUMN));
+            IntPoint center = new IntPoint(columns.next(VIA_X_COLUMN), columns.next(VIA_Y_COLUMN));
+            boolean attach_allowed = columns.next(VIA_ATTACH_ALLOWED_COLUMN) != 0;
+            items.add(new Via(padstack, center, net_no_arr, clearance_class, id_no, component_no, fixed_state,
+                    attach_allowed, board));
+        }
+
+        int trace_count = in.readInt();
+        columns = new ColumnReader(in, TRACE_COLUMN_COUNT);
+        for (int i = 0; i < trace_count; ++i)
+        {
+            int id_no = columns.next(ID_COLUMN);
+            int clearance_class = columns.next(CLEARANCE_CLASS_COLUMN);
+            FixedState fixed_state = FIXED_STATES[columns.next(FIXED_STATE_COLUMN)];
+            int component_no = columns.next(COMPONENT_COLUMN);
+            int[] net_no_arr = columns.next_net_no_arr();
+            int layer = columns.next(TRACE_LAYER_COLUMN);
+            int half_width = columns.next(TRACE_HALF_WIDTH_COLUMN);
+            Line[] lines = new Line[columns.next(TRACE_LINE_COUNT_COLUMN)];
+            for (int j = 0; j < lines.length; ++j)
+            {
+                lines[j] = new Line(columns.next(LINE_A_X_COLUMN), columns.next(LINE_A_Y_COLUMN),
+                        columns.next(LINE_B_X_COLUMN), columns.next(LINE_B_Y_COLUMN));
+            }
+            items.add(new PolylineTrace(Polyline.get_instance_of_normalized(lines), layer, half_width, net_no_arr,
+                    clearance_class, id_no, component_no, fixed_state, board));
+        }
+
+        for (Item curr_item : items)
+        {
+            curr_item.board = board;
+            board.item_list.insert(curr_item);
+        }
+        // Build the search trees at once from the items in the order of the item list
+        // like BasicBoard.readObject.
+        board.search_tree_manager.insert_all(board.get_items());
+        return board;
+    }
+
+    /**
+     * Returns true, if p_input starts with the header of a binary board.
+     */
+    static boolean is_binary_board(byte[] p_input)
+    {
+        return p_input != null && p_input.length >= 4 && ByteBuffer.wrap(p_input).getInt() == MAGIC;
+    }
+
+    /**
+     * Writes the board without its items and the items, which are not stored in columns,
+     * with Java serialization into a block prefixed by its length.
+     */
+    private static void write_frame(BasicBoard p_board, List<Item> p_other_items, DataOutputStream p_out) throws IOException
+    {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        FrameOutputStream object_stream = new FrameOutputStream(frame, p_board, p_other_items);
+        object_stream.writeObject(p_board);
+        object_stream.writeObject(p_other_items.toArray(new Item[p_other_items.size()]));
+        object_stream.close();
+        p_out.writeInt(frame.size());
+        frame.writeTo(p_out);
+    }
+
+    private static boolean is_stored_in_columns(Via p_via, BasicBoard p_board)
+    {
+        Padstack padstack = p_via.get_padstack();
+        return p_via.get_center() instanceof IntPoint && padstack.no >= 1 && padstack.no <= p_board.library.padstacks.count()
+                && p_board.library.padstacks.get(padstack.no) == padstack;
+    }
+
+    private static boolean is_stored_in_columns(PolylineTrace p_trace)
+    {
+        for (Line curr_line : p_trace.polyline().arr)
+        {
+            if (!(curr_line.a instanceof IntPoint && curr_line.b instanceof IntPoint))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Serializes the board with an empty item list. The items not stored in columns are
+     * written separately after the board, all other items must not be reachable from the board.
+     */
+    private static class FrameOutputStream extends ObjectOutputStream
+    {
+        FrameOutputStream(OutputStream p_output_stream, BasicBoard p_board, Collection<Item> p_other_items) throws IOException
+        {
+            super(p_output_stream);
+            this.item_list = p_board.item_list;
+            this.other_items = java.util.Collections.newSetFromMap(new IdentityHashMap<Item, Boolean>());
+            this.other_items.addAll(p_other_items);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object p_object) throws IOException
+        {
+            if (p_object == this.item_list)
+            {
+                return new UndoableObjects();
+            }
+            if (p_object instanceof Item && !this.other_items.contains(p_object))
+            {
+                throw new IOException("BoardBinaryFormat: item " + ((Item) p_object).get_id_no()
+                        + " is referenced outside of the item list");
+            }
+            return p_object;
+        }
+
+        private final UndoableObjects item_list;
+        private final java.util.Set<Item> other_items;
+    }
+
+    /**
+     * Collects the columns of a kind of items and writes each column as an array of integers
+     * prefixed by its length.
+     */
+    private static class ColumnWriter
+    {
+        ColumnWriter(int p_column_count)
+        {
+            this.columns = new IntList[p_column_count];
+            for (int i = 0; i < p_column_count; ++i)
+            {
+                this.columns[i] = new IntList();
+            }
+        }
+
+        void add(int p_column, int p_value)
+        {
+            columns[p_column].add(p_value);
+        }
+
+        /**
+         * Adds the fields, which all items stored in columns have.
+         * The net numbers of all items are collected in one column, their counts in another.
+         */
+        void add_item_columns(Item p_item)
+        {
+            add(ID_COLUMN, p_item.get_id_no());
+            add(CLEARANCE_CLASS_COLUMN, p_item.clearance_class_no());
+            add(FIXED_STATE_COLUMN, p_item.get_fixed_state().ordinal());
+            add(COMPONENT_COLUMN, p_item.get_component_no());
+            add(NET_COUNT_COLUMN, p_item.net_count());
+            for (int i = 0; i < p_item.net_count(); ++i)
+            {
+                add(NET_NO_COLUMN, p_item.get_net_no(i));
+            }
+        }
+
+        void write(DataOutputStream p_out) throws IOException
+        {
+            for (IntList curr_column : columns)
+            {
+                ByteBuffer buffer = ByteBuffer.allocate(4 * curr_column.size);
+                buffer.asIntBuffer().put(curr_column.arr, 0, curr_column.size);
+                p_out.writeInt(curr_column.size);
+                p_out.write(buffer.array());
+            }
+        }
+
+        private final IntList[] columns;
+    }
+
+    /**
+     * Reads the columns written by ColumnWriter and returns their values item by item.
+     */
+    private static class ColumnReader
+    {
+        ColumnReader(DataInputStream p_in, int p_column_count) throws IOException
+        {
+            this.columns = new int[p_column_count][];
+            for (int i = 0; i < p_column_count; ++i)
+            {
+                byte[] bytes = new byte[4 * p_in.readInt()];
+                p_in.readFully(bytes);
+                this.columns[i] = new int[bytes.length / 4];
+                ByteBuffer.wrap(bytes).asIntBuffer().get(this.columns[i]);
+            }
+            this.positions = new int[p_column_count];
+        }
+
+        int next(int p_column)
+        {
+            return columns[p_column][positions[p_column]++];
+        }
+
+        int[] next_net_no_arr()
+        {
+            int[] result = new int[next(NET_COUNT_COLUMN)];
+            for (int i = 0; i < result.length; ++i)
+            {
+                result[i] = next(NET_NO_COLUMN);
+            }
+            return result;
+        }
+
+        private final int[][] columns;
+        private final int[] positions;
+    }
+
+    private static class IntList
+    {
+        void add(int p_value)
+        {
+            if (size == arr.length)
+            {
+                arr = Arrays.copyOf(arr, 2 * arr.length);
+            }
+            arr[size++] = p_value;
+        }
+
+        int[] arr = new int[1024];
+        int size = 0;
+    }
+
+    /** "FRBB" */
+    private static final int MAGIC = 0x46524242;
+    private static final int VERSION = 2;
+    private static final FixedState[] FIXED_STATES = FixedState.values();
+
+    /** The columns of all items stored in columns. */
+    private static final int ID_COLUMN = 0;
+    private static final int CLEARANCE_CLASS_COLUMN = 1;
+    private static final int FIXED_STATE_COLUMN = 2;
+    private static final int COMPONENT_COLUMN = 3;
+    private static final int NET_COUNT_COLUMN = 4;
+    private static final int NET_NO_COLUMN = 5;
+    private static final int ITEM_COLUMN_COUNT = 6;
+
+    /** The additional columns of pins. */
+    private static final int PIN_NO_COLUMN = ITEM_COLUMN_COUNT;
+    private static final int PIN_X_COLUMN = ITEM_COLUMN_COUNT + 1;
+    private static final int PIN_Y_COLUMN = ITEM_COLUMN_COUNT + 2;
+    private static final int PIN_CHANGED_TO_COLUMN = ITEM_COLUMN_COUNT + 3;
+    private static final int PIN_COLUMN_COUNT = ITEM_COLUMN_COUNT + 4;
+
+    /** The additional columns of vias. */
+    private static final int VIA_PADSTACK_COLUMN = ITEM_COLUMN_COUNT;
+    private static final int VIA_X_COLUMN = ITEM_COLUMN_COUNT + 1;
+    private static final int VIA_Y_COLUMN = ITEM_COLUMN_COUNT + 2;
+    private static final int VIA_ATTACH_ALLOWED_COLUMN = ITEM_COLUMN_COUNT + 3;
+    private static final int VIA_COLUMN_COUNT = ITEM_COLUMN_COUNT + 4;
+
+    /** The additional columns of traces. The lines of all traces are collected in the line columns. */
+    private static final int TRACE_LAYER_COLUMN = ITEM_COLUMN_COUNT;
+    private static final int TRACE_HALF_WIDTH_COLUMN = ITEM_COLUMN_COUNT + 1;
+    private static final int TRACE_LINE_COUNT_COLUMN = ITEM_COLUMN_COUNT + 2;
+    private static final int LINE_A_X_COLUMN = ITEM_COLUMN_COUNT + 3;
+    private static final int LINE_A_Y_COLUMN = ITEM_COLUMN_COUNT + 4;
+    private static final int LINE_B_X_COLUMN = ITEM_COLUMN_COUNT + 5;
+    private static final int LINE_B_Y_COLUMN = ITEM_COLUMN_COUNT + 6;
+    private static final int TRACE_COLUMN_COUNT = ITEM_COLUMN_COUNT + 7;
+}
@@ -122,6 +122,15 @@ public class Components implements java.io.Serializable
         this.undo_list.generate_snapshot();
     }
     
+    /**
+     * Removes the top snapshot from the undo stack.
+     * Returns false, if no more snapshot could be popped.
+     */
+    public boolean pop_snapshot()
+    {
+        return this.undo_list.pop_snapshot();
+    }
+    
     /**
      * Restores the sitiation at the previous snapshot.
      * Returns false, if no more undo is possible.
@@ -273,9 +273,11 @@ public abstract class Item implements Drawable, SearchTreeObject, ObjectInfoPane
     public void move_by(Vector p_vector)
     {
         board.item_list.save_for_undo(this);
+        board.additional_update_after_change(this);
         board.search_tree_manager.remove(this);
         this.translate_by(p_vector);
         board.search_tree_manager.insert(this);
+        board.additional_update_after_change(this);
         // let the observers syncronize the changes
         board.communication.observers.notify_changed(this);
     }
@@ -588,6 +590,14 @@ public abstract class Item implements Drawable, SearchTreeObject, ObjectInfoPane
         {
             return result;
         }
+        if (p_net_no > 0 && !p_stop_at_plane && this.board != null && this.is_on_the_board())
+        {
+            Set<Item> cached_result = this.board.connectivity.get_connected_set(this, p_net_no);
+            if (cached_result != null)
+            {
+                return cached_result;
+            }
+        }
         result.add(this);
         get_connected_set_recu(result, p_net_no, p_stop_at_plane);
         return result;
@@ -1028,6 +1038,7 @@ public abstract class Item implements Drawable, SearchTreeObject, ObjectInfoPane
         {
             return false;
         }
+        boolean indexed = this.start_net_change();
         int[] new_net_no_arr = new int[this.net_no_arr.length - 1];
         for (int i = 0; i < found_index; ++i)
         {
@@ -1038,6 +1049,7 @@ public abstract class Item implements Drawable, SearchTreeObject, ObjectInfoPane
             new_net_no_arr[i] = this.net_no_arr[i + 1];
         }
         this.net_no_arr = new_net_no_arr;
+        this.end_net_change(indexed);
         return true;
     }
 
@@ -1089,7 +1101,49 @@ public abstract class Item implements Drawable, SearchTreeObject, ObjectInfoPane
      */
     public void assign_component_no(int p_no)
     {
+        boolean indexed = this.remove_from_item_index();
         component_no = p_no;
+        if (indexed)
+        {
+            board.item_index.insert(this);
+        }
+    }
+
+    /**
+     * Removes this item from the item index of the board before its nets or its component are changed.
+     * Returns false, if this item is not on the board.
+     */
+    private boolean remove_from_item_index()
+    {
+        return board != null && board.item_index != null && board.item_index.remove(this);
+    }
+
+    /**
+     * Must be called before the nets of this item are changed.
+     * Returns the result of remove_from_item_index, which has to be passed to end_net_change.
+     */
+    private boolean start_net_change()
+    {
+        if (this.on_the_board)
+        {
+            board.connectivity.item_removed(this);
+        }
+        return this.remove_from_item_index();
+    }
+
+    /**
+     * Must be called after the nets of this item are changed.
+     */
+    private void end_net_change(boolean p_indexed)
+    {
+        if (p_indexed)
+        {
+            board.item_index.insert(this);
+        }
+        if (this.on_the_board)
+        {
+            board.connectivity.item_inserted(this);
+        }
     }
 
     /**
@@ -1108,6 +1162,7 @@ public abstract class Item implements Drawable, SearchTreeObject, ObjectInfoPane
             return;
         }
         board.item_list.save_for_undo(this);
+        boolean indexed = this.start_net_change();
         if (p_net_no <= 0)
         {
             net_no_arr = new int[0];
@@ -1124,6 +1179,7 @@ public abstract class Item implements Drawable, SearchTreeObject, ObjectInfoPane
             }
             net_no_arr[0] = p_net_no;
         }
+        this.end_net_change(indexed);
     }
 
     /**
@@ -1202,6 +1258,18 @@ public abstract class Item implements Drawable, SearchTreeObject, ObjectInfoPane
         this.search_trees_info = null;
     }
 
+    /**
+     * Removes the search tree entries and the precalculated tree shapes of this item for p_tree,
+     * after p_tree was discarded.
+     */
+    void remove_search_tree_entries(ShapeSearchTree p_tree)
+    {
+        if (this.search_trees_info != null)
+        {
+            this.search_trees_info.remove_tree(p_tree);
+        }
+    }
+
     /**
      * Gets the information for the autoroute algorithm.
      * Creates it, if it does not yet exist.
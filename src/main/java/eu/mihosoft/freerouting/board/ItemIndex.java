@@ -0,0 +1,209 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * ItemIndex.java
+ *
+ */
+package eu.mihosoft.freerouting.board;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import eu.mihosoft.freerouting.datastructures.UndoableObjects;
+
+/**
+ * Indexes of the items on a board by net number, by class and by component number.
+ * The index is kept up to date by the item list of the board, also during undo and redo.
+ * Changes of the nets or the component of an item on the board must be reported with
+ * remove before and insert after the change.
+ * The items of each index are sorted like the item list of the board, so that queries return
+ * the items in the same order as a traversal of the item list.
+ */
+class ItemIndex implements UndoableObjects.ChangeListener
+{
+    /**
+     * Creates an index containing the items currently in p_item_list.
+     */
+    ItemIndex(UndoableObjects p_item_list)
+    {
+        Iterator<UndoableObjects.UndoableObjectNode> it = p_item_list.start_read_object();
+        for (;;)
+        {
+            Item curr_item = (Item) p_item_list.read_object(it);
+            if (curr_item == null)
+            {
+                break;
+            }
+            insert(curr_item);
+        }
+    }
+
+    public void object_inserted(UndoableObjects.Storable p_object)
+    {
+        insert((Item) p_object);
+    }
+
+    public void object_removed(UndoableObjects.Storable p_object)
+    {
+        remove((Item) p_object);
+    }
+
+    void insert(Item p_item)
+    {
+        add_to(this.class_items, p_item.getClass(), p_item);
+        add_to(this.component_items, p_item.get_component_no(), p_item);
+        if (p_item instanceof Connectable)
+        {
+            for (int i = 0; i < p_item.net_count(); ++i)
+            {
+                add_to(this.net_items, p_item.get_net_no(i), p_item);
+            }
+        }
+    }
+
+    /**
+     * Removes p_item from the index.
+     * Returns false, if p_item was not contained in the index,
+     * for example because it is another instance of an item on the board with the same id number.
+     */
+    boolean remove(Item p_item)
+    {
+        NavigableSet<Item> items_of_class = this.class_items.get(p_item.getClass());
+        if (items_of_class == null || items_of_class.ceiling(p_item) != p_item)
+        {
+            return false;
+        }
+        remove_from(this.class_items, p_item.getClass(), p_item);
+        remove_from(this.component_items, p_item.get_component_no(), p_item);
+        if (p_item instanceof Connectable)
+        {
+            for (int i = 0; i < p_item.net_count(); ++i)
+            {
+                remove_from(this.net_items, p_item.get_net_no(i), p_item);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the connectable items containing the net with number p_net_no.
+     */
+    Collection<Item> get_connectable_items(int p_net_no)
+    {
+        return to_list(this.net_items.get(p_net_no));
+    }
+
+    int connectable_item_count(int p_net_no)
+    {
+        NavigableSet<Item> items = this.net_items.get(p_net_no);
+        return items == null ? 0 : items.size();
+    }
+
+    Collection<Item> get_component_items(int p_component_no)
+    {
+        return to_list(this.component_items.get(p_component_no));
+    }
+
+    int component_item_count(int p_component_no)
+    {
+        NavigableSet<Item> items = this.component_items.get(p_component_no);
+        return items == null ? 0 : items.size();
+    }
+
+    /**
+     * Returns the items of class p_class including its subclasses.
+     */
+    <T> Collection<T> get_items(Class<T> p_class)
+    {
+        NavigableSet<Item> found_items = null;
+        boolean found_items_copied = false;
+        for (Map.Entry<Class<?>, NavigableSet<Item>> curr_entry : this.class_items.entrySet())
+        {
+            if (!p_class.isAssignableFrom(curr_entry.getKey()))
+            {
+                continue;
+            }
+            if (found_items == null)
+            {
+                found_items = curr_entry.getValue();
+            }
+            else
+            {
+                // merge the items of several classes in the order of the item list
+                if (!found_items_copied)
+                {
+                    found_items = new TreeSet<Item>(found_items);
+                    found_items_copied = true;
+                }
+                found_items.addAll(curr_entry.getValue());
+            }
+        }
+        Collection<T> result = new LinkedList<T>();
+        if (found_items != null)
+        {
+            for (Item curr_item : found_items)
+            {
+                result.add(p_class.cast(curr_item));
+            }
+        }
+        return result;
+    }
+
+    private static <K> void add_to(Map<K, NavigableSet<Item>> p_index, K p_key, Item p_item)
+    {
+        NavigableSet<Item> items = p_index.get(p_key);
+        if (items == null)
+        {
+            items = new TreeSet<Item>();
+            p_index.put(p_key, items);
+        }
+        items.add(p_item);
+    }
+
+    private static <K> void remove_from(Map<K, NavigableSet<Item>> p_index, K p_key, Item p_item)
+    {
+        NavigableSet<Item> items = p_index.get(p_key);
+        if (items == null)
+        {
+            return;
+        }
+        items.remove(p_item);
+        if (items.isEmpty())
+        {
+            p_index.remove(p_key);
+        }
+    }
+
+    private static Collection<Item> to_list(NavigableSet<Item> p_items)
+    {
+        if (p_items == null)
+        {
+            return new LinkedList<Item>();
+        }
+        return new LinkedList<Item>(p_items);
+    }
+
+    private final Map<Integer, NavigableSet<Item>> net_items = new HashMap<Integer, NavigableSet<Item>>();
+    private final Map<Class<?>, NavigableSet<Item>> class_items = new HashMap<Class<?>, NavigableSet<Item>>();
+    private final Map<Integer, NavigableSet<Item>> component_items = new HashMap<Integer, NavigableSet<Item>>();
+}
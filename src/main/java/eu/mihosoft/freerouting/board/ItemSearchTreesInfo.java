@@ -25,6 +25,7 @@
 package eu.mihosoft.freerouting.board;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedList;
 
 import  eu.mihosoft.freerouting.datastructures.ShapeTree;
@@ -114,6 +115,22 @@ class ItemSearchTreesInfo
         this.tree_list.add(new_tree_info);
     }
     
+    /**
+     * Removes the tree entries and the precalculated tree shapes of p_tree.
+     */
+    public void remove_tree(ShapeTree p_tree)
+    {
+        Iterator<SearchTreeInfo> it = this.tree_list.iterator();
+        while (it.hasNext())
+        {
+            if (it.next().tree == p_tree)
+            {
+                it.remove();
+                return;
+            }
+        }
+    }
+    
     /**
      * clears the stored information about the precalculated tree shapes for all search trees.
      */
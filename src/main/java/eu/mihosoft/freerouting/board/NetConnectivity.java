@@ -0,0 +1,300 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * NetConnectivity.java
+ *
+ */
+package eu.mihosoft.freerouting.board;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Caches the sets of items of a net connected via normal contacts.
+ * The connected sets of a net are calculated, when they are requested for the first time.
+ * Afterwards inserted items are joined with the connected sets of their contacts,
+ * and a removed item only causes the recalculation of the connected set it belonged to.
+ * The board reports the changes of its items by item_inserted and item_removed.
+ * These changes are also counted for each net, so that other data derived from the items of a net,
+ * like the incomplete connections, can be recalculated only for the changed nets.
+ */
+class NetConnectivity
+{
+    NetConnectivity(BasicBoard p_board)
+    {
+        this.board = p_board;
+    }
+
+    /**
+     * Must be called after p_item was inserted into the board or its geometry or its nets have changed.
+     */
+    synchronized void item_inserted(Item p_item)
+    {
+        ++this.change_count;
+        for (int i = 0; i < p_item.net_count(); ++i)
+        {
+            count_net_change(p_item.get_net_no(i));
+            NetSets net_sets = this.net_sets.get(p_item.get_net_no(i));
+            if (net_sets != null)
+            {
+                net_sets.pending_items.add(p_item);
+            }
+        }
+    }
+
+    /**
+     * Must be called before p_item is removed from the board or its geometry or its nets are changed.
+     */
+    synchronized void item_removed(Item p_item)
+    {
+        ++this.change_count;
+        for (int i = 0; i < p_item.net_count(); ++i)
+        {
+            count_net_change(p_item.get_net_no(i));
+            NetSets net_sets = this.net_sets.get(p_item.get_net_no(i));
+            if (net_sets != null)
+            {
+                net_sets.remove(p_item);
+            }
+        }
+    }
+
+    /**
+     * Returns the items of the net with number p_net_no connected to p_item via normal contacts,
+     * or null, if p_item is not on the board.
+     */
+    synchronized Set<Item> get_connected_set(Item p_item, int p_net_no)
+    {
+        NetSets net_sets = get_net_sets(p_net_no);
+        ConnectedSet connected_set = net_sets.set_of_item.get(p_item);
+        if (connected_set == null)
+        {
+            return null;
+        }
+        return new TreeSet<Item>(connected_set.items);
+    }
+
+    /**
+     * Returns the connected sets of the net with number p_net_no.
+     */
+    synchronized Collection<Collection<Item>> get_connected_sets(int p_net_no)
+    {
+        NetSets net_sets = get_net_sets(p_net_no);
+        // collect the connected sets in the order of their first item in the item list
+        Set<ConnectedSet> connected_sets = new LinkedHashSet<ConnectedSet>();
+        for (Item curr_item : this.board.get_connectable_items(p_net_no))
+        {
+            ConnectedSet curr_set = net_sets.set_of_item.get(curr_item);
+            if (curr_set != null)
+            {
+                connected_sets.add(curr_set);
+            }
+        }
+        Collection<Collection<Item>> result = new LinkedList<Collection<Item>>();
+        for (ConnectedSet curr_set : connected_sets)
+        {
+            result.add(new TreeSet<Item>(curr_set.items));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of connected sets of the net with number p_net_no.
+     */
+    synchronized int connected_set_count(int p_net_no)
+    {
+        return get_net_sets(p_net_no).set_count;
+    }
+
+    /**
+     * Returns the number of reported changes of items on the board.
+     */
+    synchronized long get_change_count()
+    {
+        return this.change_count;
+    }
+
+    /**
+     * Returns the number of reported changes of items of the net with number p_net_no.
+     */
+    synchronized int get_net_change_count(int p_net_no)
+    {
+        if (p_net_no < 0 || p_net_no >= this.net_change_counts.length)
+        {
+            return 0;
+        }
+        return this.net_change_counts[p_net_no];
+    }
+
+    private void count_net_change(int p_net_no)
+    {
+        if (p_net_no < 0)
+        {
+            return;
+        }
+        if (p_net_no >= this.net_change_counts.length)
+        {
+            this.net_change_counts = java.util.Arrays.copyOf(this.net_change_counts, Math.max(2 * this.net_change_counts.length, p_net_no + 1));
+        }
+        ++this.net_change_counts[p_net_no];
+    }
+
+    /**
+     * Returns the up to date connected sets of the net with number p_net_no.
+     */
+    private NetSets get_net_sets(int p_net_no)
+    {
+        NetSets result = this.net_sets.get(p_net_no);
+        if (result == null)
+        {
+            result = new NetSets(p_net_no);
+            result.pending_items.addAll(this.board.get_connectable_items(p_net_no));
+            this.net_sets.put(p_net_no, result);
+        }
+        result.update();
+        return result;
+    }
+
+    /**
+     * The connected sets of a single net.
+     */
+    private static class NetSets
+    {
+        NetSets(int p_net_no)
+        {
+            this.net_no = p_net_no;
+        }
+
+        /**
+         * Joins the pending items with the connected sets of their contacts.
+         */
+        void update()
+        {
+            if (this.pending_items.isEmpty())
+            {
+                return;
+            }
+            List<Item> new_items = new ArrayList<Item>();
+            for (Item curr_item : this.pending_items)
+            {
+                if (curr_item.is_on_the_board() && curr_item.contains_net(this.net_no))
+                {
+                    if (!this.set_of_item.containsKey(curr_item))
+                    {
+                        add_single_item_set(curr_item);
+                    }
+                    new_items.add(curr_item);
+                }
+            }
+            this.pending_items.clear();
+            for (Item curr_item : new_items)
+            {
+                for (Item curr_contact : curr_item.get_normal_contacts())
+                {
+                    if (!curr_contact.contains_net(this.net_no))
+                    {
+                        continue;
+                    }
+                    if (!this.set_of_item.containsKey(curr_contact))
+                    {
+                        add_single_item_set(curr_contact);
+                    }
+                    join(this.set_of_item.get(curr_item), this.set_of_item.get(curr_contact));
+                }
+            }
+        }
+
+        /**
+         * Removes p_item. The other items of its connected set have to be joined again,
+         * because the connected set may fall apart.
+         */
+        void remove(Item p_item)
+        {
+            this.pending_items.remove(p_item);
+            ConnectedSet connected_set = this.set_of_item.remove(p_item);
+            if (connected_set == null)
+            {
+                return;
+            }
+            --this.set_count;
+            for (Item curr_item : connected_set.items)
+            {
+                if (curr_item != p_item)
+                {
+                    this.set_of_item.remove(curr_item);
+                    this.pending_items.add(curr_item);
+                }
+            }
+        }
+
+        private void add_single_item_set(Item p_item)
+        {
+            ConnectedSet new_set = new ConnectedSet();
+            new_set.items.add(p_item);
+            this.set_of_item.put(p_item, new_set);
+            ++this.set_count;
+        }
+
+        /**
+         * Joins the smaller of the two sets into the larger one.
+         */
+        private void join(ConnectedSet p_set_1, ConnectedSet p_set_2)
+        {
+            if (p_set_1 == p_set_2)
+            {
+                return;
+            }
+            ConnectedSet to_set = p_set_1;
+            ConnectedSet from_set = p_set_2;
+            if (from_set.items.size() > to_set.items.size())
+            {
+                to_set = p_set_2;
+                from_set = p_set_1;
+            }
+            for (Item curr_item : from_set.items)
+            {
+                this.set_of_item.put(curr_item, to_set);
+            }
+            to_set.items.addAll(from_set.items);
+            --this.set_count;
+        }
+
+        final int net_no;
+        /** The items inserted or changed since the last update. */
+        final Set<Item> pending_items = new LinkedHashSet<Item>();
+        final Map<Item, ConnectedSet> set_of_item = new HashMap<Item, ConnectedSet>();
+        int set_count = 0;
+    }
+
+    private static class ConnectedSet
+    {
+        final List<Item> items = new ArrayList<Item>();
+    }
+
+    private final BasicBoard board;
+    private final Map<Integer, NetSets> net_sets = new HashMap<Integer, NetSets>();
+    private long change_count = 0;
+    private int[] net_change_counts = new int[0];
+}
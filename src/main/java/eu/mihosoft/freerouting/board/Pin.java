@@ -566,6 +566,14 @@ public class Pin extends DrillItem implements java.io.Serializable
     {
         return changed_to;
     }
+
+    /**
+     * Used when reading a stored board, after all pins are created.
+     */
+    void set_changed_to(Pin p_pin)
+    {
+        changed_to = p_pin;
+    }
     
     public boolean write(java.io.ObjectOutputStream p_stream)
     {
@@ -1040,6 +1040,8 @@ public class PolylineTrace extends Trace implements java.io.Serializable
         int keep_at_end_count = Math.max(p_new_polyline.arr.length - index_of_last_different_line - 3, 0);
         board.search_tree_manager.change_entries(this, p_new_polyline, keep_at_start_count, keep_at_end_count);
         lines = p_new_polyline;
+        // invalidate also the autoroute data touching the new shape of this trace
+        board.additional_update_after_change(this);
 
         // let the observers syncronize the changes
         board.communication.observers.notify_changed(this);
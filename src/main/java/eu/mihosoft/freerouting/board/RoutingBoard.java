@@ -42,6 +42,7 @@ import eu.mihosoft.freerouting.datastructures.TimeLimit;
 import eu.mihosoft.freerouting.datastructures.ShapeTree.TreeEntry;
 
 import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
 import eu.mihosoft.freerouting.rules.ViaInfo;
 import eu.mihosoft.freerouting.rules.BoardRules;
 
@@ -102,6 +103,7 @@ public class RoutingBoard extends BasicBoard implements java.io.Serializable
                 }
             }
         }
+        this.autoroute_engine.remove_obstacle_doors(p_item);
         p_item.clear_autoroute_info();
     }
 
@@ -244,7 +246,9 @@ public class RoutingBoard extends BasicBoard implements java.io.Serializable
             PullTightAlgo pull_tight_algo =
                     PullTightAlgo.get_instance(this, p_only_net_no_arr, p_clip_shape,
                     p_accuracy, p_stoppable_thread, p_time_limit, p_keep_point, p_keep_point_layer);
+            long start_time = System.nanoTime();
             pull_tight_algo.opt_changed_area(p_trace_cost_arr);
+            FRMetrics.add(FRMetrics.Counter.PULL_TIGHT_NANOS, System.nanoTime() - start_time);
         }
         join_graphics_update_box(changed_area.surrounding_box());
         changed_area = null;
@@ -917,8 +921,14 @@ public class RoutingBoard extends BasicBoard implements java.io.Serializable
     public AutorouteEngine init_autoroute(int p_net_no, int p_trace_clearance_class_no,
             Stoppable p_stoppable_thread, TimeLimit p_time_limit, boolean p_retain_autoroute_database)
     {
-        if (this.autoroute_engine == null || !p_retain_autoroute_database || this.autoroute_engine.autoroute_search_tree.compensated_clearance_class_no != p_trace_clearance_class_no)
+        if (this.autoroute_engine == null || !p_retain_autoroute_database || !this.autoroute_engine.maintain_database
+                || this.autoroute_engine.autoroute_search_tree.compensated_clearance_class_no != p_trace_clearance_class_no)
         {
+            if (this.autoroute_engine != null && this.autoroute_engine.maintain_database)
+            {
+                // remove the retained expansion rooms from the search tree of the previous engine.
+                this.autoroute_engine.clear();
+            }
             this.autoroute_engine = new AutorouteEngine(this, p_trace_clearance_class_no, p_retain_autoroute_database);
         }
         this.autoroute_engine.init_connection(p_net_no, p_stoppable_thread, p_time_limit);
@@ -24,9 +24,17 @@
 
 package eu.mihosoft.freerouting.board;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import eu.mihosoft.freerouting.datastructures.UndoableObjects;
 import eu.mihosoft.freerouting.datastructures.ShapeTree;
@@ -50,6 +58,7 @@ public class SearchTreeManager
         default_tree =  new ShapeSearchTree(FortyfiveDegreeBoundingDirections.INSTANCE, p_board, 0);
         compensated_search_trees.add(default_tree);
         this.clearance_compensation_used = false;
+        this.tree_usage = new HashMap<ShapeSearchTree, TreeUsage>();
     }
     
     /**
@@ -62,6 +71,53 @@ public class SearchTreeManager
             curr_tree.insert(p_item);
         }
         p_item.set_on_the_board(true);
+        board.connectivity.item_inserted(p_item);
+    }
+    
+    /**
+     * Inserts the tree shapes of the items in p_items, which are not yet on the board,
+     * into all active search trees at once. Empty trees are built in one step,
+     * which is faster and gives better balanced trees than inserting the items one by one.
+     */
+    public void insert_all(Collection<Item> p_items)
+    {
+        for (ShapeSearchTree curr_tree : compensated_search_trees)
+        {
+            curr_tree.insert_all(p_items);
+        }
+        for (Item curr_item : p_items)
+        {
+            curr_item.set_on_the_board(true);
+            board.connectivity.item_inserted(curr_item);
+        }
+    }
+    
+    /**
+     * Builds the default tree again from all board items at once and discards the other trees,
+     * which are built again in one step when they are used.
+     * Used after a board was read, whose items were inserted one by one.
+     */
+    public void pack_trees()
+    {
+        reset_compensated_trees();
+        ShapeSearchTree old_default_tree = this.default_tree;
+        List<Item> item_list = new ArrayList<Item>();
+        Iterator<UndoableObjects.UndoableObjectNode> it = this.board.item_list.start_read_object();
+        for(;;)
+        {
+            Item curr_item = (Item) this.board.item_list.read_object(it);
+            if (curr_item == null)
+            {
+                break;
+            }
+            curr_item.remove_search_tree_entries(old_default_tree);
+            item_list.add(curr_item);
+        }
+        this.compensated_search_trees.remove(old_default_tree);
+        this.default_tree = new ShapeSearchTree(FortyfiveDegreeBoundingDirections.INSTANCE, this.board,
+                old_default_tree.compensated_clearance_class_no);
+        this.compensated_search_trees.add(this.default_tree);
+        this.default_tree.insert_all(item_list);
     }
     
     /**
@@ -73,6 +129,7 @@ public class SearchTreeManager
         {
             return;
         }
+        board.connectivity.item_removed(p_item);
         for (ShapeSearchTree curr_tree : compensated_search_trees)
         {
             
@@ -133,6 +190,7 @@ public class SearchTreeManager
         this.clearance_compensation_used = p_value;
         remove_all_board_items();
         this.compensated_search_trees.clear();
+        this.tree_usage.clear();
         int compensated_clearance_class_no;
         if (p_value)
         {
@@ -153,13 +211,11 @@ public class SearchTreeManager
     public void clearance_value_changed()
     {
         // delete all trees except the default tree
-        Iterator<ShapeSearchTree> it = this.compensated_search_trees.iterator();
-        while(it.hasNext())
+        for (ShapeSearchTree curr_tree : new ArrayList<ShapeSearchTree>(this.compensated_search_trees))
         {
-            ShapeSearchTree curr_tree = it.next();
             if (curr_tree.compensated_clearance_class_no != default_tree.compensated_clearance_class_no)
             {
-                it.remove();
+                remove_compensated_tree(curr_tree);
             }
         }
         if (this.clearance_compensation_used)
@@ -174,18 +230,16 @@ public class SearchTreeManager
      */
     public void clearance_class_removed(int p_no)
     {
-        Iterator<ShapeSearchTree> it = this.compensated_search_trees.iterator();
         if (p_no == default_tree.compensated_clearance_class_no)
         {
             FRLogger.warn("SearchtreeManager.clearance_class_removed: unable to remove default tree");
             return;
         }
-        while(it.hasNext())
+        for (ShapeSearchTree curr_tree : new ArrayList<ShapeSearchTree>(this.compensated_search_trees))
         {
-            ShapeSearchTree curr_tree = it.next();
             if (curr_tree.compensated_clearance_class_no == p_no)
             {
-                it.remove();
+                remove_compensated_tree(curr_tree);
             }
         }
     }
@@ -193,17 +247,26 @@ public class SearchTreeManager
     /**
      * Returns the tree compensated for the clearance class with number p_clearance_vlass_no.
      * Initialized the tree, if it is not yet allocated.
+     * Before a new tree is built, the least recently used trees are discarded,
+     * if there are more than the maximal number of cached trees or if the memory gets low.
      */
     public ShapeSearchTree get_autoroute_tree(int p_clearance_class_no)
     {
+        ++this.tree_request_count;
         for (ShapeSearchTree curr_tree : compensated_search_trees)
         {
             if (curr_tree.compensated_clearance_class_no == p_clearance_class_no)
             {
+                TreeUsage curr_usage = this.tree_usage.get(curr_tree);
+                if (curr_usage != null)
+                {
+                    curr_usage.used(this.tree_request_count);
+                }
                 return curr_tree;
             }
         }
         // tree is not yet initialized
+        discard_least_recently_used_trees();
         ShapeSearchTree curr_autoroute_tree;
         boolean fast_algorithm = !this.board.rules.get_slow_autoroute_algorithm();
         if (fast_algorithm && this.board.rules.get_trace_angle_restriction() == AngleRestriction.NINETY_DEGREE)
@@ -219,6 +282,138 @@ public class SearchTreeManager
             curr_autoroute_tree = new ShapeSearchTree(FortyfiveDegreeBoundingDirections.INSTANCE, this.board, p_clearance_class_no);
         }
         this.compensated_search_trees.add(curr_autoroute_tree);
+        TreeUsage new_usage = new TreeUsage();
+        new_usage.used(this.tree_request_count);
+        this.tree_usage.put(curr_autoroute_tree, new_usage);
+        insert_all_board_items(curr_autoroute_tree);
+        return curr_autoroute_tree;
+    }
+    
+    /**
+     * Clears all compensated trees used in the autoroute algorithm apart from the default tree.
+     */
+    public void reset_compensated_trees()
+    {
+        for (ShapeSearchTree curr_tree : new ArrayList<ShapeSearchTree>(this.compensated_search_trees))
+        {
+            if (curr_tree != default_tree)
+            {
+                remove_compensated_tree(curr_tree);
+            }
+        }
+    }
+    
+    /**
+     * Sets the maximal number of trees compensated for other clearance classes than the default tree,
+     * which are kept for reuse. Discarded trees are built again, when they are used the next time.
+     */
+    public void set_max_cached_tree_count(int p_value)
+    {
+        this.max_cached_tree_count = Math.max(p_value, 1);
+    }
+    
+    /**
+     * Returns the maximal number of compensated trees kept for reuse apart from the default tree.
+     */
+    public int get_max_cached_tree_count()
+    {
+        return this.max_cached_tree_count;
+    }
+    
+    /**
+     * Discards the least recently used compensated trees apart from the default tree,
+     * so that a new tree can be added without exceeding the maximal number of cached trees.
+     * If the memory gets low, one more tree is discarded.
+     */
+    private void discard_least_recently_used_trees()
+    {
+        while (this.tree_usage.size() >= this.max_cached_tree_count)
+        {
+            if (!remove_least_recently_used_tree())
+            {
+                return;
+            }
+        }
+        if (is_memory_low())
+        {
+            remove_least_recently_used_tree();
+        }
+    }
+    
+    /**
+     * Returns true, if more than LOW_MEMORY_RATIO of a tenured heap pool was still in use
+     * after its last garbage collection. Unlike the used heap of the runtime, this does not count
+     * the garbage, which is not yet collected.
+     */
+    private static boolean is_memory_low()
+    {
+        for (MemoryPoolMXBean curr_pool : TENURED_MEMORY_POOLS)
+        {
+            MemoryUsage usage_after_gc = curr_pool.getCollectionUsage();
+            if (usage_after_gc != null && usage_after_gc.getMax() > 0
+                    && usage_after_gc.getUsed() > LOW_MEMORY_RATIO * usage_after_gc.getMax())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Returns the heap pools holding the long living objects like the search trees.
+     * The pools for new objects support no usage threshold.
+     */
+    private static List<MemoryPoolMXBean> tenured_memory_pools()
+    {
+        List<MemoryPoolMXBean> result = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean curr_pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (curr_pool.getType() == MemoryType.HEAP && curr_pool.isUsageThresholdSupported()
+                    && curr_pool.isCollectionUsageThresholdSupported())
+            {
+                result.add(curr_pool);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Removes the compensated tree, which was not used for the longest time.
+     * Returns false, if there was no tree to remove.
+     */
+    private boolean remove_least_recently_used_tree()
+    {
+        ShapeSearchTree tree_to_remove = null;
+        TreeUsage usage_of_tree_to_remove = null;
+        for (Map.Entry<ShapeSearchTree, TreeUsage> curr_entry : this.tree_usage.entrySet())
+        {
+            TreeUsage curr_usage = curr_entry.getValue();
+            if (usage_of_tree_to_remove == null || curr_usage.last_request_no < usage_of_tree_to_remove.last_request_no)
+            {
+                tree_to_remove = curr_entry.getKey();
+                usage_of_tree_to_remove = curr_usage;
+            }
+        }
+        if (tree_to_remove == null)
+        {
+            return false;
+        }
+        remove_compensated_tree(tree_to_remove);
+        return true;
+    }
+    
+    /**
+     * Removes p_tree from the compensated trees and the entries of p_tree from the board items,
+     * so that the memory of the tree can be freed.
+     */
+    private void remove_compensated_tree(ShapeSearchTree p_tree)
+    {
+        this.compensated_search_trees.remove(p_tree);
+        this.tree_usage.remove(p_tree);
+        if (this.board == null)
+        {
+            return;
+        }
         Iterator<UndoableObjects.UndoableObjectNode> it = this.board.item_list.start_read_object();
         for(;;)
         {
@@ -227,25 +422,39 @@ public class SearchTreeManager
             {
                 break;
             }
-            curr_autoroute_tree.insert(curr_item);
+            curr_item.remove_search_tree_entries(p_tree);
         }
-        return curr_autoroute_tree;
     }
     
     /**
-     * Clears all compensated trees used in the autoroute algorithm apart from the default tree.
+     * Inserts all board items into the new tree p_tree at once.
+     * The tree shapes of traces depend only on the trace itself, so on large boards
+     * they are precalculated in parallel. The shapes of the other items may share cached
+     * geometry and are calculated in the calling thread.
      */
-    public void reset_compensated_trees()
+    private void insert_all_board_items(ShapeSearchTree p_tree)
     {
-        Iterator<ShapeSearchTree> it = this.compensated_search_trees.iterator();
-        while (it.hasNext())
+        List<Item> item_list = new ArrayList<Item>();
+        List<Item> trace_list = new ArrayList<Item>();
+        Iterator<UndoableObjects.UndoableObjectNode> it = this.board.item_list.start_read_object();
+        for(;;)
         {
-            ShapeSearchTree curr_tree = it.next();
-            if (curr_tree != default_tree)
+            Item curr_item = (Item) this.board.item_list.read_object(it);
+            if (curr_item == null)
+            {
+                break;
+            }
+            item_list.add(curr_item);
+            if (curr_item instanceof PolylineTrace)
             {
-                it.remove();
+                trace_list.add(curr_item);
             }
         }
+        if (trace_list.size() >= MIN_PARALLEL_TRACE_COUNT && Runtime.getRuntime().availableProcessors() > 1)
+        {
+            trace_list.parallelStream().forEach(curr_trace -> curr_trace.tree_shape_count(p_tree));
+        }
+        p_tree.insert_all(item_list);
     }
     
     /** Reinsert all items into the search trees */
@@ -307,10 +516,12 @@ public class SearchTreeManager
     void merge_entries_in_front( PolylineTrace p_from_trace, PolylineTrace p_to_trace,
             Polyline p_joined_polyline, int p_from_entry_no, int  p_to_entry_no)
     {
+        board.connectivity.item_removed(p_to_trace);
         for (ShapeSearchTree curr_tree : compensated_search_trees)
         {
             curr_tree.merge_entries_in_front(p_from_trace, p_to_trace, p_joined_polyline, p_from_entry_no, p_to_entry_no);
         }
+        board.connectivity.item_inserted(p_to_trace);
     }
     
     /**
@@ -320,10 +531,12 @@ public class SearchTreeManager
     void merge_entries_at_end( PolylineTrace p_from_trace, PolylineTrace p_to_trace,
             Polyline p_joined_polyline, int p_from_entry_no, int  p_to_entry_no)
     {
+        board.connectivity.item_removed(p_to_trace);
         for (ShapeSearchTree curr_tree : compensated_search_trees)
         {
             curr_tree.merge_entries_at_end(p_from_trace, p_to_trace, p_joined_polyline, p_from_entry_no, p_to_entry_no);
         }
+        board.connectivity.item_inserted(p_to_trace);
     }
     
     /**
@@ -334,10 +547,12 @@ public class SearchTreeManager
     void change_entries( PolylineTrace p_obj, Polyline p_new_polyline,
             int p_keep_at_start_count, int p_keep_at_end_count)
     {
+        board.connectivity.item_removed(p_obj);
         for (ShapeSearchTree curr_tree : compensated_search_trees)
         {
             curr_tree.change_entries(p_obj, p_new_polyline, p_keep_at_start_count, p_keep_at_end_count);
         }
+        board.connectivity.item_inserted(p_obj);
     }
     
     /**
@@ -352,13 +567,51 @@ public class SearchTreeManager
             
             curr_tree.reuse_entries_after_cutout(p_from_trace, p_start_piece, p_end_piece);
         }
+        board.connectivity.item_inserted(p_start_piece);
+        board.connectivity.item_inserted(p_end_piece);
     }
     
     private final Collection<ShapeSearchTree> compensated_search_trees;
     
+    /** The usage of the compensated trees apart from the default tree. */
+    private final Map<ShapeSearchTree, TreeUsage> tree_usage;
+    
+    /** Counts the calls of get_autoroute_tree to find the least recently used tree. */
+    private long tree_request_count = 0;
+    
+    private int max_cached_tree_count = DEFAULT_MAX_CACHED_TREE_COUNT;
+    
     private ShapeSearchTree default_tree;
     
     private final BasicBoard board;
     
     private boolean clearance_compensation_used;
+    
+    /** By default the number of cached trees is only limited by the available memory. */
+    private static final int DEFAULT_MAX_CACHED_TREE_COUNT = Integer.MAX_VALUE;
+    
+    /**
+     * If more than this part of a tenured heap pool is used after a garbage collection,
+     * a further tree is discarded before building a new one.
+     */
+    private static final double LOW_MEMORY_RATIO = 0.8;
+    
+    private static final List<MemoryPoolMXBean> TENURED_MEMORY_POOLS = tenured_memory_pools();
+    
+    /** The minimal number of traces for precalculating the tree shapes of a new tree in parallel. */
+    private static final int MIN_PARALLEL_TRACE_COUNT = 2000;
+    
+    /**
+     * Usage statistic of a compensated search tree.
+     */
+    private static class TreeUsage
+    {
+        void used(long p_request_no)
+        {
+            this.last_request_no = p_request_no;
+        }
+        
+        /** The number of the last call of get_autoroute_tree, which returned this tree. */
+        long last_request_no = 0;
+    }
 }
@@ -44,6 +44,7 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
 import eu.mihosoft.freerouting.rules.ClearanceMatrix;
 
 import eu.mihosoft.freerouting.datastructures.Signum;
@@ -400,6 +401,7 @@ public class ShapeSearchTree extends eu.mihosoft.freerouting.datastructures.MinA
         {
             return;
         }
+        FRMetrics.increment(FRMetrics.Counter.SEARCH_TREE_QUERIES);
         if (p_tree_entries == null)
         {
             FRLogger.warn("ShapeSearchTree.overlaps: p_obstacle_entries is null");
@@ -474,6 +476,7 @@ public class ShapeSearchTree extends eu.mihosoft.freerouting.datastructures.MinA
         {
             return;
         }
+        FRMetrics.increment(FRMetrics.Counter.SEARCH_TREE_QUERIES);
         if (p_obstacle_entries == null)
         {
             FRLogger.warn("ShapeSearchTree.overlaps_with_clearance: p_obstacle_entries is null");
@@ -1172,7 +1175,7 @@ public class ShapeSearchTree extends eu.mihosoft.freerouting.datastructures.MinA
     public final int compensated_clearance_class_no;
     protected final BasicBoard board;
     /** used in objects of class EntrySortedByClearance */
-    static private int last_generated_id_no = 0;
+    static private final java.util.concurrent.atomic.AtomicInteger last_generated_id_no = new java.util.concurrent.atomic.AtomicInteger(0);
 
     /**
      * created for sorting Items according to their clearance
@@ -1185,15 +1188,7 @@ public class ShapeSearchTree extends eu.mihosoft.freerouting.datastructures.MinA
         {
             leaf = p_leaf;
             clearance = p_clearance;
-            if (last_generated_id_no >= Integer.MAX_VALUE)
-            {
-                last_generated_id_no = 0;
-            }
-            else
-            {
-                ++last_generated_id_no;
-            }
-            entry_id_no = last_generated_id_no;
+            entry_id_no = last_generated_id_no.updateAndGet(p_no -> p_no >= Integer.MAX_VALUE ? 0 : p_no + 1);
 
         }
 
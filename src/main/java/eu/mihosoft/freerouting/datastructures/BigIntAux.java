@@ -13,6 +13,8 @@ package eu.mihosoft.freerouting.datastructures;
 
 import java.math.BigInteger;
 
+import eu.mihosoft.freerouting.logger.FRMetrics;
+
 /**
  *
  * Auxiliary functions with BigInteger Parameters
@@ -34,6 +36,29 @@ public class BigIntAux
         return tmp1.subtract(tmp2);
     }
 
+    /**
+     * Calculates the sign of the determinant of the vectors
+     * (p_x_1, p_y_1) and (p_x_2, p_y_2).
+     * The determinant is evaluated in double arithmetic first. BigInteger arithmetic
+     * is only used, if the sign is uncertain because of the rounding errors.
+     */
+    public static int determinant_signum(BigInteger p_x_1, BigInteger p_y_1,
+                                         BigInteger p_x_2, BigInteger p_y_2)
+    {
+        FRMetrics.increment(FRMetrics.Counter.GEOMETRY_PREDICATES);
+        double tmp1 = p_x_1.doubleValue() * p_y_2.doubleValue();
+        double tmp2 = p_x_2.doubleValue() * p_y_1.doubleValue();
+        double determinant = tmp1 - tmp2;
+        // 4 rounding errors of 2^-53 at most: the conversions of both factors, the product and the difference
+        double error_bound = 1.0E-15 * (Math.abs(tmp1) + Math.abs(tmp2));
+        if (error_bound < Double.POSITIVE_INFINITY && Math.abs(determinant) > error_bound)
+        {
+            return determinant > 0 ? 1 : -1;
+        }
+        FRMetrics.increment(FRMetrics.Counter.GEOMETRY_EXACT_FALLBACKS);
+        return determinant(p_x_1, p_y_1, p_x_2, p_y_2).signum();
+    }
+
 
     /**
      * auxiliary function to implement addition and translation in the
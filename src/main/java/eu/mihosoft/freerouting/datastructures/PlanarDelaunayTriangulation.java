@@ -64,8 +64,9 @@ public class PlanarDelaunayTriangulation
         
         // create a random permutation of the corners.
         // use a fixed seed to get reproducable result
-        random_generator.setSeed(seed);
-        Collections.shuffle(corner_list, random_generator);
+        java.util.Random curr_random_generator = random_generator.get();
+        curr_random_generator.setSeed(seed);
+        Collections.shuffle(corner_list, curr_random_generator);
         
         // create a big triangle contaning all corners in the list to start with.
         
@@ -342,7 +343,7 @@ public class PlanarDelaunayTriangulation
      * A fixed seed is used to make the results reproduceble.
      */
     static private int seed = 99;
-    static private java.util.Random random_generator = new java.util.Random(seed);
+    static private final ThreadLocal<java.util.Random> random_generator = ThreadLocal.withInitial(() -> new java.util.Random(seed));
     
     /**
      * Interface with funktionality required for objects to be used
@@ -23,6 +23,10 @@
 
 package eu.mihosoft.freerouting.datastructures;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import eu.mihosoft.freerouting.geometry.planar.ShapeBoundingDirections;
 import eu.mihosoft.freerouting.geometry.planar.RegularTileShape;
 import eu.mihosoft.freerouting.geometry.planar.Shape;
@@ -66,10 +70,65 @@ public abstract class ShapeTree
         p_obj.set_search_tree_entries(leaf_arr, this);
     }
     
+    /**
+     * Inserts all shapes of the objects in p_objects into the tree.
+     * The leaves of all objects are created first and then inserted together,
+     * so that derived classes may build the tree at once.
+     */
+    public void insert_all(Collection<? extends ShapeTree.Storable> p_objects)
+    {
+        List<Leaf> new_leaves = new ArrayList<Leaf>();
+        for (ShapeTree.Storable curr_obj : p_objects)
+        {
+            int shape_count = curr_obj.tree_shape_count(this);
+            if (shape_count <= 0)
+            {
+                continue;
+            }
+            Leaf [] leaf_arr = new Leaf [shape_count];
+            for (int i = 0; i < shape_count; ++i)
+            {
+                leaf_arr [i] = create_leaf(curr_obj, i);
+                if (leaf_arr [i] != null)
+                {
+                    new_leaves.add(leaf_arr [i]);
+                }
+            }
+            curr_obj.set_search_tree_entries(leaf_arr, this);
+        }
+        insert_leaves(new_leaves);
+    }
+    
+    /**
+     * Inserts the leaves in p_leaves one by one in their order.
+     * May be overwritten in derived classes, which can build the tree from all leaves at once.
+     */
+    protected void insert_leaves(List<Leaf> p_leaves)
+    {
+        for (Leaf curr_leaf : p_leaves)
+        {
+            this.insert(curr_leaf);
+        }
+    }
+    
     /**
      * Insert a shape - creates a new node with a bounding shape
      */
     protected Leaf insert(ShapeTree.Storable p_object, int p_index)
+    {
+        Leaf new_leaf = create_leaf(p_object, p_index);
+        if (new_leaf != null)
+        {
+            this.insert(new_leaf);
+        }
+        return new_leaf;
+    }
+    
+    /**
+     * Creates a leaf for the shape with index p_index of p_object without inserting it.
+     * Returns null, if the object has no such shape.
+     */
+    private Leaf create_leaf(ShapeTree.Storable p_object, int p_index)
     {
         Shape object_shape = p_object.get_tree_shape(this, p_index);
         if (object_shape == null)
@@ -84,9 +143,7 @@ public abstract class ShapeTree
             return null;
         }
         // Construct a new KdLeaf and set it up
-        Leaf new_leaf = new Leaf(p_object, p_index, null, bounding_shape) ;
-        this.insert(new_leaf);
-        return new_leaf;
+        return new Leaf(p_object, p_index, null, bounding_shape) ;
     }
     
     
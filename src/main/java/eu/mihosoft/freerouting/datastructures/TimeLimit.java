@@ -37,7 +37,7 @@ public class TimeLimit
     public TimeLimit(int p_milli_seconds)
     {
         this.time_limit = p_milli_seconds;
-        this.time_stamp = (new java.util.Date()).getTime();
+        this.time_stamp = System.currentTimeMillis();
     }
     
     /**
@@ -45,7 +45,7 @@ public class TimeLimit
      */
     public boolean limit_exceeded()
     {
-        long curr_time = (new java.util.Date()).getTime();
+        long curr_time = System.currentTimeMillis();
         return (curr_time - this.time_stamp > this.time_limit);
     }
     
@@ -25,8 +25,13 @@ package eu.mihosoft.freerouting.datastructures;
 import eu.mihosoft.freerouting.logger.FRLogger;
 
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.Vector;
@@ -46,6 +51,7 @@ public class UndoableObjects implements java.io.Serializable
         stack_level = 0;
         objects = new ConcurrentSkipListMap<Storable, UndoableObjectNode>();
         deleted_objects_stack = new Vector<Collection<UndoableObjectNode>>();
+        changed_keys_stack = new Vector<SortedSet<Storable>>();
     }
 
     /**
@@ -85,6 +91,8 @@ public class UndoableObjects implements java.io.Serializable
         disable_redo();
         UndoableObjectNode curr_undoable_object = new UndoableObjectNode(p_object, stack_level);
         objects.put(p_object, curr_undoable_object);
+        add_changed_key(p_object);
+        object_inserted(p_object);
     }
 
     /**
@@ -131,6 +139,7 @@ public class UndoableObjects implements java.io.Serializable
             }
         }
         objects.remove(p_object);
+        object_removed(p_object);
         return true;
     }
 
@@ -142,6 +151,7 @@ public class UndoableObjects implements java.io.Serializable
         disable_redo();
         Collection<UndoableObjectNode> curr_deleted_objects_list = new LinkedList<UndoableObjectNode>();
         deleted_objects_stack.add(curr_deleted_objects_list);
+        changed_keys_stack.add(new TreeSet<Storable>());
         ++stack_level;
     }
 
@@ -157,11 +167,11 @@ public class UndoableObjects implements java.io.Serializable
         {
             return false; // no more undo possible
         }
-        Iterator<UndoableObjectNode> it = objects.values().iterator();
-        while (it.hasNext())
+        // only the objects changed on the current level are visited, in the order of the object list
+        for (Storable curr_key : changed_keys_stack.elementAt(stack_level - 1))
         {
-            UndoableObjectNode curr_node = it.next();
-            if (curr_node.level == stack_level)
+            UndoableObjectNode curr_node = objects.get(curr_key);
+            if (curr_node != null && curr_node.level == stack_level)
             {
                 if (curr_node.undo_object != null)
                 {
@@ -177,6 +187,11 @@ public class UndoableObjects implements java.io.Serializable
                 {
                     p_cancelled_objects.add(curr_node.object);
                 }
+                object_removed(curr_node.object);
+                if (curr_node.undo_object != null)
+                {
+                    object_inserted(curr_node.undo_object.object);
+                }
             }
         }
         // restore the deleted objects
@@ -190,6 +205,7 @@ public class UndoableObjects implements java.io.Serializable
             {
                 p_restored_objects.add(curr_deleted_node.object);
             }
+            object_inserted(curr_deleted_node.object);
         }
         --this.stack_level;
         redo_possible = true;
@@ -209,10 +225,13 @@ public class UndoableObjects implements java.io.Serializable
             return false; // alredy at the top level
         }
         ++this.stack_level;
-        Iterator<UndoableObjectNode> it = objects.values().iterator();
-        while (it.hasNext())
+        for (Storable curr_key : changed_keys_stack.elementAt(stack_level - 1))
         {
-            UndoableObjectNode curr_node = it.next();
+            UndoableObjectNode curr_node = objects.get(curr_key);
+            if (curr_node == null)
+            {
+                continue;
+            }
             if (curr_node.redo_object != null && curr_node.redo_object.level == this.stack_level)
             {
                 // Object was created on a lower level and changed on the currenzt level,
@@ -227,11 +246,14 @@ public class UndoableObjects implements java.io.Serializable
                     p_restored_objects.add(curr_node.redo_object.object);
                 // else the redo_object was deleted on the redo level
                 }
+                object_removed(curr_node.object);
+                object_inserted(curr_node.redo_object.object);
             }
             else if (curr_node.level == this.stack_level)
             {
                 // Object was created on the current level, allow it to be restored.
                 p_restored_objects.add(curr_node.object);
+                object_inserted(curr_node.object);
             }
         }
         // Delete the objects, which were deleted on the current level, again.
@@ -249,6 +271,7 @@ public class UndoableObjects implements java.io.Serializable
             {
                 FRLogger.warn("previous deleted object not found");
             }
+            object_removed(curr_deleted_node.object);
             if (p_restored_objects == null || !p_restored_objects.remove(curr_deleted_node.object))
             {
                 // the object needs only be cancelled if it is already in the board
@@ -273,28 +296,27 @@ public class UndoableObjects implements java.io.Serializable
         {
             return false;
         }
-        Iterator<UndoableObjectNode> it = objects.values().iterator();
-        while (it.hasNext())
+        // After disable_redo no object refers to a redo object, so only the objects changed
+        // on the top level have to be moved to the level below.
+        SortedSet<Storable> top_changed_keys = changed_keys_stack.elementAt(stack_level - 1);
+        for (Storable curr_key : top_changed_keys)
         {
-            UndoableObjectNode curr_node = it.next();
-            if (curr_node.level == stack_level - 1)
+            UndoableObjectNode curr_node = objects.get(curr_key);
+            if (curr_node != null && curr_node.level >= stack_level)
             {
-                if (curr_node.redo_object != null && curr_node.redo_object.level == stack_level)
+                --curr_node.level;
+                if (curr_node.level == 0)
                 {
-                    curr_node.redo_object.undo_object = curr_node.undo_object;
-                    if (curr_node.undo_object != null)
-                    {
-                        curr_node.undo_object.redo_object = curr_node.redo_object;
-
-                    }
+                    // the previous states cannot be restored any more
+                    curr_node.undo_object = null;
                 }
             }
-            else if (curr_node.level >= stack_level)
-            {
-                --curr_node.level;
-            }
-
         }
+        if (stack_level >= 2)
+        {
+            changed_keys_stack.elementAt(stack_level - 2).addAll(top_changed_keys);
+        }
+        changed_keys_stack.remove(stack_level - 1);
         int deleted_objects_stack_size = deleted_objects_stack.size();
         if (deleted_objects_stack_size >= 2)
         {
@@ -332,6 +354,11 @@ public class UndoableObjects implements java.io.Serializable
             FRLogger.warn("UndoableObjects.save_for_undo: object node not found");
             return;
         }
+        if (this.changed_objects != null)
+        {
+            // p_object will be modified, so its fingerprint has to be recalculated.
+            this.changed_objects.put(p_object, p_object);
+        }
         if (curr_node.level < this.stack_level)
         {
 
@@ -340,6 +367,132 @@ public class UndoableObjects implements java.io.Serializable
             old_node.redo_object = curr_node;
             curr_node.undo_object = old_node;
             curr_node.level = this.stack_level;
+            add_changed_key(curr_node.object);
+        }
+    }
+
+    /**
+     * Returns a fingerprint of the objects currently in this list, which is the sum of the results
+     * of p_fingerprint_function applied to each object.
+     * After the first call the fingerprint is maintained incrementally: only objects inserted or
+     * changed since the previous call are evaluated again, so that no serialization or traversal
+     * of the whole list is necessary. Always the same p_fingerprint_function must be used.
+     */
+    public long get_fingerprint(java.util.function.ToLongFunction<Storable> p_fingerprint_function)
+    {
+        if (this.object_fingerprints == null)
+        {
+            this.object_fingerprints = new IdentityHashMap<Storable, Long>();
+            this.changed_objects = new IdentityHashMap<Storable, Storable>();
+            this.fingerprint = 0;
+            Iterator<UndoableObjectNode> it = start_read_object();
+            for (;;)
+            {
+                Storable curr_object = read_object(it);
+                if (curr_object == null)
+                {
+                    break;
+                }
+                this.changed_objects.put(curr_object, curr_object);
+            }
+        }
+        for (Storable curr_object : this.changed_objects.keySet())
+        {
+            Long old_fingerprint = this.object_fingerprints.get(curr_object);
+            if (old_fingerprint != null)
+            {
+                this.fingerprint -= old_fingerprint;
+            }
+            long new_fingerprint = p_fingerprint_function.applyAsLong(curr_object);
+            this.object_fingerprints.put(curr_object, new_fingerprint);
+            this.fingerprint += new_fingerprint;
+        }
+        this.changed_objects.clear();
+        return this.fingerprint;
+    }
+
+    /**
+     * Starts recording the objects inserted into or removed from this list.
+     * Objects, which are removed and inserted again, are not recorded.
+     */
+    public void start_recording_changes()
+    {
+        this.inserted_since_recording = new TreeSet<Storable>();
+        this.removed_since_recording = new TreeSet<Storable>();
+    }
+
+    /**
+     * Returns the number of objects fulfilling p_filter, which were inserted or removed
+     * since the last call of start_recording_changes.
+     */
+    public int changed_object_count(java.util.function.Predicate<Storable> p_filter)
+    {
+        if (this.inserted_since_recording == null)
+        {
+            return 0;
+        }
+        int result = 0;
+        for (Storable curr_object : this.inserted_since_recording)
+        {
+            if (p_filter.test(curr_object))
+            {
+                ++result;
+            }
+        }
+        for (Storable curr_object : this.removed_since_recording)
+        {
+            if (p_filter.test(curr_object))
+            {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets a listener, which is notified about all objects becoming visible in or disappearing from this list,
+     * also by undo and redo. Objects changed in place are not reported.
+     * Only one listener is supported, p_listener replaces the previous one.
+     */
+    public void set_change_listener(ChangeListener p_listener)
+    {
+        this.change_listener = p_listener;
+    }
+
+    private void object_inserted(Storable p_object)
+    {
+        if (this.changed_objects != null)
+        {
+            this.changed_objects.put(p_object, p_object);
+        }
+        if (this.change_listener != null)
+        {
+            this.change_listener.object_inserted(p_object);
+        }
+        if (this.inserted_since_recording != null && !this.removed_since_recording.remove(p_object))
+        {
+            this.inserted_since_recording.add(p_object);
+        }
+    }
+
+    private void object_removed(Storable p_object)
+    {
+        if (this.change_listener != null)
+        {
+            this.change_listener.object_removed(p_object);
+        }
+        if (this.changed_objects != null)
+        {
+            this.changed_objects.remove(p_object);
+            Long old_fingerprint = this.object_fingerprints.remove(p_object);
+            if (old_fingerprint != null)
+            {
+                this.fingerprint -= old_fingerprint;
+            }
+        }
+        if (this.inserted_since_recording != null && !this.inserted_since_recording.remove(p_object))
+        {
+            this.removed_since_recording.add(p_object);
         }
     }
 
@@ -358,17 +511,61 @@ public class UndoableObjects implements java.io.Serializable
         {
             deleted_objects_stack.remove(i);
         }
-        Iterator<UndoableObjectNode> it = objects.values().iterator();
-        while (it.hasNext())
+        // Remove the objects of the undone levels and the references to them.
+        // These objects were changed on the undone levels, so their keys are found there.
+        for (int i = changed_keys_stack.size() - 1; i >= this.stack_level; --i)
+        {
+            for (Storable curr_key : changed_keys_stack.elementAt(i))
+            {
+                UndoableObjectNode curr_node = objects.get(curr_key);
+                if (curr_node == null)
+                {
+                    continue;
+                }
+                if (curr_node.level > this.stack_level)
+                {
+                    objects.remove(curr_key);
+                }
+                else
+                {
+                    curr_node.redo_object = null;
+                }
+            }
+            changed_keys_stack.remove(i);
+        }
+    }
+
+    /**
+     * Records, that the object with key p_key got the current level.
+     */
+    private void add_changed_key(Storable p_key)
+    {
+        if (this.stack_level > 0)
         {
-            UndoableObjectNode curr_node = it.next();
-            if (curr_node.level > this.stack_level)
+            changed_keys_stack.elementAt(this.stack_level - 1).add(p_key);
+        }
+    }
+
+    /** Reads an instance of this class and restores the keys of the changed objects on each level. */
+    private void readObject(java.io.ObjectInputStream p_stream)
+            throws java.io.IOException, java.lang.ClassNotFoundException
+    {
+        p_stream.defaultReadObject();
+        this.changed_keys_stack = new Vector<SortedSet<Storable>>();
+        for (int i = 0; i < this.deleted_objects_stack.size(); ++i)
+        {
+            this.changed_keys_stack.add(new TreeSet<Storable>());
+        }
+        for (UndoableObjectNode curr_node : this.objects.values())
+        {
+            if (curr_node.level > 0 && curr_node.level <= this.changed_keys_stack.size())
             {
-                it.remove();
+                this.changed_keys_stack.elementAt(curr_node.level - 1).add(curr_node.object);
             }
-            else if (curr_node.level == this.stack_level)
+            if (curr_node.redo_object != null && curr_node.redo_object.level > 0
+                    && curr_node.redo_object.level <= this.changed_keys_stack.size())
             {
-                curr_node.redo_object = null;
+                this.changed_keys_stack.elementAt(curr_node.redo_object.level - 1).add(curr_node.object);
             }
         }
     }
@@ -383,7 +580,21 @@ public class UndoableObjects implements java.io.Serializable
      * existing before the previous snapshot.
      */
     private Vector<Collection<UndoableObjectNode>> deleted_objects_stack;
+    /**
+     * The keys of the objects changed on each undo level, so that undo, redo and pop_snapshot
+     * need not to traverse all objects. Contains also keys of objects changed again or deleted later.
+     */
+    private transient Vector<SortedSet<Storable>> changed_keys_stack;
     private boolean redo_possible = false;
+    /** The current fingerprint, valid for the objects not contained in changed_objects. */
+    private transient long fingerprint = 0;
+    /** The fingerprints of the objects contained in this.fingerprint, null if no fingerprint was requested yet. */
+    private transient Map<Storable, Long> object_fingerprints = null;
+    /** The objects inserted or changed since the last call of get_fingerprint. */
+    private transient Map<Storable, Storable> changed_objects = null;
+    private transient Set<Storable> inserted_since_recording = null;
+    private transient Set<Storable> removed_since_recording = null;
+    private transient ChangeListener change_listener = null;
 
     /**
      * Conditiom for an Object to be stored in an UndoableObjects database.
@@ -399,6 +610,16 @@ public class UndoableObjects implements java.io.Serializable
         Object clone();
     }
 
+    /**
+     * Listener for the objects inserted into or removed from an UndoableObjects database.
+     */
+    public interface ChangeListener
+    {
+        void object_inserted(Storable p_object);
+
+        void object_removed(Storable p_object);
+    }
+
     /**
      * Stores informations for correct restoring or cancelling an object
      * in an undo or redo operation.
@@ -49,18 +49,27 @@ public class DsnFile
      * Creates a routing board from a Specctra dns file.
      * The parameters p_item_observers and p_item_id_no_generator are used,
      * in case the board is embedded into a host system.
+     * Files are read with a MappedSpecctraFileScanner, other input streams with a SpecctraFileScanner.
      * Returns false, if an error occured.
      */
     public static ReadResult read(java.io.InputStream p_input_stream, eu.mihosoft.freerouting.interactive.IBoardHandling p_board_handling,
                                   eu.mihosoft.freerouting.board.BoardObservers p_observers, eu.mihosoft.freerouting.datastructures.IdNoGenerator p_item_id_no_generator, TestLevel p_test_level)
     {
-        Scanner scanner = new SpecctraFileScanner(p_input_stream);
+        return read(create_scanner(p_input_stream), p_board_handling, p_observers, p_item_id_no_generator, p_test_level);
+    }
+
+    /**
+     * Creates a routing board from a Specctra dns file read with p_scanner.
+     */
+    public static ReadResult read(Scanner p_scanner, eu.mihosoft.freerouting.interactive.IBoardHandling p_board_handling,
+                                  eu.mihosoft.freerouting.board.BoardObservers p_observers, eu.mihosoft.freerouting.datastructures.IdNoGenerator p_item_id_no_generator, TestLevel p_test_level)
+    {
         Object curr_token = null;
         for (int i = 0; i < 3; ++i)
         {
             try
             {
-                curr_token = scanner.next_token();
+                curr_token = p_scanner.next_token();
             }
             catch (java.io.IOException e)
             {
@@ -75,7 +84,7 @@ public class DsnFile
             else if (i == 1)
             {
                 keyword_ok = (curr_token == Keyword.PCB_SCOPE);
-                scanner.yybegin(SpecctraFileScanner.NAME); // to overread the name of the pcb for i = 2
+                p_scanner.yybegin(SpecctraFileScanner.NAME); // to overread the name of the pcb for i = 2
             }
             if (!keyword_ok)
             {
@@ -84,7 +93,7 @@ public class DsnFile
             }
         }
         ReadScopeParameter read_scope_par =
-                new ReadScopeParameter(scanner, p_board_handling, p_observers, p_item_id_no_generator, p_test_level);
+                new ReadScopeParameter(p_scanner, p_board_handling, p_observers, p_item_id_no_generator, p_test_level);
         boolean read_ok = Keyword.PCB_SCOPE.read_scope(read_scope_par);
         ReadResult result;
         if (read_ok)
@@ -95,6 +104,8 @@ public class DsnFile
                 // look for power planes with incorrect layer type and adjust autoroute parameters
                 adjust_plane_autoroute_settings(p_board_handling);
             }
+            // The items were inserted one by one while reading, which gives unbalanced search trees.
+            p_board_handling.get_routing_board().search_tree_manager.pack_trees();
         }
         else if (!read_scope_par.board_outline_ok)
         {
@@ -108,6 +119,27 @@ public class DsnFile
         return result;
     }
 
+    /**
+     * Creates the scanner for p_input_stream.
+     * The memory mapped scanner expects UTF-8 encoding, which is also the default charset of the generated scanner.
+     */
+    private static Scanner create_scanner(java.io.InputStream p_input_stream)
+    {
+        if (p_input_stream instanceof java.io.FileInputStream
+                && java.nio.charset.Charset.defaultCharset().equals(java.nio.charset.StandardCharsets.UTF_8))
+        {
+            try
+            {
+                return new MappedSpecctraFileScanner(((java.io.FileInputStream) p_input_stream).getChannel());
+            }
+            catch (java.io.IOException e)
+            {
+                FRLogger.warn("DsnFile.create_scanner: file could not be mapped, reading it as stream");
+            }
+        }
+        return new SpecctraFileScanner(p_input_stream);
+    }
+
     /**
      * Sets contains_plane to true for nets with a conduction_area covering a 
      * large part of a signal layer, if that layer does not contain any traces
@@ -233,7 +265,7 @@ public class DsnFile
      * If p_compat_mode is true, only standard speecctra dsn scopes are written, so that any
      * host system with an specctra interface can read them.
      */
-    public static boolean write(eu.mihosoft.freerouting.interactive.BoardHandling p_board_handling, java.io.OutputStream p_file, String p_design_name, boolean p_compat_mode)
+    public static boolean write(eu.mihosoft.freerouting.interactive.BoardHandlingImpl p_board_handling, java.io.OutputStream p_file, String p_design_name, boolean p_compat_mode)
     {
         //eu.mihosoft.freerouting.tests.Validate.check("before writing dsn", p_board);
         IndentFileWriter output_file = new IndentFileWriter(p_file);
@@ -264,7 +296,7 @@ public class DsnFile
         return true;
     }
 
-    private static void write_pcb_scope(eu.mihosoft.freerouting.interactive.BoardHandling p_board_handling, IndentFileWriter p_file, String p_design_name, boolean p_compat_mode)
+    private static void write_pcb_scope(eu.mihosoft.freerouting.interactive.BoardHandlingImpl p_board_handling, IndentFileWriter p_file, String p_design_name, boolean p_compat_mode)
             throws java.io.IOException
     {
         BasicBoard routing_board = p_board_handling.get_routing_board();
@@ -0,0 +1,830 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * MappedSpecctraFileScanner.java
+ *
+ */
+package eu.mihosoft.freerouting.designforms.specctra;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Scanner for UTF-8 encoded Specctra files working directly on the bytes of a memory mapped file.
+ * Recognizes the same tokens in the same states as the generated SpecctraFileScanner.
+ * Keywords are looked up from the bytes without creating strings, numbers are converted
+ * without intermediate strings, and identifiers occurring repeatedly share one string instance.
+ */
+public class MappedSpecctraFileScanner implements Scanner
+{
+    /**
+     * Creates a scanner for the rest of the file of p_channel starting at its current position.
+     */
+    public MappedSpecctraFileScanner(FileChannel p_channel) throws java.io.IOException
+    {
+        long start = p_channel.position();
+        long size = p_channel.size() - start;
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new java.io.IOException("file too large to be mapped");
+        }
+        this.buffer = p_channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    }
+
+    /**
+     * Creates a scanner for the remaining bytes of p_buffer.
+     */
+    public MappedSpecctraFileScanner(ByteBuffer p_buffer)
+    {
+        this.buffer = p_buffer.slice();
+    }
+
+    public void yybegin(int p_new_state)
+    {
+        this.state = p_new_state;
+    }
+
+    public Object next_token() throws java.io.IOException
+    {
+        int end = this.buffer.limit();
+        while (this.pos < end)
+        {
+            int curr_char = this.char_at(this.pos);
+            int char_length = this.last_char_length;
+            if (is_white_space(curr_char) && this.state != SpecctraFileScanner.SPEC_CHAR)
+            {
+                this.pos += char_length;
+                continue;
+            }
+            if (this.state == SpecctraFileScanner.SPEC_CHAR)
+            {
+                if (!has_class(curr_char, SPEC | MINUS | PLUS))
+                {
+                    throw illegal_character(curr_char);
+                }
+                return next_string(char_length);
+            }
+            if (curr_char == '(' || curr_char == ')')
+            {
+                ++this.pos;
+                if (this.state != SpecctraFileScanner.YYINITIAL)
+                {
+                    this.state = SpecctraFileScanner.YYINITIAL;
+                }
+                return curr_char == '(' ? Keyword.OPEN_BRACKET : Keyword.CLOSED_BRACKET;
+            }
+            if ((curr_char == '"' || curr_char == '\'') && this.state != SpecctraFileScanner.IGNORE_QUOTE)
+            {
+                return read_quoted_string((byte) curr_char);
+            }
+            Object result;
+            switch (this.state)
+            {
+                case SpecctraFileScanner.YYINITIAL:
+                    result = read_initial_token(curr_char);
+                    break;
+                case SpecctraFileScanner.NAME:
+                    result = read_name(curr_char, LETTER | DIGIT | SPEC | MINUS | PLUS, IDENTIFIER_PART, false);
+                    break;
+                case SpecctraFileScanner.LAYER_NAME:
+                    result = read_name(curr_char, LETTER | DIGIT | SPEC | MINUS | PLUS, IDENTIFIER_PART, true);
+                    break;
+                case SpecctraFileScanner.COMPONENT_NAME:
+                    result = read_name(curr_char, LETTER | DIGIT | SPEC | PLUS, LETTER | DIGIT | SPEC | PLUS | QUOTE, false);
+                    break;
+                case SpecctraFileScanner.IGNORE_QUOTE:
+                    result = read_name(curr_char, IDENTIFIER_PART, IDENTIFIER_PART, false);
+                    break;
+                default:
+                    throw illegal_character(curr_char);
+            }
+            if (result != null)
+            {
+                return result;
+            }
+            // a comment was skipped
+        }
+        return null;
+    }
+
+    /**
+     * Reads the next token in the state YYINITIAL.
+     * Like the generated scanner, the longest matching token is taken,
+     * and from tokens of equal length the keywords before identifiers before numbers before comments.
+     * Returns null, if a comment was skipped.
+     */
+    private Object read_initial_token(int p_first_char)
+    {
+        if (p_first_char == '+' || p_first_char == '-' || (p_first_char >= '0' && p_first_char <= '9'))
+        {
+            return read_number();
+        }
+        if (!has_class(p_first_char, LETTER | SPEC))
+        {
+            throw illegal_character(p_first_char);
+        }
+        int identifier_end = run_end(this.pos, IDENTIFIER_PART);
+        int comment_end = -1;
+        if (p_first_char == '#' || p_first_char == '/')
+        {
+            comment_end = comment_end(this.pos);
+        }
+        if (comment_end > identifier_end)
+        {
+            this.pos = comment_end;
+            return null;
+        }
+        KeywordEntry keyword = find_keyword(this.pos, identifier_end);
+        if (keyword != null)
+        {
+            this.pos = identifier_end;
+            this.state = keyword.next_state;
+            return keyword.keyword;
+        }
+        return next_string(identifier_end - this.pos);
+    }
+
+    /**
+     * Reads an identifier starting with a character in p_start_classes and continuing with characters
+     * in p_part_classes and switches back to the state YYINITIAL.
+     * If p_layer_keywords, the keywords pcb and signal are recognized.
+     */
+    private Object read_name(int p_first_char, int p_start_classes, int p_part_classes, boolean p_layer_keywords)
+    {
+        if (!has_class(p_first_char, p_start_classes))
+        {
+            throw illegal_character(p_first_char);
+        }
+        int name_end = run_end(this.pos + this.last_char_length, p_part_classes);
+        this.state = SpecctraFileScanner.YYINITIAL;
+        if (p_layer_keywords)
+        {
+            KeywordEntry keyword = find_keyword(this.pos, name_end);
+            if (keyword != null && (keyword.keyword == Keyword.PCB_SCOPE || keyword.keyword == Keyword.SIGNAL))
+            {
+                this.pos = name_end;
+                return keyword.keyword;
+            }
+        }
+        return next_string(name_end - this.pos);
+    }
+
+    /**
+     * Reads the string after the quote character at the current position.
+     * Returns null, if the string is not terminated before the end of the file.
+     */
+    private Object read_quoted_string(byte p_quote_char)
+    {
+        int end = this.buffer.limit();
+        int string_end = this.pos + 1;
+        while (string_end < end && this.buffer.get(string_end) != p_quote_char)
+        {
+            ++string_end;
+        }
+        if (string_end >= end)
+        {
+            this.pos = end;
+            return null;
+        }
+        ++this.pos;
+        String result = next_string(string_end - this.pos);
+        ++this.pos;
+        this.state = SpecctraFileScanner.YYINITIAL;
+        return result;
+    }
+
+    /**
+     * Reads an integer or floating point number.
+     * As in the generated scanner, integers with leading zeros are read as floating point numbers.
+     */
+    private Object read_number()
+    {
+        int end = this.buffer.limit();
+        int start = this.pos;
+        int curr_pos = this.pos;
+        boolean negative = false;
+        int curr_byte = this.buffer.get(curr_pos);
+        if (curr_byte == '+' || curr_byte == '-')
+        {
+            negative = curr_byte == '-';
+            ++curr_pos;
+        }
+        int digits_start = curr_pos;
+        int digits_end = digit_run_end(digits_start);
+        if (digits_end == digits_start)
+        {
+            throw illegal_character(this.buffer.get(this.pos));
+        }
+        int integer_end = this.buffer.get(digits_start) == '0' ? digits_start + 1 : digits_end;
+        int mantissa_end = digits_end;
+        int fraction_start = -1;
+        if (digits_end + 1 < end && this.buffer.get(digits_end) == '.')
+        {
+            int fraction_end = digit_run_end(digits_end + 1);
+            if (fraction_end > digits_end + 1)
+            {
+                fraction_start = digits_end + 1;
+                mantissa_end = fraction_end;
+            }
+        }
+        int number_end = mantissa_end;
+        int exponent = 0;
+        boolean exponent_ok = true;
+        if (mantissa_end < end && (this.buffer.get(mantissa_end) | 0x20) == 'e')
+        {
+            int exponent_pos = mantissa_end + 1;
+            boolean negative_exponent = false;
+            if (exponent_pos < end && (this.buffer.get(exponent_pos) == '+' || this.buffer.get(exponent_pos) == '-'))
+            {
+                negative_exponent = this.buffer.get(exponent_pos) == '-';
+                ++exponent_pos;
+            }
+            int exponent_end = digit_run_end(exponent_pos);
+            if (exponent_end > exponent_pos)
+            {
+                if (this.buffer.get(exponent_pos) == '0')
+                {
+                    exponent_end = exponent_pos + 1;
+                }
+                if (exponent_end - exponent_pos > 9)
+                {
+                    exponent_ok = false;
+                }
+                else
+                {
+                    exponent = (int) parse_digits(exponent_pos, exponent_end);
+                    if (negative_exponent)
+                    {
+                        exponent = -exponent;
+                    }
+                }
+                number_end = exponent_end;
+            }
+        }
+        if (number_end == integer_end)
+        {
+            // an integer literal
+            this.pos = integer_end;
+            if (integer_end - digits_start <= 9)
+            {
+                int value = (int) parse_digits(digits_start, integer_end);
+                return Integer.valueOf(negative ? -value : value);
+            }
+            return Integer.valueOf(ascii_string(start, integer_end));
+        }
+        // a floating point literal
+        this.pos = number_end;
+        int significant_digits = 0;
+        long mantissa = 0;
+        int decimal_exponent = exponent;
+        for (int i = digits_start; i < mantissa_end; ++i)
+        {
+            int curr_digit = this.buffer.get(i);
+            if (curr_digit == '.')
+            {
+                continue;
+            }
+            if (mantissa != 0 || curr_digit != '0')
+            {
+                ++significant_digits;
+            }
+            mantissa = 10 * mantissa + (curr_digit - '0');
+            if (fraction_start >= 0 && i >= fraction_start)
+            {
+                --decimal_exponent;
+            }
+            if (significant_digits > MAX_EXACT_DIGITS)
+            {
+                break;
+            }
+        }
+        if (exponent_ok && significant_digits <= MAX_EXACT_DIGITS && Math.abs(decimal_exponent) < POWERS_OF_TEN.length)
+        {
+            // mantissa and power of ten are exact doubles, so that the result is correctly rounded
+            double value = (double) mantissa;
+            if (decimal_exponent >= 0)
+            {
+                value *= POWERS_OF_TEN[decimal_exponent];
+            }
+            else
+            {
+                value /= POWERS_OF_TEN[-decimal_exponent];
+            }
+            return Double.valueOf(negative ? -value : value);
+        }
+        return Double.valueOf(ascii_string(start, number_end));
+    }
+
+    /**
+     * Returns the end of the comment starting at p_start, or -1, if there is no comment at p_start.
+     */
+    private int comment_end(int p_start)
+    {
+        int end = this.buffer.limit();
+        if (this.buffer.get(p_start) == '#')
+        {
+            // end of line comment including the line terminator
+            for (int i = p_start + 1; i < end; ++i)
+            {
+                byte curr_byte = this.buffer.get(i);
+                if (curr_byte == '\n')
+                {
+                    return i + 1;
+                }
+                if (curr_byte == '\r')
+                {
+                    return (i + 1 < end && this.buffer.get(i + 1) == '\n') ? i + 2 : i + 1;
+                }
+            }
+            return -1;
+        }
+        if (p_start + 2 >= end || this.buffer.get(p_start + 1) != '*')
+        {
+            return -1;
+        }
+        if (this.buffer.get(p_start + 2) == '*')
+        {
+            // comment of the form "/*" "*"+ "/"
+            int i = p_start + 2;
+            while (i < end && this.buffer.get(i) == '*')
+            {
+                ++i;
+            }
+            return (i < end && this.buffer.get(i) == '/') ? i + 1 : -1;
+        }
+        // traditional comment, the character after "/*" does not belong to the terminating "*/"
+        this.char_at(p_start + 2);
+        for (int i = p_start + 2 + this.last_char_length; i + 1 < end; ++i)
+        {
+            if (this.buffer.get(i) == '*' && this.buffer.get(i + 1) == '/')
+            {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the keyword equal to the bytes from p_start to p_end ignoring case, or null, if there is none.
+     */
+    private KeywordEntry find_keyword(int p_start, int p_end)
+    {
+        int length = p_end - p_start;
+        if (length > MAX_KEYWORD_LENGTH)
+        {
+            return null;
+        }
+        int hash = 0;
+        for (int i = p_start; i < p_end; ++i)
+        {
+            hash = 31 * hash + to_lower_case(this.buffer.get(i));
+        }
+        for (KeywordEntry curr_entry = KEYWORD_TABLE[hash & (KEYWORD_TABLE.length - 1)]; curr_entry != null; curr_entry = curr_entry.next)
+        {
+            if (curr_entry.hash == hash && curr_entry.name.length == length && equals_ignore_case(curr_entry.name, p_start))
+            {
+                return curr_entry;
+            }
+        }
+        return null;
+    }
+
+    private boolean equals_ignore_case(byte[] p_lower_case_name, int p_start)
+    {
+        for (int i = 0; i < p_lower_case_name.length; ++i)
+        {
+            if (to_lower_case(this.buffer.get(p_start + i)) != p_lower_case_name[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the string of the next p_length bytes and advances the current position.
+     * Short strings are taken from a cache, so that for example repeated layer and padstack names share one instance.
+     */
+    private String next_string(int p_length)
+    {
+        if (this.string_bytes.length < p_length)
+        {
+            this.string_bytes = new byte[Math.max(p_length, 2 * this.string_bytes.length)];
+        }
+        int hash = 0;
+        for (int i = 0; i < p_length; ++i)
+        {
+            byte curr_byte = this.buffer.get(this.pos + i);
+            this.string_bytes[i] = curr_byte;
+            hash = 31 * hash + curr_byte;
+        }
+        this.pos += p_length;
+        if (p_length > MAX_CACHED_STRING_LENGTH)
+        {
+            return new String(this.string_bytes, 0, p_length, StandardCharsets.UTF_8);
+        }
+        int index = (hash ^ (hash >>> 16)) & (STRING_CACHE_SIZE - 1);
+        byte[] cached_bytes = this.cached_string_bytes[index];
+        if (cached_bytes != null && cached_bytes.length == p_length && equals(cached_bytes, this.string_bytes))
+        {
+            return this.cached_strings[index];
+        }
+        String result = new String(this.string_bytes, 0, p_length, StandardCharsets.UTF_8);
+        this.cached_string_bytes[index] = java.util.Arrays.copyOf(this.string_bytes, p_length);
+        this.cached_strings[index] = result;
+        return result;
+    }
+
+    private static boolean equals(byte[] p_cached_bytes, byte[] p_bytes)
+    {
+        for (int i = 0; i < p_cached_bytes.length; ++i)
+        {
+            if (p_cached_bytes[i] != p_bytes[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String ascii_string(int p_start, int p_end)
+    {
+        char[] chars = new char[p_end - p_start];
+        for (int i = 0; i < chars.length; ++i)
+        {
+            chars[i] = (char) this.buffer.get(p_start + i);
+        }
+        return new String(chars);
+    }
+
+    private long parse_digits(int p_start, int p_end)
+    {
+        long result = 0;
+        for (int i = p_start; i < p_end; ++i)
+        {
+            result = 10 * result + (this.buffer.get(i) - '0');
+        }
+        return result;
+    }
+
+    private int digit_run_end(int p_start)
+    {
+        int end = this.buffer.limit();
+        int result = p_start;
+        while (result < end && this.buffer.get(result) >= '0' && this.buffer.get(result) <= '9')
+        {
+            ++result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the end of the sequence of characters in p_classes starting at p_start.
+     */
+    private int run_end(int p_start, int p_classes)
+    {
+        int end = this.buffer.limit();
+        int result = p_start;
+        while (result < end)
+        {
+            int curr_byte = this.buffer.get(result);
+            if (curr_byte >= 0)
+            {
+                // fast path for ASCII characters
+                if ((ASCII_CLASSES[curr_byte] & p_classes) == 0)
+                {
+                    break;
+                }
+                ++result;
+            }
+            else
+            {
+                if (!has_class(this.char_at(result), p_classes))
+                {
+                    break;
+                }
+                result += this.last_char_length;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the UTF-8 character at p_pos and stores its length in bytes in last_char_length.
+     * Returns -1 for malformed input, which is not a legal character outside strings.
+     */
+    private int char_at(int p_pos)
+    {
+        int first_byte = this.buffer.get(p_pos) & 0xff;
+        this.last_char_length = 1;
+        if (first_byte < 0x80)
+        {
+            return first_byte;
+        }
+        int end = this.buffer.limit();
+        if (first_byte >= 0xc2 && first_byte <= 0xdf && p_pos + 1 < end)
+        {
+            int second_byte = this.buffer.get(p_pos + 1) & 0xff;
+            if ((second_byte & 0xc0) == 0x80)
+            {
+                this.last_char_length = 2;
+                return ((first_byte & 0x1f) << 6) | (second_byte & 0x3f);
+            }
+        }
+        else if (first_byte >= 0xe0 && first_byte <= 0xef && p_pos + 2 < end)
+        {
+            int second_byte = this.buffer.get(p_pos + 1) & 0xff;
+            int third_byte = this.buffer.get(p_pos + 2) & 0xff;
+            if ((second_byte & 0xc0) == 0x80 && (third_byte & 0xc0) == 0x80)
+            {
+                int result = ((first_byte & 0x0f) << 12) | ((second_byte & 0x3f) << 6) | (third_byte & 0x3f);
+                if (result >= 0x800 && (result < 0xd800 || result > 0xdfff))
+                {
+                    this.last_char_length = 3;
+                    return result;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean has_class(int p_char, int p_classes)
+    {
+        if (p_char < 0)
+        {
+            return false;
+        }
+        if (p_char < 0x80)
+        {
+            return (ASCII_CLASSES[p_char] & p_classes) != 0;
+        }
+        return (p_classes & SPEC) != 0 && is_ansi_special_character(p_char);
+    }
+
+    /**
+     * The special characters of the ANSI character set (Windows-1252) above the ASCII range.
+     */
+    private static boolean is_ansi_special_character(int p_char)
+    {
+        if (p_char >= 0xa1 && p_char <= 0xff)
+        {
+            return true;
+        }
+        switch (p_char)
+        {
+            case 0x152: case 0x153: case 0x160: case 0x161: case 0x178: case 0x17d: case 0x17e:
+            case 0x191: case 0x192: case 0x2c6: case 0x2dc: case 0x2013: case 0x2014: case 0x2018:
+            case 0x2019: case 0x201a: case 0x201c: case 0x201d: case 0x201e: case 0x2020: case 0x2021:
+            case 0x2022: case 0x2026: case 0x2030: case 0x2039: case 0x203a: case 0x20ac: case 0x2122:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean is_white_space(int p_char)
+    {
+        return p_char == ' ' || p_char == '\n' || p_char == '\r' || p_char == '\t' || p_char == '\f';
+    }
+
+    private static int to_lower_case(int p_byte)
+    {
+        return (p_byte >= 'A' && p_byte <= 'Z') ? p_byte + ('a' - 'A') : p_byte;
+    }
+
+    private Error illegal_character(int p_char)
+    {
+        String char_string = p_char < 0 ? "\ufffd" : String.valueOf((char) p_char);
+        return new Error("Illegal character '" + char_string + "' was found at position " + this.pos);
+    }
+
+    private static void add_keyword(String p_name, Keyword p_keyword, int p_next_state)
+    {
+        KeywordEntry new_entry = new KeywordEntry(p_name.getBytes(StandardCharsets.US_ASCII), p_keyword, p_next_state);
+        int index = new_entry.hash & (KEYWORD_TABLE.length - 1);
+        new_entry.next = KEYWORD_TABLE[index];
+        KEYWORD_TABLE[index] = new_entry;
+    }
+
+    /**
+     * Returns the length of the longest keyword in KEYWORD_TABLE.
+     */
+    private static int max_keyword_length()
+    {
+        int result = 0;
+        for (KeywordEntry curr_entry : KEYWORD_TABLE)
+        {
+            for (; curr_entry != null; curr_entry = curr_entry.next)
+            {
+                result = Math.max(result, curr_entry.name.length);
+            }
+        }
+        return result;
+    }
+
+    private static class KeywordEntry
+    {
+        KeywordEntry(byte[] p_name, Keyword p_keyword, int p_next_state)
+        {
+            name = p_name;
+            keyword = p_keyword;
+            next_state = p_next_state;
+            int name_hash = 0;
+            for (byte curr_byte : p_name)
+            {
+                name_hash = 31 * name_hash + curr_byte;
+            }
+            hash = name_hash;
+        }
+
+        final byte[] name;
+        final Keyword keyword;
+        final int next_state;
+        final int hash;
+        KeywordEntry next = null;
+    }
+
+    private final ByteBuffer buffer;
+    private int pos = 0;
+    private int state = SpecctraFileScanner.YYINITIAL;
+    private int last_char_length = 1;
+
+    private byte[] string_bytes = new byte[256];
+    private final byte[][] cached_string_bytes = new byte[STRING_CACHE_SIZE][];
+    private final String[] cached_strings = new String[STRING_CACHE_SIZE];
+
+    private static final int STRING_CACHE_SIZE = 4096;
+    private static final int MAX_CACHED_STRING_LENGTH = 64;
+
+    /** Decimal numbers with at most this number of digits have an exact double mantissa. */
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN =
+    {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** Character classes of the ASCII characters. */
+    private static final int LETTER = 1;
+    private static final int DIGIT = 2;
+    private static final int SPEC = 4;
+    private static final int MINUS = 8;
+    private static final int PLUS = 16;
+    private static final int QUOTE = 32;
+    private static final int IDENTIFIER_PART = LETTER | DIGIT | SPEC | MINUS | PLUS | QUOTE;
+    private static final byte[] ASCII_CLASSES = new byte[128];
+
+    private static final KeywordEntry[] KEYWORD_TABLE = new KeywordEntry[256];
+
+    static
+    {
+        for (int i = 'a'; i <= 'z'; ++i)
+        {
+            ASCII_CLASSES[i] = LETTER;
+            ASCII_CLASSES[i - 'a' + 'A'] = LETTER;
+        }
+        for (int i = '0'; i <= '9'; ++i)
+        {
+            ASCII_CLASSES[i] = DIGIT;
+        }
+        for (char curr_char : "_./\\:#$&><,;=@[]~*?!%^\u001f".toCharArray())
+        {
+            ASCII_CLASSES[curr_char] = SPEC;
+        }
+        ASCII_CLASSES['-'] = MINUS;
+        ASCII_CLASSES['+'] = PLUS;
+        ASCII_CLASSES['"'] = QUOTE;
+        ASCII_CLASSES['\''] = QUOTE;
+
+        add_keyword("absolute", Keyword.ABSOLUTE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("active", Keyword.ACTIVE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("against_preferred_direction_trace_costs", Keyword.AGAINST_PREFERRED_DIRECTION_TRACE_COSTS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("against_prefered_direction_trace_costs", Keyword.AGAINST_PREFERRED_DIRECTION_TRACE_COSTS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("attach", Keyword.ATTACH, SpecctraFileScanner.YYINITIAL);
+        add_keyword("autoroute", Keyword.AUTOROUTE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("autoroute_settings", Keyword.AUTOROUTE_SETTINGS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("back", Keyword.BACK, SpecctraFileScanner.YYINITIAL);
+        add_keyword("boundary", Keyword.BOUNDARY, SpecctraFileScanner.YYINITIAL);
+        add_keyword("circ", Keyword.CIRCLE, SpecctraFileScanner.LAYER_NAME);
+        add_keyword("circle", Keyword.CIRCLE, SpecctraFileScanner.LAYER_NAME);
+        add_keyword("circuit", Keyword.CIRCUIT, SpecctraFileScanner.YYINITIAL);
+        add_keyword("class", Keyword.CLASS, SpecctraFileScanner.NAME);
+        add_keyword("class_class", Keyword.CLASS_CLASS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("classes", Keyword.CLASSES, SpecctraFileScanner.YYINITIAL);
+        add_keyword("clear", Keyword.CLEARANCE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("clearance", Keyword.CLEARANCE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("clearance_class", Keyword.CLEARANCE_CLASS, SpecctraFileScanner.NAME);
+        add_keyword("comp", Keyword.COMPONENT_SCOPE, SpecctraFileScanner.NAME);
+        add_keyword("component", Keyword.COMPONENT_SCOPE, SpecctraFileScanner.NAME);
+        add_keyword("constant", Keyword.CONSTANT, SpecctraFileScanner.YYINITIAL);
+        add_keyword("control", Keyword.CONTROL, SpecctraFileScanner.YYINITIAL);
+        add_keyword("fanout", Keyword.FANOUT, SpecctraFileScanner.YYINITIAL);
+        add_keyword("fix", Keyword.FIX, SpecctraFileScanner.YYINITIAL);
+        add_keyword("fortyfive_degree", Keyword.FORTYFIVE_DEGREE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("flip_style", Keyword.FLIP_STYLE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("fromto", Keyword.FROMTO, SpecctraFileScanner.YYINITIAL);
+        add_keyword("front", Keyword.FRONT, SpecctraFileScanner.YYINITIAL);
+        add_keyword("generated_by_freeroute", Keyword.GENERATED_BY_FREEROUTE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("horizontal", Keyword.HORIZONTAL, SpecctraFileScanner.YYINITIAL);
+        add_keyword("image", Keyword.IMAGE, SpecctraFileScanner.NAME);
+        add_keyword("host_cad", Keyword.HOST_CAD, SpecctraFileScanner.NAME);
+        add_keyword("host_version", Keyword.HOST_VERSION, SpecctraFileScanner.NAME);
+        add_keyword("keepout", Keyword.KEEPOUT, SpecctraFileScanner.NAME);
+        add_keyword("layer", Keyword.LAYER, SpecctraFileScanner.NAME);
+        add_keyword("layer_rule", Keyword.LAYER_RULE, SpecctraFileScanner.NAME);
+        add_keyword("length", Keyword.LENGTH, SpecctraFileScanner.YYINITIAL);
+        add_keyword("library", Keyword.LIBRARY_SCOPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("lock_type", Keyword.LOCK_TYPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("logical_part", Keyword.LOGICAL_PART, SpecctraFileScanner.NAME);
+        add_keyword("logical_part_mapping", Keyword.LOGICAL_PART_MAPPING, SpecctraFileScanner.NAME);
+        add_keyword("net", Keyword.NET, SpecctraFileScanner.NAME);
+        add_keyword("network", Keyword.NETWORK_SCOPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("network_out", Keyword.NETWORK_OUT, SpecctraFileScanner.YYINITIAL);
+        add_keyword("ninety_degree", Keyword.NINETY_DEGREE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("none", Keyword.NONE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("normal", Keyword.NORMAL, SpecctraFileScanner.YYINITIAL);
+        add_keyword("off", Keyword.OFF, SpecctraFileScanner.YYINITIAL);
+        add_keyword("on", Keyword.ON, SpecctraFileScanner.YYINITIAL);
+        add_keyword("order", Keyword.ORDER, SpecctraFileScanner.YYINITIAL);
+        add_keyword("outline", Keyword.OUTLINE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("padstack", Keyword.PADSTACK, SpecctraFileScanner.NAME);
+        add_keyword("parser", Keyword.PARSER_SCOPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("part_library", Keyword.PART_LIBRARY_SCOPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("path", Keyword.POLYGON_PATH, SpecctraFileScanner.LAYER_NAME);
+        add_keyword("pcb", Keyword.PCB_SCOPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("pin", Keyword.PIN, SpecctraFileScanner.YYINITIAL);
+        add_keyword("pins", Keyword.PINS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("place", Keyword.PLACE, SpecctraFileScanner.NAME);
+        add_keyword("place_control", Keyword.PLACE_CONTROL, SpecctraFileScanner.YYINITIAL);
+        add_keyword("place_keepout", Keyword.PLACE_KEEPOUT, SpecctraFileScanner.NAME);
+        add_keyword("placement", Keyword.PLACEMENT_SCOPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("plane", Keyword.PLANE_SCOPE, SpecctraFileScanner.NAME);
+        add_keyword("plane_via_costs", Keyword.PLANE_VIA_COSTS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("poly", Keyword.POLYGON, SpecctraFileScanner.LAYER_NAME);
+        add_keyword("polygon", Keyword.POLYGON, SpecctraFileScanner.LAYER_NAME);
+        add_keyword("polyline_path", Keyword.POLYLINE_PATH, SpecctraFileScanner.LAYER_NAME);
+        add_keyword("position", Keyword.POSITION, SpecctraFileScanner.YYINITIAL);
+        add_keyword("postroute", Keyword.POSTROUTE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("power", Keyword.POWER, SpecctraFileScanner.YYINITIAL);
+        add_keyword("preferred_direction", Keyword.PREFERRED_DIRECTION, SpecctraFileScanner.YYINITIAL);
+        add_keyword("prefered_direction", Keyword.PREFERRED_DIRECTION, SpecctraFileScanner.YYINITIAL);
+        add_keyword("preferred_direction_trace_costs", Keyword.PREFERRED_DIRECTION_TRACE_COSTS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("prefered_direction_trace_costs", Keyword.PREFERRED_DIRECTION_TRACE_COSTS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("pull_tight", Keyword.PULL_TIGHT, SpecctraFileScanner.YYINITIAL);
+        add_keyword("rect", Keyword.RECTANGLE, SpecctraFileScanner.LAYER_NAME);
+        add_keyword("rectangle", Keyword.RECTANGLE, SpecctraFileScanner.LAYER_NAME);
+        add_keyword("resolution", Keyword.RESOLUTION_SCOPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("rotate", Keyword.ROTATE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("rotate_first", Keyword.ROTATE_FIRST, SpecctraFileScanner.YYINITIAL);
+        add_keyword("routes", Keyword.ROUTES, SpecctraFileScanner.YYINITIAL);
+        add_keyword("rule", Keyword.RULE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("rules", Keyword.RULES, SpecctraFileScanner.YYINITIAL);
+        add_keyword("session", Keyword.SESSION, SpecctraFileScanner.YYINITIAL);
+        add_keyword("shape", Keyword.SHAPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("shove_fixed", Keyword.SHOVE_FIXED, SpecctraFileScanner.YYINITIAL);
+        add_keyword("side", Keyword.SIDE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("signal", Keyword.SIGNAL, SpecctraFileScanner.YYINITIAL);
+        add_keyword("snap_angle", Keyword.SNAP_ANGLE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("spare", Keyword.SPARE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("start_pass_no", Keyword.START_PASS_NO, SpecctraFileScanner.YYINITIAL);
+        add_keyword("start_ripup_costs", Keyword.START_RIPUP_COSTS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("string_quote", Keyword.STRING_QUOTE, SpecctraFileScanner.IGNORE_QUOTE);
+        add_keyword("structure", Keyword.STRUCTURE_SCOPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("type", Keyword.TYPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("use_layer", Keyword.USE_LAYER, SpecctraFileScanner.NAME);
+        add_keyword("use_net", Keyword.USE_NET, SpecctraFileScanner.NAME);
+        add_keyword("use_via", Keyword.USE_VIA, SpecctraFileScanner.NAME);
+        add_keyword("vertical", Keyword.VERTICAL, SpecctraFileScanner.YYINITIAL);
+        add_keyword("via", Keyword.VIA, SpecctraFileScanner.NAME);
+        add_keyword("vias", Keyword.VIAS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("via_at_smd", Keyword.VIA_AT_SMD, SpecctraFileScanner.YYINITIAL);
+        add_keyword("via_costs", Keyword.VIA_COSTS, SpecctraFileScanner.YYINITIAL);
+        add_keyword("via_keepout", Keyword.VIA_KEEPOUT, SpecctraFileScanner.NAME);
+        add_keyword("via_rule", Keyword.VIA_RULE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("width", Keyword.WIDTH, SpecctraFileScanner.YYINITIAL);
+        add_keyword("window", Keyword.WINDOW, SpecctraFileScanner.YYINITIAL);
+        add_keyword("wire", Keyword.WIRE, SpecctraFileScanner.NAME);
+        add_keyword("wire_keepout", Keyword.KEEPOUT, SpecctraFileScanner.YYINITIAL);
+        add_keyword("wiring", Keyword.WIRING_SCOPE, SpecctraFileScanner.YYINITIAL);
+        add_keyword("write_resolution", Keyword.WRITE_RESOLUTION, SpecctraFileScanner.YYINITIAL);
+    }
+
+    /** Calculated after the keywords are added by the static initializer above. */
+    private static final int MAX_KEYWORD_LENGTH = max_keyword_length();
+}
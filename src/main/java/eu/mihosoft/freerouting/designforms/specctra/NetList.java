@@ -97,6 +97,34 @@ public class NetList
         return result;
     }
     
+    /**
+     * Returns for each pin of the nets in this net list the nets containing the pin.
+     * Faster than calling get_nets for every pin of a large board.
+     */
+    public Map<Net.Pin, Collection<Net>> get_pin_nets()
+    {
+        Map<Net.Pin, Collection<Net>> result = new TreeMap<Net.Pin, Collection<Net>>();
+        for (Net curr_net : nets.values())
+        {
+            Set<Net.Pin> net_pins = curr_net.get_pins();
+            if (net_pins == null)
+            {
+                continue;
+            }
+            for (Net.Pin curr_pin : net_pins)
+            {
+                Collection<Net> pin_nets = result.get(curr_pin);
+                if (pin_nets == null)
+                {
+                    pin_nets = new java.util.LinkedList<Net>();
+                    result.put(curr_pin, pin_nets);
+                }
+                pin_nets.add(curr_net);
+            }
+        }
+        return result;
+    }
+    
     /** The entries of this map are of type Net, the keys are the net_ids. */
     private final Map<Net.Id, Net> nets = new TreeMap<Net.Id, Net>();
     
@@ -26,10 +26,18 @@ import eu.mihosoft.freerouting.geometry.planar.IntPoint;
 import eu.mihosoft.freerouting.geometry.planar.Point;
 import eu.mihosoft.freerouting.geometry.planar.Vector;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import eu.mihosoft.freerouting.datastructures.IndentFileWriter;
 import eu.mihosoft.freerouting.datastructures.IdentifierType;
@@ -1207,8 +1215,16 @@ public class Network extends ScopeKeyword
         return result;
     }
 
+    /**
+     * Inserts the components of the placement list.
+     * The nets and clearance classes of the component pins are calculated in parallel,
+     * while the components are inserted into the board sequentially in the order of the placement list,
+     * so that the resulting board does not depend on the number of threads.
+     */
     private static void insert_compoments(ReadScopeParameter p_par)
     {
+        final List<ComponentPlacement.ComponentLocation> locations = new ArrayList<ComponentPlacement.ComponentLocation>();
+        final List<String> lib_names = new ArrayList<String>();
         Iterator<ComponentPlacement> it = p_par.placement_list.iterator();
         while (it.hasNext())
         {
@@ -1216,11 +1232,172 @@ public class Network extends ScopeKeyword
             Iterator<ComponentPlacement.ComponentLocation> it2 = next_lib_component.locations.iterator();
             while (it2.hasNext())
             {
-                ComponentPlacement.ComponentLocation next_component = it2.next();
-                insert_component(next_component, next_lib_component.lib_name, p_par);
+                locations.add(it2.next());
+                lib_names.add(next_lib_component.lib_name);
+            }
+
+        }
+        final Map<Net.Pin, int[]> pin_net_numbers = get_pin_net_numbers(p_par);
+        final RoutingBoard routing_board = p_par.board_handling.get_routing_board();
+        List<PinProperties[]> pin_properties = new ArrayList<PinProperties[]>(locations.size());
+        int thread_count = Math.min(Runtime.getRuntime().availableProcessors(), locations.size() / MIN_COMPONENTS_PER_THREAD);
+        if (thread_count > 1)
+        {
+            List<Callable<PinProperties[]>> tasks = new ArrayList<Callable<PinProperties[]>>(locations.size());
+            for (int i = 0; i < locations.size(); ++i)
+            {
+                final int index = i;
+                tasks.add(new Callable<PinProperties[]>()
+                {
+                    public PinProperties[] call()
+                    {
+                        return calculate_pin_properties(locations.get(index), lib_names.get(index), pin_net_numbers, routing_board);
+                    }
+                });
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(thread_count);
+            try
+            {
+                for (Future<PinProperties[]> curr_future : executor.invokeAll(tasks))
+                {
+                    pin_properties.add(curr_future.get());
+                }
+            }
+            catch (InterruptedException | ExecutionException e)
+            {
+                FRLogger.error("Network.insert_components: parallel calculation of the pin properties failed", e);
+                pin_properties.clear();
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+        }
+        for (int i = pin_properties.size(); i < locations.size(); ++i)
+        {
+            pin_properties.add(calculate_pin_properties(locations.get(i), lib_names.get(i), pin_net_numbers, routing_board));
+        }
+        for (int i = 0; i < locations.size(); ++i)
+        {
+            insert_component(locations.get(i), lib_names.get(i), pin_properties.get(i), p_par);
+        }
+    }
+
+    /**
+     * Returns for each pin in the netlist the numbers of the board nets containing the pin.
+     */
+    private static Map<Net.Pin, int[]> get_pin_net_numbers(ReadScopeParameter p_par)
+    {
+        eu.mihosoft.freerouting.rules.Nets board_nets = p_par.board_handling.get_routing_board().rules.nets;
+        Map<Net, Integer> board_net_numbers = new java.util.HashMap<Net, Integer>();
+        Map<Net.Pin, int[]> result = new java.util.TreeMap<Net.Pin, int[]>();
+        for (Map.Entry<Net.Pin, Collection<Net>> curr_entry : p_par.netlist.get_pin_nets().entrySet())
+        {
+            Collection<Integer> net_numbers = new LinkedList<Integer>();
+            for (Net curr_pin_net : curr_entry.getValue())
+            {
+                Integer curr_net_no = board_net_numbers.get(curr_pin_net);
+                if (curr_net_no == null)
+                {
+                    eu.mihosoft.freerouting.rules.Net curr_board_net = board_nets.get(curr_pin_net.id.name, curr_pin_net.id.subnet_number);
+                    if (curr_board_net == null)
+                    {
+                        FRLogger.warn("Network.insert_component: board net not found");
+                        curr_net_no = -1;
+                    }
+                    else
+                    {
+                        curr_net_no = curr_board_net.net_number;
+                    }
+                    board_net_numbers.put(curr_pin_net, curr_net_no);
+                }
+                if (curr_net_no > 0)
+                {
+                    net_numbers.add(curr_net_no);
+                }
+            }
+            int[] net_no_arr = new int[net_numbers.size()];
+            int net_index = 0;
+            for (Integer curr_net_no : net_numbers)
+            {
+                net_no_arr[net_index] = curr_net_no;
+                ++net_index;
             }
+            result.put(curr_entry.getKey(), net_no_arr);
+        }
+        return result;
+    }
 
+    /**
+     * Calculates the nets and the clearance classes of the pins of the component at p_location.
+     * Returns null, if the component is not placed or its package was not found.
+     * An entry of the result is null, if the padstack of the pin was not found.
+     * Only reads from the board, so that it can be called in parallel for different components.
+     */
+    private static PinProperties[] calculate_pin_properties(ComponentPlacement.ComponentLocation p_location, String p_lib_key,
+            Map<Net.Pin, int[]> p_pin_net_numbers, RoutingBoard p_board)
+    {
+        if (p_location.coor == null)
+        {
+            return null;
+        }
+        eu.mihosoft.freerouting.library.Package curr_package = p_board.library.packages.get(p_lib_key, p_location.is_front);
+        if (curr_package == null)
+        {
+            return null;
+        }
+        PinProperties[] result = new PinProperties[curr_package.pin_count()];
+        for (int i = 0; i < curr_package.pin_count(); ++i)
+        {
+            eu.mihosoft.freerouting.library.Package.Pin curr_pin = curr_package.get_pin(i);
+            eu.mihosoft.freerouting.library.Padstack curr_padstack = p_board.library.padstacks.get(curr_pin.padstack_no);
+            if (curr_padstack == null)
+            {
+                continue;
+            }
+            int[] net_no_arr = p_pin_net_numbers.get(new Net.Pin(p_location.name, curr_pin.name));
+            if (net_no_arr == null)
+            {
+                net_no_arr = new int[0];
+            }
+            eu.mihosoft.freerouting.rules.NetClass net_class;
+            eu.mihosoft.freerouting.rules.Net board_net;
+            if (net_no_arr.length > 0)
+            {
+                board_net = p_board.rules.nets.get(net_no_arr[0]);
+            }
+            else
+            {
+                board_net = null;
+            }
+            if (board_net != null)
+            {
+                net_class = board_net.get_class();
+            }
+            else
+            {
+                net_class = p_board.rules.get_default_net_class();
+            }
+            int clearance_class = -1;
+            ComponentPlacement.ItemClearanceInfo pin_info = p_location.pin_infos.get(curr_pin.name);
+            if (pin_info != null)
+            {
+                clearance_class = p_board.rules.clearance_matrix.get_no(pin_info.clearance_class);
+            }
+            if (clearance_class < 0)
+            {
+                if (curr_padstack.from_layer() == curr_padstack.to_layer())
+                {
+                    clearance_class = net_class.default_item_clearance_classes.get(eu.mihosoft.freerouting.rules.DefaultItemClearanceClasses.ItemClass.SMD);
+                }
+                else
+                {
+                    clearance_class = net_class.default_item_clearance_classes.get(eu.mihosoft.freerouting.rules.DefaultItemClearanceClasses.ItemClass.PIN);
+                }
+            }
+            result[i] = new PinProperties(net_no_arr, clearance_class);
         }
+        return result;
     }
 
     /**
@@ -1319,9 +1496,10 @@ public class Network extends ScopeKeyword
 
     /**
      * Inserts all board components belonging to the input library component.
+     * p_pin_properties are the nets and clearance classes of the pins calculated by calculate_pin_properties.
      */
     private static void insert_component(ComponentPlacement.ComponentLocation p_location, String p_lib_key,
-            ReadScopeParameter p_par)
+            PinProperties[] p_pin_properties, ReadScopeParameter p_par)
     {
         eu.mihosoft.freerouting.board.RoutingBoard routing_board = p_par.board_handling.get_routing_board();
         eu.mihosoft.freerouting.library.Package curr_front_package = routing_board.library.packages.get(p_lib_key, true);
@@ -1364,69 +1542,14 @@ public class Network extends ScopeKeyword
         for (int i = 0; i < curr_package.pin_count(); ++i)
         {
             eu.mihosoft.freerouting.library.Package.Pin curr_pin = curr_package.get_pin(i);
-            eu.mihosoft.freerouting.library.Padstack curr_padstack = routing_board.library.padstacks.get(curr_pin.padstack_no);
-            if (curr_padstack == null)
+            PinProperties curr_pin_properties = p_pin_properties == null ? null : p_pin_properties[i];
+            if (curr_pin_properties == null)
             {
                 FRLogger.warn("Network.insert_component: pin padstack not found");
                 return;
             }
-            Collection<Net> pin_nets = p_par.netlist.get_nets(p_location.name, curr_pin.name);
-            Collection<Integer> net_numbers = new LinkedList<Integer>();
-            for (Net curr_pin_net : pin_nets)
-            {
-                eu.mihosoft.freerouting.rules.Net curr_board_net = routing_board.rules.nets.get(curr_pin_net.id.name, curr_pin_net.id.subnet_number);
-                if (curr_board_net == null)
-                {
-                    FRLogger.warn("Network.insert_component: board net not found");
-                }
-                else
-                {
-                    net_numbers.add(curr_board_net.net_number);
-                }
-            }
-            int[] net_no_arr = new int[net_numbers.size()];
-            int net_index = 0;
-            for (Integer curr_net_no : net_numbers)
-            {
-                net_no_arr[net_index] = curr_net_no;
-                ++net_index;
-            }
-            eu.mihosoft.freerouting.rules.NetClass net_class;
-            eu.mihosoft.freerouting.rules.Net board_net;
-            if (net_no_arr.length > 0)
-            {
-                board_net = routing_board.rules.nets.get(net_no_arr[0]);
-            }
-            else
-            {
-                board_net = null;
-            }
-            if (board_net != null)
-            {
-                net_class = board_net.get_class();
-            }
-            else
-            {
-                net_class = routing_board.rules.get_default_net_class();
-            }
-            int clearance_class = -1;
-            ComponentPlacement.ItemClearanceInfo pin_info = p_location.pin_infos.get(curr_pin.name);
-            if (pin_info != null)
-            {
-                clearance_class = routing_board.rules.clearance_matrix.get_no(pin_info.clearance_class);
-            }
-            if (clearance_class < 0)
-            {
-                if (curr_padstack.from_layer() == curr_padstack.to_layer())
-                {
-                    clearance_class = net_class.default_item_clearance_classes.get(eu.mihosoft.freerouting.rules.DefaultItemClearanceClasses.ItemClass.SMD);
-                }
-                else
-                {
-                    clearance_class = net_class.default_item_clearance_classes.get(eu.mihosoft.freerouting.rules.DefaultItemClearanceClasses.ItemClass.PIN);
-                }
-            }
-            routing_board.insert_pin(new_component.no, i, net_no_arr, clearance_class, fixed_state);
+            routing_board.insert_pin(new_component.no, i, curr_pin_properties.net_no_arr,
+                    curr_pin_properties.clearance_class, fixed_state);
         }
 
         // insert the keepouts belonging to the package (k = 1 for via keepouts)
@@ -1532,4 +1655,22 @@ public class Network extends ScopeKeyword
                     rotation_in_degree, new_component.no, fixed_state);
         }
     }
+
+    /**
+     * The nets and the clearance class of a pin to insert.
+     */
+    private static class PinProperties
+    {
+        PinProperties(int[] p_net_no_arr, int p_clearance_class)
+        {
+            net_no_arr = p_net_no_arr;
+            clearance_class = p_clearance_class;
+        }
+
+        final int[] net_no_arr;
+        final int clearance_class;
+    }
+
+    /** Below this number of components per thread the pin properties are calculated sequentially. */
+    private static final int MIN_COMPONENTS_PER_THREAD = 64;
 }
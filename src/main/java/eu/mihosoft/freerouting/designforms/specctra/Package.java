@@ -27,7 +27,6 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 
-import eu.mihosoft.freerouting.board.Item;
 import eu.mihosoft.freerouting.logger.FRLogger;
 
 /**
@@ -417,7 +416,6 @@ public class Package
     public static void write_placement_scope(WriteScopeParameter p_par, eu.mihosoft.freerouting.library.Package p_package)
     throws java.io.IOException
     {
-        Collection<Item> board_items =  p_par.board.get_items();
         boolean component_found = false;
         for (int i = 1; i <= p_par.board.components.count(); ++i)
         {
@@ -425,17 +423,7 @@ public class Package
             if (curr_component.get_package() == p_package)
             {
                 // check, if not all items of the component are deleted
-                boolean undeleted_item_found = false;
-                Iterator<Item> it = board_items.iterator();
-                while (it.hasNext())
-                {
-                    Item curr_item = it.next();
-                    if (curr_item.get_component_no() == curr_component.no)
-                    {
-                        undeleted_item_found = true;
-                        break;
-                    }
-                }
+                boolean undeleted_item_found = p_par.board.component_item_count(curr_component.no) > 0;
                 if (undeleted_item_found || !curr_component.is_placed())
                 {
                     if (!component_found)
@@ -38,7 +38,7 @@ import eu.mihosoft.freerouting.logger.FRLogger;
 public class RulesFile
 {
     
-    public static void write(eu.mihosoft.freerouting.interactive.BoardHandling p_board_handling, java.io.OutputStream p_output_stream, String p_design_name)
+    public static void write(eu.mihosoft.freerouting.interactive.BoardHandlingImpl p_board_handling, java.io.OutputStream p_output_stream, String p_design_name)
     {
         IndentFileWriter output_file = new IndentFileWriter(p_output_stream);
         BasicBoard routing_board = p_board_handling.get_routing_board();
@@ -65,7 +65,7 @@ public class RulesFile
     }
     
     public static boolean read(java.io.InputStream p_input_stream, String p_design_name, 
-            eu.mihosoft.freerouting.interactive.BoardHandling p_board_handling)
+            eu.mihosoft.freerouting.interactive.BoardHandlingImpl p_board_handling)
     {
         BasicBoard routing_board = p_board_handling.get_routing_board();
         Scanner scanner =  new SpecctraFileScanner(p_input_stream);
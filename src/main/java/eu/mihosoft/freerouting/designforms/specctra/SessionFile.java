@@ -23,8 +23,10 @@
 
 package eu.mihosoft.freerouting.designforms.specctra;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import eu.mihosoft.freerouting.geometry.planar.FloatPoint;
 import eu.mihosoft.freerouting.geometry.planar.Point;
@@ -86,6 +88,52 @@ public class SessionFile
         }
         return true;
     }
+
+    /**
+     * Creates a Specctra session file p_file from the board, which is gzip compressed, if the file name ends with ".gz".
+     * The session is written to a temporary file in the same directory through a file channel,
+     * which replaces p_file only after it is complete, so that readers of p_file never see a partially written session.
+     */
+    public static boolean write(BasicBoard p_board, java.io.File p_file, String p_design_name)
+    {
+        java.nio.file.Path target_path = p_file.toPath().toAbsolutePath();
+        java.nio.file.Path temp_path = target_path.resolveSibling(target_path.getFileName() + ".tmp");
+        boolean write_ok;
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(temp_path,
+                java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.WRITE,
+                java.nio.file.StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            java.io.OutputStream output_stream =
+                    new java.io.BufferedOutputStream(java.nio.channels.Channels.newOutputStream(channel), OUTPUT_BUFFER_SIZE);
+            if (p_file.getName().toLowerCase().endsWith(".gz"))
+            {
+                output_stream = new java.util.zip.GZIPOutputStream(output_stream, OUTPUT_BUFFER_SIZE);
+            }
+            write_ok = write(p_board, output_stream, p_design_name);
+        }
+        catch (java.io.IOException e)
+        {
+            FRLogger.error("unable to create session file", e);
+            write_ok = false;
+        }
+        try
+        {
+            if (write_ok)
+            {
+                java.nio.file.Files.move(temp_path, target_path, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+            else
+            {
+                java.nio.file.Files.deleteIfExists(temp_path);
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            FRLogger.error("unable to replace session file", e);
+            write_ok = false;
+        }
+        return write_ok;
+    }
     
     private static void write_session_scope(BasicBoard p_board, IdentifierType p_identifier_type,
             IndentFileWriter p_file, String p_session_name, String p_design_name) throws java.io.IOException
@@ -112,9 +160,26 @@ public class SessionFile
         p_file.write("placement");
         Resolution.write_scope(p_file, p_board.communication);
         
+        // sort the components by their package in a single pass
+        List<List<eu.mihosoft.freerouting.board.Component>> package_components = new ArrayList<List<eu.mihosoft.freerouting.board.Component>>();
+        for (int i = 0; i <= p_board.library.packages.count(); ++i)
+        {
+            package_components.add(new ArrayList<eu.mihosoft.freerouting.board.Component>());
+        }
+        for (int i = 1; i <= p_board.components.count(); ++i)
+        {
+            eu.mihosoft.freerouting.board.Component curr_component = p_board.components.get(i);
+            eu.mihosoft.freerouting.library.Package curr_package = curr_component.get_package();
+            if (curr_package.no > 0 && curr_package.no < package_components.size()
+                    && p_board.library.packages.get(curr_package.no) == curr_package)
+            {
+                package_components.get(curr_package.no).add(curr_component);
+            }
+        }
         for (int i = 1; i <= p_board.library.packages.count(); ++i)
         {
-            write_components(p_board, p_identifier_type, p_coordinate_transform, p_file, p_board.library.packages.get(i));
+            write_components(p_board, p_identifier_type, p_coordinate_transform, p_file, p_board.library.packages.get(i),
+                    package_components.get(i));
         }
         p_file.end_scope();
     }
@@ -125,37 +190,40 @@ public class SessionFile
     public static void write_components(BasicBoard p_board, IdentifierType p_identifier_type, CoordinateTransform p_coordinate_transform,
             IndentFileWriter p_file, eu.mihosoft.freerouting.library.Package p_package) throws java.io.IOException
     {
-        Collection<eu.mihosoft.freerouting.board.Item> board_items =  p_board.get_items();
-        boolean component_found = false;
+        List<eu.mihosoft.freerouting.board.Component> package_components = new ArrayList<eu.mihosoft.freerouting.board.Component>();
         for (int i = 1; i <= p_board.components.count(); ++i)
         {
             eu.mihosoft.freerouting.board.Component curr_component =  p_board.components.get(i);
             if (curr_component.get_package() == p_package)
             {
-                // check, if not all items of the component are deleted
-                boolean undeleted_item_found = false;
-                Iterator<eu.mihosoft.freerouting.board.Item> it = board_items.iterator();
-                while (it.hasNext())
-                {
-                    eu.mihosoft.freerouting.board.Item curr_item = it.next();
-                    if (curr_item.get_component_no() == curr_component.no)
-                    {
-                        undeleted_item_found = true;
-                        break;
-                    }
-                }
-                if (undeleted_item_found)
+                package_components.add(curr_component);
+            }
+        }
+        write_components(p_board, p_identifier_type, p_coordinate_transform, p_file, p_package, package_components);
+    }
+
+    /**
+     * Writes the components in p_package_components, which have the package p_package, to the session file.
+     */
+    private static void write_components(BasicBoard p_board, IdentifierType p_identifier_type, CoordinateTransform p_coordinate_transform,
+            IndentFileWriter p_file, eu.mihosoft.freerouting.library.Package p_package,
+            Collection<eu.mihosoft.freerouting.board.Component> p_package_components) throws java.io.IOException
+    {
+        boolean component_found = false;
+        for (eu.mihosoft.freerouting.board.Component curr_component : p_package_components)
+        {
+            // check, if not all items of the component are deleted
+            if (p_board.component_item_count(curr_component.no) > 0)
+            {
+                if (!component_found)
                 {
-                    if (!component_found)
-                    {
-                        // write the scope header
-                        p_file.start_scope();
-                        p_file.write("component ");
-                        p_identifier_type.write(p_package.name, p_file);
-                        component_found = true;
-                    }
-                    write_component(p_board, p_identifier_type, p_coordinate_transform, p_file, curr_component);
+                    // write the scope header
+                    p_file.start_scope();
+                    p_file.write("component ");
+                    p_identifier_type.write(p_package.name, p_file);
+                    component_found = true;
                 }
+                write_component(p_board, p_identifier_type, p_coordinate_transform, p_file, curr_component);
             }
         }
         if (component_found)
@@ -395,31 +463,23 @@ public class SessionFile
         Point[] corner_arr = p_wire.polyline().corner_arr();
         int [] coors = new int [2 * corner_arr.length];
         int corner_index = 0;
-        int [] prev_coors = null;
         for (int i = 0; i < corner_arr.length; ++i)
         {
             double[] curr_float_coors = p_coordinate_transform.board_to_dsn(corner_arr[i].to_float());
-            int [] curr_coors = new int[2];
-            curr_coors[0] = (int) Math.round(curr_float_coors[0]);
-            curr_coors[1] = (int) Math.round(curr_float_coors[1]);
-            if (i == 0  || ( curr_coors[0] != prev_coors[0] || curr_coors[1] != prev_coors[1]))
+            int curr_x = (int) Math.round(curr_float_coors[0]);
+            int curr_y = (int) Math.round(curr_float_coors[1]);
+            // skip corners, which are equal to the previous corner after rounding
+            if (i == 0  || curr_x != coors[corner_index - 2] || curr_y != coors[corner_index - 1])
             {
-                coors[corner_index] = curr_coors[0];
+                coors[corner_index] = curr_x;
                 ++corner_index;
-                coors[corner_index] = curr_coors[1];
+                coors[corner_index] = curr_y;
                 ++corner_index;
-                prev_coors = curr_coors;
-                
             }
         }
         if (corner_index < coors.length)
         {
-            int [] adjusted_coors = new int[corner_index];
-            for (int i = 0; i < adjusted_coors.length; ++i)
-            {
-                adjusted_coors[i] = coors[i];
-            }
-            coors = adjusted_coors;
+            coors = java.util.Arrays.copyOf(coors, corner_index);
         }
         write_path(board_layer.name, wire_width, coors, p_identifier_type, p_file);
         write_fixed_state(p_file, p_wire.get_fixed_state());
@@ -523,4 +583,6 @@ public class SessionFile
         }
         p_file.end_scope();
     }
+
+    private static final int OUTPUT_BUFFER_SIZE = 65536;
 }
\ No newline at end of file
@@ -22,6 +22,7 @@
  */
 
 package eu.mihosoft.freerouting.geometry.planar;
+import eu.mihosoft.freerouting.datastructures.BigIntAux;
 import eu.mihosoft.freerouting.logger.FRLogger;
 
 import java.math.BigInteger;
@@ -153,9 +154,6 @@ public class BigIntDirection extends Direction implements java.io.Serializable
         // now this direction and p_other are located in the same
         // open horizontal half plane
         
-        BigInteger tmp_1 = y.multiply(p_other.x);
-        BigInteger tmp_2 = x.multiply(p_other.y);
-        BigInteger determinant = tmp_1.subtract(tmp_2);
-        return determinant.signum();
+        return BigIntAux.determinant_signum(y, p_other.y, x, p_other.x);
     }
 }
\ No newline at end of file
@@ -24,6 +24,7 @@
 package eu.mihosoft.freerouting.geometry.planar;
 
 import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
 
 import java.math.BigInteger;
 
@@ -169,12 +170,36 @@ public class IntPoint extends Point implements java.io.Serializable
         // consisting of IntPoints.
         // The general implementation is still missing.
         IntVector v = (IntVector)p_line.b.difference_by(p_line.a);
-        BigInteger vxvx = BigInteger.valueOf((long)v.x * v.x);
-        BigInteger vyvy = BigInteger.valueOf((long)v.y * v.y);
-        BigInteger vxvy = BigInteger.valueOf((long) v.x * v.y);
+        long long_vxvx = (long)v.x * v.x;
+        long long_vyvy = (long)v.y * v.y;
+        long long_vxvy = (long) v.x * v.y;
+        long long_det = ((IntPoint)p_line.a).determinant((IntPoint)p_line.b);
+        FRMetrics.increment(FRMetrics.Counter.GEOMETRY_PREDICATES);
+        double term_bound_x = (double) long_vxvx * Math.abs((double) x) + Math.abs((double) long_vxvy) * Math.abs((double) y)
+                + Math.abs((double) long_det) * Math.abs((double) v.y);
+        double term_bound_y = Math.abs((double) long_vxvy) * Math.abs((double) x) + (double) long_vyvy * Math.abs((double) y)
+                + Math.abs((double) long_det) * Math.abs((double) v.x);
+        if (term_bound_x < Limits.CRIT_LONG && term_bound_y < Limits.CRIT_LONG
+                && (double) long_vxvx + (double) long_vyvy < Limits.CRIT_LONG)
+        {
+            // The projection can be calculated without overflow in long arithmetic.
+            long long_denominator = long_vxvx + long_vyvy;
+            long long_proj_x = long_vxvx * x + long_vxvy * y + long_det * v.y;
+            long long_proj_y = long_vxvy * x + long_vyvy * y - long_det * v.x;
+            if (long_denominator != 0 && long_proj_x % long_denominator == 0
+                    && long_proj_y % long_denominator == 0)
+            {
+                return new IntPoint((int) (long_proj_x / long_denominator), (int) (long_proj_y / long_denominator));
+            }
+            return new RationalPoint(BigInteger.valueOf(long_proj_x), BigInteger.valueOf(long_proj_y),
+                    BigInteger.valueOf(long_denominator));
+        }
+        FRMetrics.increment(FRMetrics.Counter.GEOMETRY_EXACT_FALLBACKS);
+        BigInteger vxvx = BigInteger.valueOf(long_vxvx);
+        BigInteger vyvy = BigInteger.valueOf(long_vyvy);
+        BigInteger vxvy = BigInteger.valueOf(long_vxvy);
         BigInteger denominator = vxvx.add(vyvy);
-        BigInteger det =
-                BigInteger.valueOf(((IntPoint)p_line.a).determinant((IntPoint)p_line.b));
+        BigInteger det = BigInteger.valueOf(long_det);
         BigInteger point_x = BigInteger.valueOf(x);
         BigInteger point_y = BigInteger.valueOf(y);
         
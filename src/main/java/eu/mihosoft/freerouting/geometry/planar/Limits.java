@@ -46,6 +46,21 @@ public class Limits
 
     public static final BigInteger CRIT_INT_BIG = BigInteger.valueOf(CRIT_INT);
 
+    /**
+     * An upper bound (2 ^62) for the sum of the absolute values of the terms
+     * of an integer expression, so that the expression can be evaluated
+     * without overflow as long value.
+     */
+    public static final double CRIT_LONG = 4611686018427387904.0;
+
+    /**
+     * Relative error factor for evaluating the sign of an expression in double
+     * arithmetic. If the absolute value of the result is bigger than
+     * FILTER_ERROR times the sum of the absolute values of its terms, the sign
+     * is exact. Covers up to 8 rounding errors of 2 ^-53 each.
+     */
+    public static final double FILTER_ERROR = 1.0E-15;
+
     public static final double sqrt2 = Math.sqrt(2);
 
     private Limits() // disallow instantiation
@@ -23,6 +23,7 @@ import java.math.BigInteger;
 
 import eu.mihosoft.freerouting.datastructures.Signum;
 import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
 
 /**
  *
@@ -202,6 +203,45 @@ public class Line implements Comparable<Line>, java.io.Serializable
      */
     public Side side_of_intersection(Line p_1, Line p_2)
     {
+        // only implemented for IntPoint lines for performance reasons
+        IntVector delta_1 = (IntVector)p_1.b.difference_by(p_1.a);
+        IntVector delta_2 = (IntVector)p_2.b.difference_by(p_2.a);
+        long det = delta_1.determinant(delta_2);
+        if (det != 0)
+        {
+            // The intersection of p_1 and p_2 is the projective point (is_x, is_y, det).
+            // Evaluate the side in double arithmetic and use it, if it is certain
+            // after the rounding errors.
+            FRMetrics.increment(FRMetrics.Counter.GEOMETRY_PREDICATES);
+            IntVector delta_3 = (IntVector)this.b.difference_by(this.a);
+            IntPoint a_1 = (IntPoint)p_1.a;
+            IntPoint a_2 = (IntPoint)p_2.a;
+            IntPoint a_3 = (IntPoint)this.a;
+            double c_1 = (double) delta_1.y * a_1.x - (double) delta_1.x * a_1.y;
+            double c_1_abs = Math.abs((double) delta_1.y * a_1.x) + Math.abs((double) delta_1.x * a_1.y);
+            double c_2 = (double) delta_2.y * a_2.x - (double) delta_2.x * a_2.y;
+            double c_2_abs = Math.abs((double) delta_2.y * a_2.x) + Math.abs((double) delta_2.x * a_2.y);
+            double c_3 = (double) delta_3.y * a_3.x - (double) delta_3.x * a_3.y;
+            double c_3_abs = Math.abs((double) delta_3.y * a_3.x) + Math.abs((double) delta_3.x * a_3.y);
+            double is_x = delta_1.x * c_2 - c_1 * delta_2.x;
+            double is_x_abs = Math.abs((double) delta_1.x) * c_2_abs + c_1_abs * Math.abs((double) delta_2.x);
+            double is_y = delta_1.y * c_2 - c_1 * delta_2.y;
+            double is_y_abs = Math.abs((double) delta_1.y) * c_2_abs + c_1_abs * Math.abs((double) delta_2.y);
+            double side = delta_3.y * is_x - delta_3.x * is_y - c_3 * det;
+            double error_bound = Limits.FILTER_ERROR *
+                    (Math.abs((double) delta_3.y) * is_x_abs + Math.abs((double) delta_3.x) * is_y_abs
+                    + c_3_abs * Math.abs((double) det));
+            if (side > error_bound)
+            {
+                return det > 0 ? Side.ON_THE_LEFT : Side.ON_THE_RIGHT;
+            }
+            if (side < -error_bound)
+            {
+                return det > 0 ? Side.ON_THE_RIGHT : Side.ON_THE_LEFT;
+            }
+            FRMetrics.increment(FRMetrics.Counter.GEOMETRY_EXACT_FALLBACKS);
+            return this.side_of(p_1.intersection(p_2));
+        }
         
         FloatPoint intersection_approx = p_1.intersection_approx(p_2);
         Side result = this.side_of(intersection_approx, 1.0);
@@ -366,11 +406,23 @@ public class Line implements Comparable<Line>, java.io.Serializable
             }
         }
         
-        BigInteger det_1 =
-                BigInteger.valueOf(((IntPoint)a).determinant((IntPoint)b));
-        BigInteger det_2 =
-                BigInteger.valueOf(((IntPoint)p_other.a).determinant((IntPoint)p_other.b));
-        BigInteger det =  BigInteger.valueOf(delta_2.determinant(delta_1));
+        long long_det_1 = ((IntPoint)a).determinant((IntPoint)b);
+        long long_det_2 = ((IntPoint)p_other.a).determinant((IntPoint)p_other.b);
+        long long_det = delta_2.determinant(delta_1);
+        FRMetrics.increment(FRMetrics.Counter.GEOMETRY_PREDICATES);
+        double term_bound = Math.abs((double) long_det_1) * (Math.abs((double) delta_2.x) + Math.abs((double) delta_2.y))
+                + Math.abs((double) long_det_2) * (Math.abs((double) delta_1.x) + Math.abs((double) delta_1.y));
+        if (term_bound < Limits.CRIT_LONG)
+        {
+            // The coordinates of the intersection can be calculated without overflow in long arithmetic.
+            long long_is_x = long_det_1 * delta_2.x - long_det_2 * delta_1.x;
+            long long_is_y = long_det_1 * delta_2.y - long_det_2 * delta_1.y;
+            return intersection(long_is_x, long_is_y, long_det);
+        }
+        FRMetrics.increment(FRMetrics.Counter.GEOMETRY_EXACT_FALLBACKS);
+        BigInteger det_1 = BigInteger.valueOf(long_det_1);
+        BigInteger det_2 = BigInteger.valueOf(long_det_2);
+        BigInteger det =  BigInteger.valueOf(long_det);
         BigInteger tmp_1 = det_1.multiply(BigInteger.valueOf(delta_2.x));
         BigInteger tmp_2 = det_2.multiply(BigInteger.valueOf(delta_1.x));
         BigInteger is_x = tmp_1.subtract(tmp_2);
@@ -401,6 +453,37 @@ public class Line implements Comparable<Line>, java.io.Serializable
         return new RationalPoint(is_x, is_y, det);
     }
     
+    /**
+     * Creates the intersection point from its projective coordinates in long arithmetic
+     * in the same way as the BigInteger calculation in intersection(Line).
+     */
+    private static Point intersection(long p_is_x, long p_is_y, long p_det)
+    {
+        long is_x = p_is_x;
+        long is_y = p_is_y;
+        long det = p_det;
+        if (det != 0)
+        {
+            if (det < 0)
+            {
+                det = -det;
+                is_x = -is_x;
+                is_y = -is_y;
+            }
+            if (is_x % det == 0 && is_y % det == 0)
+            {
+                is_x /= det;
+                is_y /= det;
+                if (Math.abs(is_x) <= Limits.CRIT_INT && Math.abs(is_y) <= Limits.CRIT_INT)
+                {
+                    return new IntPoint((int) is_x, (int) is_y);
+                }
+                det = 1;
+            }
+        }
+        return new RationalPoint(BigInteger.valueOf(is_x), BigInteger.valueOf(is_y), BigInteger.valueOf(det));
+    }
+    
     /**
      * Returns an approximation of the intersection of the 2 lines by a
      * FloatPoint. If the lines are parallel the result coordinates will be
@@ -581,7 +581,7 @@ public class PolygonShape extends PolylineShape
             // not yet precalculated
         {
             // use a fixed seed to get reproducable result
-            random_generator.setSeed(seed);
+            random_generator.get().setSeed(seed);
             Collection<PolygonShape> convex_pieces = split_to_convex_recu();
             if(convex_pieces == null)
             {
@@ -606,7 +606,7 @@ public class PolygonShape extends PolylineShape
     private Collection<PolygonShape> split_to_convex_recu()
     {
         // start with a hashed corner and search the first concave corner
-        int start_corner_no =  random_generator.nextInt(corners.length);
+        int start_corner_no =  random_generator.get().nextInt(corners.length);
         Point curr_corner = corners[start_corner_no];
         Point prev_corner;
         if (start_corner_no != 0)
@@ -699,7 +699,8 @@ public class PolygonShape extends PolylineShape
     transient private IntOctagon precalculated_bounding_octagon = null;
     transient private TileShape[] precalculated_convex_pieces = null;
     static private int seed = 99;
-    static private java.util.Random random_generator = new java.util.Random(seed);
+    /** One generator per thread, so that the results stay reproducible, if several boards are routed in parallel. */
+    static private final ThreadLocal<java.util.Random> random_generator = ThreadLocal.withInitial(() -> new java.util.Random(seed));
     
     private class DivisionPoint
     {
@@ -134,6 +134,26 @@ public class Polyline implements java.io.Serializable
         }
         arr = lines;
     }
+
+    /**
+     * Creates a polyline from the lines of an already normalized polyline,
+     * for example when reading a stored board. The lines are used without changes.
+     */
+    public static Polyline get_instance_of_normalized(Line[] p_line_arr)
+    {
+        // the corners are calculated, when they are needed
+        return new Polyline(p_line_arr, null);
+    }
+
+    /**
+     * Creates a polyline from already normalized lines and the approximations of its corners,
+     * which may be null or contain null entries for corners not yet calculated.
+     */
+    private Polyline(Line[] p_normalized_line_arr, FloatPoint[] p_precalculated_float_corners)
+    {
+        arr = p_normalized_line_arr;
+        precalculated_float_corners = p_precalculated_float_corners;
+    }
     
     /**
      * Returns the number of lines minus 1
@@ -25,6 +25,7 @@ package eu.mihosoft.freerouting.geometry.planar;
 import java.math.BigInteger;
 
 import eu.mihosoft.freerouting.datastructures.BigIntAux;
+import eu.mihosoft.freerouting.logger.FRMetrics;
 
 /**
  *
@@ -231,6 +232,27 @@ public class RationalPoint extends Point implements java.io.Serializable
     
     public Side side_of(Line p_line)
     {
+        if (p_line.a instanceof IntPoint && p_line.b instanceof IntPoint)
+        {
+            // Evaluate the determinant in double arithmetic and use its sign,
+            // if it is certain after the rounding errors.
+            FRMetrics.increment(FRMetrics.Counter.GEOMETRY_PREDICATES);
+            IntPoint line_a = (IntPoint) p_line.a;
+            IntPoint line_b = (IntPoint) p_line.b;
+            double dx = (double) line_b.x - line_a.x;
+            double dy = (double) line_b.y - line_a.y;
+            double xd = x.doubleValue();
+            double yd = y.doubleValue();
+            double zd = z.doubleValue();
+            double determinant = (yd - line_a.y * zd) * dx - (xd - line_a.x * zd) * dy;
+            double error_bound = Limits.FILTER_ERROR * (Math.abs(dx) * (Math.abs(yd) + Math.abs(line_a.y * zd))
+                    + Math.abs(dy) * (Math.abs(xd) + Math.abs(line_a.x * zd)));
+            if (error_bound < Double.POSITIVE_INFINITY && Math.abs(determinant) > error_bound)
+            {
+                return Side.of(determinant);
+            }
+            FRMetrics.increment(FRMetrics.Counter.GEOMETRY_EXACT_FALLBACKS);
+        }
         return side_of(p_line.a, p_line.b);
     }
     
@@ -299,16 +321,12 @@ public class RationalPoint extends Point implements java.io.Serializable
     
     int compare_x(RationalPoint p_other)
     {
-        BigInteger tmp1 = this.x.multiply(p_other.z);
-        BigInteger tmp2 = p_other.x.multiply(this.z);
-        return tmp1.compareTo(tmp2);
+        return BigIntAux.determinant_signum(this.x, this.z, p_other.x, p_other.z);
     }
     
     int compare_y(RationalPoint p_other)
     {
-        BigInteger tmp1 = this.y.multiply(p_other.z);
-        BigInteger tmp2 = p_other.y.multiply(this.z);
-        return tmp1.compareTo(tmp2);
+        return BigIntAux.determinant_signum(this.y, this.z, p_other.y, p_other.z);
     }
     
     int compare_x(IntPoint p_other)
@@ -326,10 +326,7 @@ public class RationalVector extends Vector implements java.io.Serializable
     
     Side side_of(RationalVector p_other)
     {
-        BigInteger tmp_1 = y.multiply(p_other.x);
-        BigInteger tmp_2 = x.multiply(p_other.y);
-        BigInteger determinant = tmp_1.subtract(tmp_2);
-        int signum = determinant.signum();
+        int signum = BigIntAux.determinant_signum(y, p_other.y, x, p_other.x);
         return Side.of(signum);
     }
     
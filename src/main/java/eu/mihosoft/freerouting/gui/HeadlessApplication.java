@@ -0,0 +1,198 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/> 
+ *   for more details.
+ *
+ * HeadlessApplication.java
+ *
+ */
+package eu.mihosoft.freerouting.gui;
+
+import eu.mihosoft.freerouting.board.TestLevel;
+import eu.mihosoft.freerouting.interactive.AutorouteSettings;
+import eu.mihosoft.freerouting.interactive.BoardHandlingImpl;
+import eu.mihosoft.freerouting.interactive.Checkpoint;
+import eu.mihosoft.freerouting.interactive.HeadlessBatchAutorouter;
+import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
+
+import java.io.File;
+
+/**
+ * Main application for routing a design without graphical user interface.
+ * This class uses no Swing or AWT classes, so that it can be started on servers without display.
+ * MainApplication delegates to it, if the option '-headless' is given.
+ */
+public class HeadlessApplication
+{
+    /**
+     * Routes the design given by '-de' and exits with the number of unrouted connections.
+     * The option '-headless' is implied.
+     * @param args
+     */
+    public static void main(String[] args)
+    {
+        StartupOptions startupOptions = StartupOptions.parse(args);
+        System.exit(route(startupOptions));
+    }
+
+    /**
+     * Reads the design given by '-de', autoroutes it without graphical user interface
+     * and writes the result to the file given by '-do'.
+     * Returns the exit code of the application, which is the number of unrouted connections,
+     * or ERROR_EXIT_CODE, if the design could not be read or written.
+     */
+    static int route(StartupOptions p_startup_options)
+    {
+        FRMetrics.set_output_file(p_startup_options.metrics_filename);
+        if (p_startup_options.design_input_filename == null || p_startup_options.design_output_filename == null)
+        {
+            FRLogger.warn("Both '-de <design file>' and '-do <output file>' must be specified in headless mode.");
+            return ERROR_EXIT_CODE;
+        }
+        if (p_startup_options.multi_start_count > 1
+                && (p_startup_options.intermediate_session_filename != null || p_startup_options.checkpoint_filename != null))
+        {
+            FRLogger.warn("'-ms <number of starts>' can't be combined with '-is <session output file>' or '-cp <checkpoint file>'.");
+            return ERROR_EXIT_CODE;
+        }
+        java.io.File design_file = new File(p_startup_options.design_input_filename);
+        String design_name = design_file.getName().split("\\.")[0];
+        TestLevel test_level = p_startup_options.test_version_option ? TestLevel.CRITICAL_DEBUGGING_OUTPUT : TestLevel.RELEASE_VERSION;
+        java.io.File checkpoint_file = null;
+        if (p_startup_options.checkpoint_filename != null)
+        {
+            checkpoint_file = new File(p_startup_options.checkpoint_filename);
+        }
+        BoardHandlingImpl board_handling;
+        Checkpoint checkpoint = null;
+        if (p_startup_options.resume_option && checkpoint_file != null && checkpoint_file.exists())
+        {
+            FRLogger.info("Resuming from '" + checkpoint_file.getName() + "'...");
+            try
+            {
+                checkpoint = Checkpoint.read(checkpoint_file);
+            }
+            catch (java.io.IOException e)
+            {
+                FRLogger.error("Couldn't read checkpoint '" + checkpoint_file.getName() + "'.", e);
+                return ERROR_EXIT_CODE;
+            }
+            board_handling = checkpoint.create_board_handling(test_level);
+            if (board_handling == null)
+            {
+                return ERROR_EXIT_CODE;
+            }
+        }
+        else
+        {
+            board_handling = read_headless_design(p_startup_options, design_file, design_name, test_level);
+            if (board_handling == null)
+            {
+                return ERROR_EXIT_CODE;
+            }
+        }
+
+        AutorouteSettings autoroute_settings = board_handling.get_settings().autoroute_settings;
+        if (checkpoint == null)
+        {
+            // a resumed job keeps the pass limit of the checkpoint
+            autoroute_settings.set_stop_pass_no(autoroute_settings.get_start_pass_no() + p_startup_options.max_passes - 1);
+        }
+        autoroute_settings.set_thread_count(p_startup_options.thread_count);
+        autoroute_settings.set_multi_start_count(p_startup_options.multi_start_count);
+        autoroute_settings.set_job_time_limit(p_startup_options.job_time_limit);
+        autoroute_settings.set_connection_order(p_startup_options.connection_order);
+        autoroute_settings.set_localized_reroute(p_startup_options.localized_reroute_option);
+        autoroute_settings.set_negotiated_congestion(p_startup_options.negotiated_congestion_option);
+
+        HeadlessBatchAutorouter autorouter = new HeadlessBatchAutorouter(board_handling);
+        if (p_startup_options.intermediate_session_filename != null)
+        {
+            autorouter.set_intermediate_session_file(new File(p_startup_options.intermediate_session_filename), design_name);
+        }
+        if (checkpoint_file != null)
+        {
+            autorouter.set_checkpoint_file(checkpoint_file);
+        }
+        if (checkpoint != null)
+        {
+            autorouter.resume_from(checkpoint);
+        }
+        int incomplete_count = autorouter.autoroute();
+
+        String output_filename = p_startup_options.design_output_filename;
+        FRLogger.info("Saving '" + output_filename + "'...");
+        try (java.io.OutputStream output_stream = new java.io.FileOutputStream(output_filename))
+        {
+            if (!autorouter.write(output_filename, output_stream))
+            {
+                FRLogger.warn("Couldn't export board to '" + output_filename + "'.");
+                return ERROR_EXIT_CODE;
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            FRLogger.error("Couldn't export board to file", e);
+            return ERROR_EXIT_CODE;
+        }
+        return Math.min(incomplete_count, MAX_INCOMPLETE_EXIT_CODE);
+    }
+
+    /**
+     * Reads the design file p_design_file and the rules file belonging to it for routing without graphical user interface.
+     * Returns null, if the design could not be read.
+     */
+    private static BoardHandlingImpl read_headless_design(StartupOptions p_startup_options, File p_design_file,
+            String p_design_name, TestLevel p_test_level)
+    {
+        FRLogger.info("Opening '" + p_design_file.getName() + "'...");
+        BoardHandlingImpl board_handling;
+        try
+        {
+            board_handling = HeadlessBatchAutorouter.read_design(new java.io.FileInputStream(p_design_file), p_test_level);
+        }
+        catch (java.io.FileNotFoundException e)
+        {
+            FRLogger.error("File '" + p_design_file.getName() + "' was not found.", null);
+            return null;
+        }
+        if (board_handling == null)
+        {
+            FRLogger.warn("Couldn't read design file '" + p_design_file.getName() + "'.");
+            return null;
+        }
+        java.io.File rules_file;
+        if (p_startup_options.design_rules_filename != null)
+        {
+            rules_file = new File(p_startup_options.design_rules_filename);
+        }
+        else
+        {
+            rules_file = new File(p_design_file.getParentFile(), p_design_name + ".rules");
+        }
+        if (rules_file.exists() && board_handling.get_routing_board().communication.specctra_parser_info.dsn_file_generated_by_host)
+        {
+            HeadlessBatchAutorouter.read_rules_file(board_handling, rules_file, p_design_name);
+        }
+        return board_handling;
+    }
+
+    /** The exit code, if the design could not be read or written. */
+    private static final int ERROR_EXIT_CODE = 255;
+    /** Larger numbers of unrouted connections are reported with this exit code, which is below ERROR_EXIT_CODE. */
+    private static final int MAX_INCOMPLETE_EXIT_CODE = 254;
+}
@@ -28,6 +28,7 @@ import eu.mihosoft.freerouting.constants.Constants;
 import eu.mihosoft.freerouting.interactive.InteractiveActionThread;
 import eu.mihosoft.freerouting.interactive.ThreadActionListener;
 import eu.mihosoft.freerouting.logger.FRLogger;
+import eu.mihosoft.freerouting.logger.FRMetrics;
 
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
@@ -51,6 +52,15 @@ public class MainApplication extends javax.swing.JFrame
     {
         FRLogger.traceEntry("MainApplication.main()");
 
+        StartupOptions startupOptions = StartupOptions.parse(args);
+        if (startupOptions.isHeadless())
+        {
+            // no look and feel and no frames are created in headless mode
+            System.exit(HeadlessApplication.route(startupOptions));
+            return;
+        }
+        FRMetrics.set_output_file(startupOptions.metrics_filename);
+
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (ClassNotFoundException ex) {
@@ -66,7 +76,6 @@ public class MainApplication extends javax.swing.JFrame
         FRLogger.info("Freerouting application is started.");
 
         Thread.setDefaultUncaughtExceptionHandler(new DefaultExceptionHandler());
-        StartupOptions startupOptions = StartupOptions.parse(args);
 
         if (startupOptions.single_design_option)
         {
@@ -106,6 +115,11 @@ public class MainApplication extends javax.swing.JFrame
             }
 
             new_frame.board_panel.board_handling.settings.autoroute_settings.set_stop_pass_no(new_frame.board_panel.board_handling.settings.autoroute_settings.get_start_pass_no() + startupOptions.max_passes - 1);
+            new_frame.board_panel.board_handling.settings.autoroute_settings.set_thread_count(startupOptions.thread_count);
+            new_frame.board_panel.board_handling.settings.autoroute_settings.set_job_time_limit(startupOptions.job_time_limit);
+            new_frame.board_panel.board_handling.settings.autoroute_settings.set_connection_order(startupOptions.connection_order);
+            new_frame.board_panel.board_handling.settings.autoroute_settings.set_localized_reroute(startupOptions.localized_reroute_option);
+            new_frame.board_panel.board_handling.settings.autoroute_settings.set_negotiated_congestion(startupOptions.negotiated_congestion_option);
             if (startupOptions.max_passes < 99999)
             {
                 InteractiveActionThread thread = new_frame.board_panel.board_handling.start_batch_autorouter();
@@ -1,5 +1,6 @@
 package eu.mihosoft.freerouting.gui;
 
+import eu.mihosoft.freerouting.autoroute.ConnectionOrder;
 import eu.mihosoft.freerouting.logger.FRLogger;
 
 import java.util.Locale;
@@ -13,11 +14,22 @@ public class StartupOptions {
     boolean test_version_option = false;
     boolean session_file_option = false;
     boolean webstart_option = false;
+    boolean headless_option = false;
     String design_input_filename = null;
     String design_output_filename = null;
     String design_rules_filename = null;
     String design_input_directory_name = null;
+    String metrics_filename = null;
+    String intermediate_session_filename = null;
+    String checkpoint_filename = null;
+    boolean resume_option = false;
     int max_passes = 99999;
+    int thread_count = 1;
+    int multi_start_count = 1;
+    int job_time_limit = 0;
+    ConnectionOrder connection_order = ConnectionOrder.BOARD_ORDER;
+    boolean localized_reroute_option = false;
+    boolean negotiated_congestion_option = false;
     java.util.Locale current_locale = java.util.Locale.ENGLISH;
 
     private StartupOptions() {
@@ -55,10 +67,54 @@ public class StartupOptions {
                     if (p_args.length > i + 1 && !p_args[i + 1].startsWith("-")) {
                         design_rules_filename = p_args[i + 1];
                     }
+                } else if (p_args[i].startsWith("-metrics")) {
+                    // the file, to which the metrics of each autoroute pass are appended as JSON lines
+                    if (p_args.length > i + 1 && !p_args[i + 1].startsWith("-")) {
+                        metrics_filename = p_args[i + 1];
+                    }
                 } else if (p_args[i].startsWith("-mp")) {
                     if (p_args.length > i + 1 && !p_args[i + 1].startsWith("-")) {
                         max_passes = Integer.decode(p_args[i + 1]);
                     }
+                } else if (p_args[i].startsWith("-mt")) {
+                    // the number of threads of the batch autorouter
+                    if (p_args.length > i + 1 && !p_args[i + 1].startsWith("-")) {
+                        thread_count = Integer.decode(p_args[i + 1]);
+                    }
+                } else if (p_args[i].startsWith("-ms")) {
+                    // the number of differently configured autorouters, whose best result is kept
+                    if (p_args.length > i + 1 && !p_args[i + 1].startsWith("-")) {
+                        multi_start_count = Integer.decode(p_args[i + 1]);
+                    }
+                } else if (p_args[i].startsWith("-tl")) {
+                    // the time limit in seconds of the whole routing job
+                    if (p_args.length > i + 1 && !p_args[i + 1].startsWith("-")) {
+                        job_time_limit = Integer.decode(p_args[i + 1]);
+                    }
+                } else if (p_args[i].startsWith("-co")) {
+                    // the order, in which the connections of each autoroute pass are routed
+                    if (p_args.length > i + 1 && !p_args[i + 1].startsWith("-")) {
+                        connection_order = ConnectionOrder.valueOf(p_args[i + 1].toUpperCase(Locale.ENGLISH));
+                    }
+                } else if (p_args[i].startsWith("-is")) {
+                    // the session file, which is written after each autoroute pass
+                    if (p_args.length > i + 1 && !p_args[i + 1].startsWith("-")) {
+                        intermediate_session_filename = p_args[i + 1];
+                    }
+                } else if (p_args[i].startsWith("-cp")) {
+                    // the checkpoint file of the routing job
+                    if (p_args.length > i + 1 && !p_args[i + 1].startsWith("-")) {
+                        checkpoint_filename = p_args[i + 1];
+                    }
+                } else if (p_args[i].startsWith("-resume")) {
+                    // continue the routing job from the checkpoint file
+                    resume_option = true;
+                } else if (p_args[i].startsWith("-nc")) {
+                    // route with the history costs of the congested regions
+                    negotiated_congestion_option = true;
+                } else if (p_args[i].startsWith("-lr")) {
+                    // reroute only the congested regions of the previous pass
+                    localized_reroute_option = true;
                 } else if (p_args[i].startsWith("-l")) {
                     // the locale is provided
                     if (p_args.length > i + 1 && p_args[i + 1].startsWith("d")) {
@@ -68,6 +124,9 @@ public class StartupOptions {
                     session_file_option = true;
                 } else if (p_args[i].startsWith("-w")) {
                     webstart_option = true;
+                } else if (p_args[i].startsWith("-headless")) {
+                    // route the design without graphical user interface
+                    headless_option = true;
                 } else if (p_args[i].startsWith("-test")) {
                     test_version_option = true;
                 }
@@ -83,6 +142,10 @@ public class StartupOptions {
         return webstart_option;
     }
 
+    public boolean isHeadless() {
+        return headless_option;
+    }
+
     public boolean isTestVersion() {
         return test_version_option;
     }
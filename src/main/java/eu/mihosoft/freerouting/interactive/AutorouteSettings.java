@@ -25,6 +25,7 @@ package eu.mihosoft.freerouting.interactive;
 
 import eu.mihosoft.freerouting.board.RoutingBoard;
 import eu.mihosoft.freerouting.autoroute.AutorouteControl.ExpansionCostFactor;
+import eu.mihosoft.freerouting.autoroute.ConnectionOrder;
 import eu.mihosoft.freerouting.logger.FRLogger;
 
 /**
@@ -42,6 +43,13 @@ public class AutorouteSettings implements java.io.Serializable
         preferred_direction_is_horizontal_arr = new boolean[p_layer_count];
         preferred_direction_trace_cost_arr = new double[p_layer_count];
         against_preferred_direction_trace_cost_arr = new double[p_layer_count];
+        thread_count = 1;
+        retain_autoroute_database = false;
+        multi_start_count = 1;
+        job_time_limit = 0;
+        connection_order = ConnectionOrder.BOARD_ORDER;
+        localized_reroute = false;
+        negotiated_congestion = false;
     }
 
     /** Creates a new instance of AutorouteSettings */
@@ -115,6 +123,13 @@ public class AutorouteSettings implements java.io.Serializable
         set_stop_pass_no(p_settings.stop_pass_no);
         via_costs = p_settings.via_costs;
         plane_via_costs = p_settings.plane_via_costs;
+        thread_count = p_settings.thread_count;
+        retain_autoroute_database = p_settings.retain_autoroute_database;
+        multi_start_count = p_settings.multi_start_count;
+        job_time_limit = p_settings.job_time_limit;
+        connection_order = p_settings.connection_order;
+        localized_reroute = p_settings.localized_reroute;
+        negotiated_congestion = p_settings.negotiated_congestion;
         layer_active_arr = new boolean[p_settings.layer_active_arr.length];
         System.arraycopy(p_settings.layer_active_arr, 0, this.layer_active_arr, 0, layer_active_arr.length);
         preferred_direction_is_horizontal_arr = new boolean[p_settings.preferred_direction_is_horizontal_arr.length];
@@ -225,6 +240,114 @@ public class AutorouteSettings implements java.io.Serializable
         return plane_via_costs;
     }
 
+    /**
+     * Sets the number of threads used by the batch autorouter.
+     * If the value is bigger than 1, spatially independent connections are routed
+     * in parallel on copies of the board before the remaining connections are routed sequentially.
+     * The batch optimizer also optimizes separate strips of the board in parallel.
+     */
+    public void set_thread_count(int p_value)
+    {
+        thread_count = Math.max(p_value, 1);
+    }
+
+    public int get_thread_count()
+    {
+        return thread_count;
+    }
+
+    /**
+     * If p_value is true, the batch autorouter keeps the expansion rooms of the autoroute engine
+     * from one connection to the next instead of recalculating them.
+     * Rooms touching changed items or items of the next net to route are invalidated.
+     */
+    public void set_retain_autoroute_database(boolean p_value)
+    {
+        retain_autoroute_database = p_value;
+    }
+
+    public boolean get_retain_autoroute_database()
+    {
+        return retain_autoroute_database;
+    }
+
+    /**
+     * Sets the number of differently configured autorouters, which route copies of the board in parallel.
+     * The board with the fewest incomplete connections, then the fewest vias, then the shortest traces is kept.
+     */
+    public void set_multi_start_count(int p_value)
+    {
+        multi_start_count = Math.max(p_value, 1);
+    }
+
+    public int get_multi_start_count()
+    {
+        return multi_start_count;
+    }
+
+    /**
+     * Sets the time limit in seconds for the whole routing job, consisting of the autoroute passes
+     * and the route optimization. The job is stopped, when the time limit is exceeded.
+     * The value 0 means no time limit.
+     */
+    public void set_job_time_limit(int p_seconds)
+    {
+        job_time_limit = Math.max(p_seconds, 0);
+    }
+
+    public int get_job_time_limit()
+    {
+        return job_time_limit;
+    }
+
+    /**
+     * Sets the order, in which the batch autorouter routes the incomplete connections of each pass.
+     */
+    public void set_connection_order(ConnectionOrder p_value)
+    {
+        if (p_value == null)
+        {
+            FRLogger.warn("AutorouteSettings.set_connection_order: p_value is null");
+            return;
+        }
+        connection_order = p_value;
+    }
+
+    public ConnectionOrder get_connection_order()
+    {
+        return connection_order;
+    }
+
+    /**
+     * If p_value is true, the batch autorouter routes in the passes after the first pass only the incomplete connections
+     * in the regions, where connections were not found or items were ripped up in the previous pass,
+     * the most congested regions first. The whole board is scanned again, when these regions are completed.
+     */
+    public void set_localized_reroute(boolean p_value)
+    {
+        localized_reroute = p_value;
+    }
+
+    public boolean get_localized_reroute()
+    {
+        return localized_reroute;
+    }
+
+    /**
+     * If p_value is true, the batch autorouter accumulates history costs in the regions, where items were ripped up
+     * or connections were not found, over all passes. The maze search makes traces and ripups in these regions
+     * more expensive, so that the nets negotiate the congested regions instead of ripping each other up repeatedly.
+     */
+    public void set_negotiated_congestion(boolean p_value)
+    {
+        negotiated_congestion = p_value;
+    }
+
+    public boolean get_negotiated_congestion()
+    {
+        return negotiated_congestion;
+    }
+
     public void set_layer_active(int p_layer, boolean p_value)
     {
         if (p_layer < 0 || p_layer >= layer_active_arr.length)
@@ -352,7 +475,19 @@ public class AutorouteSettings implements java.io.Serializable
         }
         return result;
     }
-    
+
+    /** Reads an instance of this class from a file */
+    private void readObject(java.io.ObjectInputStream p_stream)
+            throws java.io.IOException, java.lang.ClassNotFoundException
+    {
+        p_stream.defaultReadObject();
+        if (this.connection_order == null)
+        {
+            // written before the connection order was added to the settings
+            this.connection_order = ConnectionOrder.BOARD_ORDER;
+        }
+    }
+
     private boolean with_fanout;
     private boolean with_autoroute;
     private boolean with_postroute;
@@ -362,6 +497,13 @@ public class AutorouteSettings implements java.io.Serializable
     private int start_ripup_costs;
     private int start_pass_no;
     private int stop_pass_no;
+    private int thread_count;
+    private boolean retain_autoroute_database;
+    private int multi_start_count;
+    private int job_time_limit;
+    private ConnectionOrder connection_order;
+    private boolean localized_reroute;
+    private boolean negotiated_congestion;
     private final boolean[] layer_active_arr;
     private final boolean[] preferred_direction_is_horizontal_arr;
     private final double[] preferred_direction_trace_cost_arr;
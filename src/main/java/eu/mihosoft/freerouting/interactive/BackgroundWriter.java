@@ -0,0 +1,92 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * BackgroundWriter.java
+ *
+ */
+package eu.mihosoft.freerouting.interactive;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks writing files one after the other in a background thread, so that the autorouter does not wait for them.
+ * A task submitted while the previous task is still running replaces the task waiting before,
+ * so that only the newest state is written.
+ */
+class BackgroundWriter
+{
+    BackgroundWriter(String p_thread_name)
+    {
+        this.executor = Executors.newSingleThreadExecutor(p_runnable ->
+        {
+            Thread result = new Thread(p_runnable, p_thread_name);
+            result.setDaemon(true);
+            return result;
+        });
+    }
+
+    void submit(Runnable p_task)
+    {
+        synchronized (this)
+        {
+            boolean task_waiting = this.pending_task != null;
+            this.pending_task = p_task;
+            if (task_waiting)
+            {
+                // the already scheduled run takes the newer task
+                return;
+            }
+        }
+        this.executor.execute(this::run_pending_task);
+    }
+
+    /**
+     * Waits until the last submitted task is completed.
+     */
+    void finish()
+    {
+        this.executor.shutdown();
+        try
+        {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run_pending_task()
+    {
+        Runnable task;
+        synchronized (this)
+        {
+            task = this.pending_task;
+            this.pending_task = null;
+        }
+        if (task != null)
+        {
+            task.run();
+        }
+    }
+
+    private final ExecutorService executor;
+    private Runnable pending_task = null;
+}
@@ -58,6 +58,8 @@ public class BatchAutorouterThread extends InteractiveActionThread
 
         FRLogger.traceEntry("BatchAutorouterThread.thread_action()");
 
+        this.job_time_limit.start(hdlg.get_settings().autoroute_settings.get_job_time_limit());
+
         try
         {
             java.util.ResourceBundle resources =
@@ -148,6 +150,14 @@ public class BatchAutorouterThread extends InteractiveActionThread
         }
     }
 
+    /**
+     * Returns true, if the user requested a stop or if the time limit of the routing job is exceeded.
+     */
+    public boolean is_stop_requested()
+    {
+        return super.is_stop_requested() || this.job_time_limit.is_exceeded();
+    }
+
     public void draw(java.awt.Graphics p_graphics)
     {
         FloatLine curr_air_line = batch_autorouter.get_air_line();
@@ -179,4 +189,5 @@ public class BatchAutorouterThread extends InteractiveActionThread
     }
     private final BatchAutorouter batch_autorouter;
     private final BatchOptRoute batch_opt_route;
+    private final JobTimeLimit job_time_limit = new JobTimeLimit();
 }
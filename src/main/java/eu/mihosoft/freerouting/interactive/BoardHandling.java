@@ -524,26 +524,6 @@ public class BoardHandling extends BoardHandlingImpl
         }
     }
 
-    /**
-     * Removes the incomplete connections.
-     */
-    public void remove_ratsnest()
-    {
-        ratsnest = null;
-    }
-
-    /**
-     * Returns the ratsnest with the information about the incomplete connections.
-     */
-    public RatsNest get_ratsnest()
-    {
-        if (ratsnest == null)
-        {
-            ratsnest = new RatsNest(this.board, this.locale);
-        }
-        return this.ratsnest;
-    }
-
     public void recalculate_length_violations()
     {
         if (this.ratsnest != null)
@@ -623,9 +603,19 @@ public class BoardHandling extends BoardHandlingImpl
         activityReplayFile.start_write(p_filename);
     }
 
+    /**
+     * Returns the text message fields displayed on the screen.
+     */
+    @Override
+    public ScreenMessages get_screen_messages()
+    {
+        return this.screen_messages;
+    }
+
     /**
      * Repaints the board panel on the screen.
      */
+    @Override
     public void repaint()
     {
         if (this.paint_immediately)
@@ -1011,12 +1001,22 @@ public class BoardHandling extends BoardHandlingImpl
     /**
      * Reads an existing board design from the input stream.
      * Returns false,  if the input stream does not contains a legal board design.
+     * The board may be stored in the binary board format or, in older design files,
+     * as serialized object.
      */
     public boolean read_design(java.io.ObjectInputStream p_design, TestLevel p_test_level)
     {
         try
         {
-            board = (RoutingBoard) p_design.readObject();
+            Object stored_board = p_design.readObject();
+            if (stored_board instanceof byte[])
+            {
+                board = (RoutingBoard) RoutingBoard.read_binary(new java.io.ByteArrayInputStream((byte[]) stored_board));
+            }
+            else
+            {
+                board = (RoutingBoard) stored_board;
+            }
             settings = (Settings) p_design.readObject();
             settings.set_logfile(this.activityReplayFile);
             coordinate_transform = (CoordinateTransform) p_design.readObject();
@@ -1127,7 +1127,10 @@ public class BoardHandling extends BoardHandlingImpl
         boolean result = true;
         try
         {
-            p_object_stream.writeObject(board);
+            // the board is stored in the binary board format, which is smaller and faster to read
+            java.io.ByteArrayOutputStream board_stream = new java.io.ByteArrayOutputStream();
+            board.write_binary(board_stream);
+            p_object_stream.writeObject(board_stream.toByteArray());
             p_object_stream.writeObject(settings);
             p_object_stream.writeObject(coordinate_transform);
             p_object_stream.writeObject(graphics_context);
@@ -1761,8 +1764,6 @@ public class BoardHandling extends BoardHandlingImpl
      * Used for running an interactive action in a separate thread.
      */
     private InteractiveActionThread interactive_action_thread = null;
-    /** To display all incomplete connections on the screen. */
-    private RatsNest ratsnest = null;
     /** To display all clearance violations between items on the screen. */
     private ClearanceViolations clearance_violations = null;
     /** The graphical panel used for displaying the board. */
@@ -27,10 +27,21 @@ public class BoardHandlingImpl implements IBoardHandling {
     public Settings settings = null;
     /** The board database used in this interactive handling. */
     protected RoutingBoard board = null;
+    /** The incomplete connections of the board. */
+    protected RatsNest ratsnest = null;
 
     public BoardHandlingImpl() {
     }
 
+    /**
+     * Creates a board handling for an existing board, for example for a copy of the board
+     * routed in a separate thread.
+     */
+    public BoardHandlingImpl(RoutingBoard p_board, Settings p_settings) {
+        this.board = p_board;
+        this.settings = p_settings;
+    }
+
     /**
      * Gets the routing board of this board handling.
      */
@@ -89,4 +100,40 @@ public class BoardHandlingImpl implements IBoardHandling {
     public Locale get_locale() {
         return java.util.Locale.ENGLISH;
     }
+
+    /**
+     * Returns the text message fields displayed on the screen,
+     * or null, if no graphical user interface is attached.
+     */
+    public ScreenMessages get_screen_messages()
+    {
+        return null;
+    }
+
+    /**
+     * Repaints the board on the screen. Does nothing in headless mode.
+     */
+    public void repaint()
+    {
+    }
+
+    /**
+     * Removes the incomplete connections.
+     */
+    public void remove_ratsnest()
+    {
+        ratsnest = null;
+    }
+
+    /**
+     * Returns the ratsnest with the information about the incomplete connections.
+     */
+    public RatsNest get_ratsnest()
+    {
+        if (ratsnest == null)
+        {
+            ratsnest = new RatsNest(this.board, this.get_locale());
+        }
+        return this.ratsnest;
+    }
 }
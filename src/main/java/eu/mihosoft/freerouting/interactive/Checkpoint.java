@@ -0,0 +1,203 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * Checkpoint.java
+ *
+ */
+package eu.mihosoft.freerouting.interactive;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import eu.mihosoft.freerouting.board.RoutingBoard;
+import eu.mihosoft.freerouting.board.TestLevel;
+
+/**
+ * The state of a batch routing job, from which the routing can be resumed after the program was restarted.
+ * It contains the board in the binary board format, the settings, the next autoroute or optimizer pass
+ * and the fingerprints of the already routed boards.
+ * The state is taken in the routing thread, while the file is written later, for example in a background thread.
+ */
+public class Checkpoint
+{
+    /**
+     * The phase of the routing job, in which the checkpoint was taken.
+     */
+    public enum Phase
+    {
+        AUTOROUTE, OPTIMIZE, FINISHED
+    }
+
+    /**
+     * Takes a checkpoint of the board and the settings of p_board_handling.
+     * Must be called in the routing thread between two passes.
+     */
+    static Checkpoint create(BoardHandlingImpl p_board_handling, Phase p_phase, int p_next_pass_no,
+            boolean p_use_increased_ripup_costs, Collection<Long> p_checked_board_hashes) throws java.io.IOException
+    {
+        java.io.ByteArrayOutputStream settings_stream = new java.io.ByteArrayOutputStream();
+        java.io.ObjectOutputStream object_stream = new java.io.ObjectOutputStream(settings_stream);
+        object_stream.writeObject(p_board_handling.get_settings());
+        object_stream.close();
+        return new Checkpoint(p_phase, p_next_pass_no, p_use_increased_ripup_costs, p_checked_board_hashes,
+                p_board_handling.get_routing_board().get_snapshot(), settings_stream.toByteArray());
+    }
+
+    private Checkpoint(Phase p_phase, int p_next_pass_no, boolean p_use_increased_ripup_costs,
+            Collection<Long> p_checked_board_hashes, byte[] p_board, byte[] p_settings)
+    {
+        this.phase = p_phase;
+        this.next_pass_no = p_next_pass_no;
+        this.use_increased_ripup_costs = p_use_increased_ripup_costs;
+        this.checked_board_hashes = new ArrayList<Long>(p_checked_board_hashes);
+        this.board = p_board;
+        this.settings = p_settings;
+    }
+
+    /**
+     * Reads a checkpoint written by write.
+     */
+    public static Checkpoint read(java.io.File p_file) throws java.io.IOException
+    {
+        try (java.io.DataInputStream in = new java.io.DataInputStream(
+                new java.io.BufferedInputStream(new java.io.FileInputStream(p_file), BUFFER_SIZE)))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new java.io.IOException("'" + p_file.getName() + "' is not a checkpoint of this version");
+            }
+            Phase phase = Phase.values()[in.readInt()];
+            int next_pass_no = in.readInt();
+            boolean use_increased_ripup_costs = in.readBoolean();
+            int hash_count = in.readInt();
+            Collection<Long> checked_board_hashes = new ArrayList<Long>(hash_count);
+            for (int i = 0; i < hash_count; ++i)
+            {
+                checked_board_hashes.add(in.readLong());
+            }
+            byte[] board = new byte[in.readInt()];
+            in.readFully(board);
+            byte[] settings = new byte[in.readInt()];
+            in.readFully(settings);
+            return new Checkpoint(phase, next_pass_no, use_increased_ripup_costs, checked_board_hashes, board, settings);
+        }
+    }
+
+    /**
+     * Writes this checkpoint durably to p_file. The checkpoint is written to a temporary file first,
+     * which replaces p_file after it is forced to the storage device, so that p_file always contains a complete checkpoint.
+     */
+    void write(java.io.File p_file) throws java.io.IOException
+    {
+        java.nio.file.Path target_path = p_file.toPath().toAbsolutePath();
+        java.nio.file.Path temp_path = target_path.resolveSibling(target_path.getFileName() + ".tmp");
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(temp_path,
+                java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.WRITE,
+                java.nio.file.StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            java.io.DataOutputStream out = new java.io.DataOutputStream(
+                    new java.io.BufferedOutputStream(java.nio.channels.Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.phase.ordinal());
+            out.writeInt(this.next_pass_no);
+            out.writeBoolean(this.use_increased_ripup_costs);
+            out.writeInt(this.checked_board_hashes.size());
+            for (Long curr_hash : this.checked_board_hashes)
+            {
+                out.writeLong(curr_hash);
+            }
+            out.writeInt(this.board.length);
+            out.write(this.board);
+            out.writeInt(this.settings.length);
+            out.write(this.settings);
+            out.flush();
+            channel.force(true);
+        }
+        try
+        {
+            java.nio.file.Files.move(temp_path, target_path, java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                    java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (java.nio.file.AtomicMoveNotSupportedException e)
+        {
+            java.nio.file.Files.move(temp_path, target_path, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Creates a board handling with the board and the settings of this checkpoint.
+     * Returns null, if the board or the settings could not be restored.
+     */
+    public BoardHandlingImpl create_board_handling(TestLevel p_test_level)
+    {
+        RoutingBoard restored_board;
+        Settings restored_settings;
+        try
+        {
+            restored_board = (RoutingBoard) RoutingBoard.read_binary(new java.io.ByteArrayInputStream(this.board));
+            java.io.ObjectInputStream object_stream = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(this.settings));
+            restored_settings = (Settings) object_stream.readObject();
+        }
+        catch (java.io.IOException | ClassNotFoundException | ClassCastException e)
+        {
+            eu.mihosoft.freerouting.logger.FRLogger.error("Couldn't restore the board from the checkpoint", e);
+            return null;
+        }
+        restored_board.set_test_level(p_test_level);
+        BoardHandlingImpl result = new BoardHandlingImpl(restored_board, restored_settings);
+        restored_settings.set_logfile(result.activityReplayFile);
+        return result;
+    }
+
+    public Phase get_phase()
+    {
+        return this.phase;
+    }
+
+    /**
+     * Returns the number of the autoroute or optimizer pass, with which the routing continues.
+     */
+    public int get_next_pass_no()
+    {
+        return this.next_pass_no;
+    }
+
+    public boolean get_use_increased_ripup_costs()
+    {
+        return this.use_increased_ripup_costs;
+    }
+
+    public Collection<Long> get_checked_board_hashes()
+    {
+        return this.checked_board_hashes;
+    }
+
+    private final Phase phase;
+    private final int next_pass_no;
+    private final boolean use_increased_ripup_costs;
+    private final Collection<Long> checked_board_hashes;
+    /** The board in the binary board format. */
+    private final byte[] board;
+    /** The serialized settings. */
+    private final byte[] settings;
+
+    private static final int MAGIC = 0x46524350; // "FRCP"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 65536;
+}
@@ -0,0 +1,368 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * HeadlessBatchAutorouter.java
+ *
+ */
+package eu.mihosoft.freerouting.interactive;
+
+import eu.mihosoft.freerouting.autoroute.BatchAutorouter;
+import eu.mihosoft.freerouting.autoroute.BatchFanout;
+import eu.mihosoft.freerouting.autoroute.BatchOptRoute;
+import eu.mihosoft.freerouting.autoroute.MultiStartAutorouter;
+import eu.mihosoft.freerouting.board.TestLevel;
+import eu.mihosoft.freerouting.designforms.specctra.DsnFile;
+import eu.mihosoft.freerouting.designforms.specctra.RulesFile;
+import eu.mihosoft.freerouting.designforms.specctra.SessionFile;
+import eu.mihosoft.freerouting.designforms.specctra.SessionToEagle;
+import eu.mihosoft.freerouting.logger.FRLogger;
+
+/**
+ * Runs the batch autorouter and the batch optimizer on a board
+ * without a graphical user interface, so that no AWT or Swing objects are created.
+ * Used for routing designs from the command line on build servers.
+ */
+public class HeadlessBatchAutorouter implements eu.mihosoft.freerouting.datastructures.Stoppable
+{
+
+    /**
+     * Reads a board from a Specctra dsn file into a new headless board handling.
+     * Returns null, if the design could not be read.
+     */
+    public static BoardHandlingImpl read_design(java.io.InputStream p_design, TestLevel p_test_level)
+    {
+        if (p_design == null)
+        {
+            return null;
+        }
+        BoardHandlingImpl board_handling = new BoardHandlingImpl();
+        DsnFile.ReadResult read_result;
+        try
+        {
+            read_result = DsnFile.read(p_design, board_handling, new eu.mihosoft.freerouting.board.BoardObserverAdaptor(),
+                    new eu.mihosoft.freerouting.board.ItemIdNoGenerator(), p_test_level);
+        }
+        catch (Exception e)
+        {
+            read_result = DsnFile.ReadResult.ERROR;
+            FRLogger.error("There was an error while reading DSN file.", e);
+        }
+        try
+        {
+            p_design.close();
+        }
+        catch (java.io.IOException e)
+        {
+            read_result = DsnFile.ReadResult.ERROR;
+        }
+        if (read_result != DsnFile.ReadResult.OK)
+        {
+            return null;
+        }
+        board_handling.get_routing_board().reduce_nets_of_route_items();
+        return board_handling;
+    }
+
+    /**
+     * Reads the rules file p_rules_file into the board of p_board_handling.
+     * Returns false, if the file could not be read.
+     */
+    public static boolean read_rules_file(BoardHandlingImpl p_board_handling, java.io.File p_rules_file, String p_design_name)
+    {
+        FRLogger.info("Opening '" + p_rules_file.getName() + "'...");
+        try (java.io.InputStream input_stream = new java.io.FileInputStream(p_rules_file))
+        {
+            return RulesFile.read(input_stream, p_design_name, p_board_handling);
+        }
+        catch (java.io.IOException e)
+        {
+            FRLogger.error("File '" + p_rules_file.getName() + "' could not be read.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Creates a new headless batch autorouter for the board of p_board_handling.
+     */
+    public HeadlessBatchAutorouter(BoardHandlingImpl p_board_handling)
+    {
+        this.hdlg = p_board_handling;
+    }
+
+    /**
+     * Writes the board as Specctra session file p_file after each autoroute pass, while the autorouting continues.
+     * The file is gzip compressed, if its name ends with ".gz".
+     */
+    public void set_intermediate_session_file(java.io.File p_file, String p_design_name)
+    {
+        this.intermediate_session_writer = new IntermediateSessionWriter(p_file, p_design_name);
+    }
+
+    /**
+     * Writes a checkpoint of the routing job to p_file after each autoroute and optimizer pass.
+     * The checkpoint is taken between the passes and written in a background thread.
+     */
+    public void set_checkpoint_file(java.io.File p_file)
+    {
+        this.checkpoint_file = p_file;
+        this.checkpoint_writer = new BackgroundWriter("checkpoint writer");
+    }
+
+    /**
+     * Continues the routing job from p_checkpoint, whose board and settings must be used by the board handling
+     * of this autorouter, see Checkpoint.create_board_handling.
+     */
+    public void resume_from(Checkpoint p_checkpoint)
+    {
+        this.resumed_checkpoint = p_checkpoint;
+    }
+
+    /**
+     * Runs the fanout, the autoroute passes and the route optimizer according
+     * to the autoroute settings of the board handling.
+     * Returns the number of incomplete connections left on the board.
+     */
+    public int autoroute()
+    {
+        FRLogger.traceEntry("HeadlessBatchAutorouter.autoroute()");
+
+        AutorouteSettings autoroute_settings = hdlg.get_settings().autoroute_settings;
+        this.job_time_limit.start(autoroute_settings.get_job_time_limit());
+        Checkpoint.Phase start_phase = Checkpoint.Phase.AUTOROUTE;
+        int start_optimizer_pass_no = 1;
+        boolean use_increased_ripup_costs = true;
+        if (this.resumed_checkpoint != null)
+        {
+            start_phase = this.resumed_checkpoint.get_phase();
+            if (start_phase == Checkpoint.Phase.AUTOROUTE)
+            {
+                autoroute_settings.set_start_pass_no(this.resumed_checkpoint.get_next_pass_no());
+            }
+            else if (start_phase == Checkpoint.Phase.OPTIMIZE)
+            {
+                start_optimizer_pass_no = this.resumed_checkpoint.get_next_pass_no();
+                use_increased_ripup_costs = this.resumed_checkpoint.get_use_increased_ripup_costs();
+            }
+            FRLogger.info("Resuming the routing in the phase " + start_phase + " with pass " + this.resumed_checkpoint.get_next_pass_no() + ".");
+        }
+        if (start_phase == Checkpoint.Phase.AUTOROUTE)
+        {
+            autoroute_settings = autoroute_board(this.resumed_checkpoint == null ? null : this.resumed_checkpoint.get_checked_board_hashes());
+            if (!this.is_stop_requested())
+            {
+                write_checkpoint(Checkpoint.Phase.OPTIMIZE, 1, true, new java.util.LinkedList<Long>());
+            }
+        }
+        if (start_phase != Checkpoint.Phase.FINISHED && autoroute_settings.get_with_postroute() && !this.is_stop_requested())
+        {
+            BatchOptRoute batch_opt_route = new BatchOptRoute(this, hdlg);
+            if (this.checkpoint_writer != null)
+            {
+                batch_opt_route.set_pass_listener((p_pass_no, p_board) ->
+                        write_checkpoint(Checkpoint.Phase.OPTIMIZE, next_pass_no(p_pass_no),
+                                batch_opt_route.get_use_increased_ripup_costs(), new java.util.LinkedList<Long>()));
+            }
+            batch_opt_route.optimize_board(start_optimizer_pass_no, use_increased_ripup_costs);
+        }
+        if (!this.is_stop_requested())
+        {
+            write_checkpoint(Checkpoint.Phase.FINISHED, 0, false, new java.util.LinkedList<Long>());
+        }
+        if (this.checkpoint_writer != null)
+        {
+            this.checkpoint_writer.finish();
+        }
+        if (this.job_time_limit.is_exceeded())
+        {
+            FRLogger.info("The routing job was stopped after its time limit of " + autoroute_settings.get_job_time_limit() + " seconds.");
+        }
+        hdlg.remove_ratsnest();
+        int incomplete_count = hdlg.get_ratsnest().incomplete_count();
+
+        FRLogger.traceExit("HeadlessBatchAutorouter.autoroute()");
+        FRLogger.info("Autorouter finished, " + incomplete_count + " connections not found.");
+        return incomplete_count;
+    }
+
+    /**
+     * Runs the fanout and the autoroute passes.
+     * p_checked_board_hashes are the fingerprints of boards already routed before resuming, or null.
+     * Returns the autoroute settings, which may have been replaced by the multi start autorouter.
+     */
+    private AutorouteSettings autoroute_board(java.util.Collection<Long> p_checked_board_hashes)
+    {
+        AutorouteSettings autoroute_settings = hdlg.get_settings().autoroute_settings;
+        if (autoroute_settings.get_with_fanout() && autoroute_settings.get_start_pass_no() <= 1)
+        {
+            BatchFanout.fanout_board(this, hdlg);
+        }
+        if (autoroute_settings.get_with_autoroute() && autoroute_settings.get_multi_start_count() > 1 && !this.is_stop_requested())
+        {
+            BoardHandlingImpl best_result = MultiStartAutorouter.autoroute(this, hdlg, autoroute_settings.get_multi_start_count());
+            if (best_result != null)
+            {
+                // each start routes with its share of the threads,
+                // but the route optimizer after the autorouter may use all of them
+                best_result.get_settings().autoroute_settings.set_thread_count(autoroute_settings.get_thread_count());
+                hdlg.board = best_result.get_routing_board();
+                // keep the pass number reached by the selected start
+                hdlg.settings = best_result.get_settings();
+                autoroute_settings = hdlg.settings.autoroute_settings;
+            }
+        }
+        else if (autoroute_settings.get_with_autoroute() && !this.is_stop_requested())
+        {
+            BatchAutorouter batch_autorouter = new BatchAutorouter(this, hdlg, !autoroute_settings.get_with_fanout(), true,
+                    autoroute_settings.get_start_ripup_costs());
+            if (p_checked_board_hashes != null)
+            {
+                batch_autorouter.add_checked_board_hashes(p_checked_board_hashes);
+            }
+            batch_autorouter.set_pass_listener((p_pass_no, p_board) ->
+            {
+                if (this.intermediate_session_writer != null)
+                {
+                    this.intermediate_session_writer.pass_finished(p_pass_no, p_board);
+                }
+                write_checkpoint(Checkpoint.Phase.AUTOROUTE, next_pass_no(p_pass_no), true,
+                        batch_autorouter.get_checked_board_hashes());
+            });
+            batch_autorouter.autoroute_passes();
+            if (this.intermediate_session_writer != null)
+            {
+                this.intermediate_session_writer.finish();
+            }
+        }
+        hdlg.get_routing_board().finish_autoroute();
+        return autoroute_settings;
+    }
+
+    /**
+     * Returns the pass to continue with after the pass p_pass_no, which is repeated, if it was stopped.
+     */
+    private int next_pass_no(int p_pass_no)
+    {
+        return this.is_stop_requested() ? p_pass_no : p_pass_no + 1;
+    }
+
+    /**
+     * Takes a checkpoint of the routing job, if a checkpoint file is set, and writes it in the background.
+     */
+    private void write_checkpoint(Checkpoint.Phase p_phase, int p_next_pass_no, boolean p_use_increased_ripup_costs,
+            java.util.Collection<Long> p_checked_board_hashes)
+    {
+        if (this.checkpoint_writer == null)
+        {
+            return;
+        }
+        Checkpoint checkpoint;
+        try
+        {
+            checkpoint = Checkpoint.create(hdlg, p_phase, p_next_pass_no, p_use_increased_ripup_costs, p_checked_board_hashes);
+        }
+        catch (java.io.IOException e)
+        {
+            FRLogger.error("Couldn't create checkpoint", e);
+            return;
+        }
+        this.checkpoint_writer.submit(() ->
+        {
+            try
+            {
+                checkpoint.write(this.checkpoint_file);
+            }
+            catch (java.io.IOException e)
+            {
+                FRLogger.error("Couldn't write checkpoint '" + this.checkpoint_file.getName() + "'", e);
+            }
+        });
+    }
+
+    /**
+     * Writes the board to p_output_stream. The format is selected by the extension of p_file_name,
+     * which may be ".ses", ".dsn" or ".scr", optionally followed by ".gz" for a gzip compressed file.
+     * Returns false, if the format is not supported or the write failed.
+     */
+    public boolean write(String p_file_name, java.io.OutputStream p_output_stream)
+    {
+        String file_name_only = new java.io.File(p_file_name).getName();
+        String lower_case_name = file_name_only.toLowerCase();
+        if (lower_case_name.endsWith(".gz"))
+        {
+            try
+            {
+                java.util.zip.GZIPOutputStream gzip_stream = new java.util.zip.GZIPOutputStream(p_output_stream, GZIP_BUFFER_SIZE);
+                boolean result = write(file_name_only.substring(0, file_name_only.length() - 3), gzip_stream);
+                gzip_stream.finish();
+                return result;
+            }
+            catch (java.io.IOException e)
+            {
+                FRLogger.error("unable to write compressed file", e);
+                return false;
+            }
+        }
+        if (lower_case_name.length() < 5)
+        {
+            return false;
+        }
+        String design_name = file_name_only.substring(0, file_name_only.length() - 4);
+        if (lower_case_name.endsWith(".ses"))
+        {
+            return SessionFile.write(hdlg.get_routing_board(), p_output_stream, design_name);
+        }
+        else if (lower_case_name.endsWith(".dsn"))
+        {
+            return DsnFile.write(hdlg, p_output_stream, design_name, false);
+        }
+        else if (lower_case_name.endsWith(".scr"))
+        {
+            java.io.ByteArrayOutputStream session_output_stream = new java.io.ByteArrayOutputStream();
+            if (!SessionFile.write(hdlg.get_routing_board(), session_output_stream, design_name))
+            {
+                return false;
+            }
+            java.io.InputStream input_stream = new java.io.ByteArrayInputStream(session_output_stream.toByteArray());
+            return SessionToEagle.get_instance(input_stream, p_output_stream, hdlg.get_routing_board());
+        }
+        return false;
+    }
+
+    public synchronized void request_stop()
+    {
+        stop_requested = true;
+    }
+
+    /**
+     * Returns true, if a stop was requested or if the time limit of the routing job is exceeded.
+     */
+    public synchronized boolean is_stop_requested()
+    {
+        return stop_requested || this.job_time_limit.is_exceeded();
+    }
+
+    private final BoardHandlingImpl hdlg;
+    private IntermediateSessionWriter intermediate_session_writer = null;
+    private java.io.File checkpoint_file = null;
+    private BackgroundWriter checkpoint_writer = null;
+    private Checkpoint resumed_checkpoint = null;
+    private boolean stop_requested = false;
+    private final JobTimeLimit job_time_limit = new JobTimeLimit();
+
+    private static final int GZIP_BUFFER_SIZE = 65536;
+}
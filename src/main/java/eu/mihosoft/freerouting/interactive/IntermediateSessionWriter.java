@@ -0,0 +1,71 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * IntermediateSessionWriter.java
+ *
+ */
+package eu.mihosoft.freerouting.interactive;
+
+import eu.mihosoft.freerouting.autoroute.BatchAutorouter;
+import eu.mihosoft.freerouting.board.BasicBoard;
+import eu.mihosoft.freerouting.board.RoutingBoard;
+import eu.mihosoft.freerouting.designforms.specctra.SessionFile;
+import eu.mihosoft.freerouting.logger.FRLogger;
+
+/**
+ * Writes a Specctra session file of the board after each pass of the batch autorouter.
+ * The autorouter thread only takes a snapshot of the board. The copy of the board is created from the snapshot
+ * and written in a background thread, while the autorouter continues with the next pass.
+ */
+class IntermediateSessionWriter implements BatchAutorouter.PassListener
+{
+    IntermediateSessionWriter(java.io.File p_file, String p_design_name)
+    {
+        this.file = p_file;
+        this.design_name = p_design_name;
+    }
+
+    public void pass_finished(int p_pass_no, RoutingBoard p_board)
+    {
+        byte[] snapshot = p_board.get_snapshot();
+        this.writer.submit(() -> write(p_board, snapshot, p_pass_no));
+    }
+
+    /**
+     * Waits until the session of the last pass is written.
+     */
+    void finish()
+    {
+        this.writer.finish();
+    }
+
+    private void write(RoutingBoard p_board, byte[] p_snapshot, int p_pass_no)
+    {
+        BasicBoard board_copy = p_board.copy_from_snapshot(p_snapshot);
+        if (board_copy == null || !SessionFile.write(board_copy, this.file, this.design_name))
+        {
+            FRLogger.warn("Couldn't write the intermediate session file '" + this.file.getName() + "'.");
+            return;
+        }
+        FRLogger.info("Saved '" + this.file.getName() + "' after pass " + p_pass_no + ".");
+    }
+
+    private final java.io.File file;
+    private final String design_name;
+    private final BackgroundWriter writer = new BackgroundWriter("intermediate session writer");
+}
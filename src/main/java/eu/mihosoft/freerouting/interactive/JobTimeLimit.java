@@ -0,0 +1,54 @@
+/*
+ *   Copyright (C) 2014  Alfons Wirtz
+ *   website www.freerouting.net
+ *
+ *   Copyright (C) 2017 Michael Hoffer <info@michaelhoffer.de>
+ *   Website www.freerouting.mihosoft.eu
+*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License at <http://www.gnu.org/licenses/>
+ *   for more details.
+ *
+ * JobTimeLimit.java
+ *
+ */
+package eu.mihosoft.freerouting.interactive;
+
+import eu.mihosoft.freerouting.datastructures.TimeLimit;
+
+/**
+ * The time limit of a whole routing job, including the route optimization.
+ * Used by the stoppables of the headless and of the interactive batch autorouter.
+ */
+class JobTimeLimit
+{
+    /**
+     * Stops the routing job p_seconds seconds from now.
+     * Nothing is changed, if p_seconds {@literal <=} 0.
+     */
+    synchronized void start(int p_seconds)
+    {
+        if (p_seconds > 0)
+        {
+            this.time_limit = new TimeLimit((int) Math.min(1000L * p_seconds, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Returns true, if the time limit of the routing job is started and exceeded.
+     */
+    synchronized boolean is_exceeded()
+    {
+        return this.time_limit != null && this.time_limit.limit_exceeded();
+    }
+
+    /** Null, as long as the time limit is not started. */
+    private TimeLimit time_limit = null;
+}
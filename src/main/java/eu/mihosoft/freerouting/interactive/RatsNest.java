@@ -43,6 +43,8 @@ import eu.mihosoft.freerouting.boardgraphics.GraphicsContext;
 
 /**
  * Creates all Incompletes (Ratsnest) to display them on the screen
+ * The incompletes are kept up to date with the board: when they are queried,
+ * only the nets, whose items have changed since the last calculation, are recalculated.
  *
  * @author Alfons Wirtz
  */
@@ -52,7 +54,9 @@ public class RatsNest
     /** Creates a new instance of RatsNest */
     public RatsNest(BasicBoard p_board, java.util.Locale p_locale)
     {
+        this.board = p_board;
         this.locale = p_locale;
+        this.board_change_count = p_board.get_change_count();
         int max_net_no = p_board.rules.nets.max_net_no();
         // Create the net item lists at once for performance reasons.
         Vector<Collection<Item>> net_item_lists = new  Vector<Collection<Item>>(max_net_no);
@@ -78,9 +82,12 @@ public class RatsNest
         }
         this.net_incompletes = new NetIncompletes[max_net_no];
         this.is_filtered = new boolean[max_net_no];
+        this.net_change_counts = new int[max_net_no];
         for (int i = 0; i < net_incompletes.length; ++i)
         {
+            net_change_counts[i] = p_board.get_net_change_count(i + 1);
             net_incompletes[i] = new NetIncompletes(i + 1, net_item_lists.get(i), p_board, p_locale);
+            incomplete_count += net_incompletes[i].count();
             is_filtered[i] = false;
         }
     }
@@ -88,36 +95,66 @@ public class RatsNest
     /**
      * Recalculates the incomplete connections for the input net
      */
-    public void recalculate(int p_net_no, BasicBoard p_board)
+    public synchronized void recalculate(int p_net_no, BasicBoard p_board)
     {
         if (p_net_no >= 1 && p_net_no <= net_incompletes.length)
         {
+            net_change_counts[p_net_no - 1] = this.board.get_net_change_count(p_net_no);
             Collection<Item> item_list = p_board.get_connectable_items(p_net_no);
-            net_incompletes[p_net_no - 1] = new NetIncompletes(p_net_no, item_list, p_board, locale);
+            set_net_incompletes(p_net_no, new NetIncompletes(p_net_no, item_list, p_board, locale));
         }
     }
     
     /**
      * Recalculates the incomplete connections for the input net with the input item list.
+     * The result is kept until the items of the net on the board change.
      */
-    public void recalculate(int p_net_no, Collection<Item> p_item_list, BasicBoard p_board)
+    public synchronized void recalculate(int p_net_no, Collection<Item> p_item_list, BasicBoard p_board)
     {
         if (p_net_no >= 1 && p_net_no <= net_incompletes.length)
         {
+            net_change_counts[p_net_no - 1] = this.board.get_net_change_count(p_net_no);
             // copy p_item_list, because it will be changed inside the constructor of NetIncompletes
             Collection<Item> item_list = new LinkedList<Item>(p_item_list);
-            net_incompletes[p_net_no - 1] = new NetIncompletes(p_net_no, item_list, p_board, locale);
+            set_net_incompletes(p_net_no, new NetIncompletes(p_net_no, item_list, p_board, locale));
         }
     }
     
-    public int incomplete_count()
+    /**
+     * Recalculates the incomplete connections of the nets, whose items on the board have changed
+     * since their last calculation.
+     */
+    private synchronized void update()
     {
-        int result = 0;
+        long curr_change_count = this.board.get_change_count();
+        if (curr_change_count == this.board_change_count)
+        {
+            return;
+        }
+        this.board_change_count = curr_change_count;
         for (int i = 0; i < net_incompletes.length; ++i)
         {
-            result +=  net_incompletes[i].count();
+            int net_no = i + 1;
+            int curr_net_change_count = this.board.get_net_change_count(net_no);
+            if (curr_net_change_count != net_change_counts[i])
+            {
+                net_change_counts[i] = curr_net_change_count;
+                Collection<Item> item_list = this.board.get_connectable_items(net_no);
+                set_net_incompletes(net_no, new NetIncompletes(net_no, item_list, this.board, locale));
+            }
         }
-        return result;
+    }
+    
+    private void set_net_incompletes(int p_net_no, NetIncompletes p_net_incompletes)
+    {
+        incomplete_count += p_net_incompletes.count() - net_incompletes[p_net_no - 1].count();
+        net_incompletes[p_net_no - 1] = p_net_incompletes;
+    }
+    
+    public int incomplete_count()
+    {
+        update();
+        return incomplete_count;
     }
     
     public int incomplete_count(int p_net_no)
@@ -126,11 +163,13 @@ public class RatsNest
         {
             return 0;
         }
+        update();
         return net_incompletes[p_net_no - 1].count();
     }
     
     public int length_violation_count()
     {
+        update();
         int result = 0;
         for (int i = 0; i < net_incompletes.length; ++i)
         {
@@ -154,6 +193,7 @@ public class RatsNest
         {
             return 0;
         }
+        update();
         return net_incompletes[p_net_no - 1].get_length_violation();
     }
     
@@ -162,6 +202,7 @@ public class RatsNest
      */
     public AirLine [] get_airlines()
     {
+        update();
         AirLine[] result = new AirLine[incomplete_count()];
         int curr_index = 0;
         for (int i = 0; i < net_incompletes.length; ++i)
@@ -192,6 +233,7 @@ public class RatsNest
      */
     public boolean recalculate_length_violations()
     {
+        update();
         boolean result = false;
         for (int i = 0; i < net_incompletes.length; ++i)
         {
@@ -237,7 +279,13 @@ public class RatsNest
         }
         
     }
+    private final BasicBoard board;
     private final NetIncompletes [] net_incompletes;
+    /** The change counts of the nets on the board at the last calculation of their incompletes. */
+    private final int[] net_change_counts;
+    private long board_change_count;
+    /** The sum of the incomplete counts of all nets. */
+    private int incomplete_count = 0;
     private final boolean[] is_filtered;
     public boolean hidden = false;
     private final java.util.Locale locale;
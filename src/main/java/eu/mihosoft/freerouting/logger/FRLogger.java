@@ -8,17 +8,19 @@ import java.text.DecimalFormat;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.Map;
 
 public class FRLogger {
     private static Logger logger = LogManager.getLogger(FreeRouting.class);
 
     private static DecimalFormat performanceFormat = new DecimalFormat("0.00");
 
-    private static HashMap<Integer, Instant> perfData = new HashMap<Integer, Instant>();
+    /** The start times of the traced methods, per thread, because the same method may run in several threads at once. */
+    private static ThreadLocal<Map<Integer, Instant>> perfData = ThreadLocal.withInitial(HashMap::new);
 
     public static void traceEntry(String perfId)
     {
-        perfData.put(perfId.hashCode(), java.time.Instant.now());
+        perfData.get().put(perfId.hashCode(), java.time.Instant.now());
     }
 
     public static void traceExit(String perfId)
@@ -28,9 +30,13 @@ public class FRLogger {
 
     public static void traceExit(String perfId, Object result)
     {
-        long timeElapsed = Duration.between(perfData.get(perfId.hashCode()), java.time.Instant.now()).toMillis();
+        Instant startTime = perfData.get().remove(perfId.hashCode());
+        if (startTime == null) {
+            // traceEntry was not called in this thread
+            return;
+        }
+        long timeElapsed = Duration.between(startTime, java.time.Instant.now()).toMillis();
 
-        perfData.remove(perfId.hashCode());
         if (timeElapsed < 0) {
             timeElapsed = 0;
         }
@@ -0,0 +1,224 @@
+package eu.mihosoft.freerouting.logger;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of an autorouter, which are collected per autoroute pass
+ * and reported as one JSON object per line at the end of each pass.
+ * Each autorouter has its own metrics, which it binds to the threads routing for it with set_current,
+ * so that the autorouters of a multi start do not mix their counts.
+ * The static increment, add and record methods count in the metrics of the current thread,
+ * and do nothing in threads without metrics.
+ * The counters are thread safe, so that they can also be incremented by the parallel autorouter.
+ */
+public class FRMetrics
+{
+    /**
+     * The counted events of an autoroute pass.
+     */
+    public enum Counter
+    {
+        CONNECTIONS_ATTEMPTED,
+        CONNECTIONS_ROUTED,
+        CONNECTIONS_FAILED,
+        /** Connections, which exceeded their expansion budget and were routed again at the end of the pass */
+        CONNECTIONS_DEFERRED,
+        RIPPED_ITEMS,
+        MAZE_EXPANSIONS,
+        ROOMS_COMPLETED,
+        SEARCH_TREE_QUERIES,
+        PULL_TIGHT_NANOS,
+        /** Geometry predicates evaluated with a fast double or long filter */
+        GEOMETRY_PREDICATES,
+        /** Geometry predicates, where the filter was inconclusive and BigInteger arithmetic was used */
+        GEOMETRY_EXACT_FALLBACKS
+    }
+
+    /**
+     * The value distributions recorded during an autoroute pass.
+     */
+    public enum Histogram
+    {
+        /** The time in milliseconds to route a connection */
+        CONNECTION_MILLIS,
+        /** The number of maze expansions for a connection */
+        CONNECTION_MAZE_EXPANSIONS
+    }
+
+    /**
+     * Creates metrics, whose lines are not marked with a start number.
+     */
+    public FRMetrics()
+    {
+        this(-1);
+    }
+
+    /**
+     * Creates metrics, whose lines contain the start number p_start_no of a multi start.
+     */
+    public FRMetrics(int p_start_no)
+    {
+        this.start_no = p_start_no;
+        for (int i = 0; i < counters.length; ++i)
+        {
+            counters[i] = new LongAdder();
+        }
+        for (int i = 0; i < histograms.length; ++i)
+        {
+            histograms[i] = new AtomicLongArray(HISTOGRAM_BUCKET_COUNT);
+        }
+    }
+
+    /**
+     * Sets the metrics, in which the events of the calling thread are counted.
+     * If p_metrics is null, the events of the calling thread are not counted.
+     */
+    public static void set_current(FRMetrics p_metrics)
+    {
+        current.set(p_metrics);
+    }
+
+    /**
+     * Sets the file, to which the metrics of each pass are appended.
+     * If p_file_name is null, the metrics are not written.
+     */
+    public static synchronized void set_output_file(String p_file_name)
+    {
+        output_file_name = p_file_name;
+    }
+
+    public static void increment(Counter p_counter)
+    {
+        FRMetrics metrics = current.get();
+        if (metrics != null)
+        {
+            metrics.counters[p_counter.ordinal()].increment();
+        }
+    }
+
+    public static void add(Counter p_counter, long p_value)
+    {
+        FRMetrics metrics = current.get();
+        if (metrics != null)
+        {
+            metrics.counters[p_counter.ordinal()].add(p_value);
+        }
+    }
+
+    /**
+     * Records p_value in the histogram p_histogram.
+     * The buckets of the histograms are powers of 2, the first bucket contains the values {@literal <=} 0.
+     */
+    public static void record(Histogram p_histogram, long p_value)
+    {
+        FRMetrics metrics = current.get();
+        if (metrics == null)
+        {
+            return;
+        }
+        int bucket = p_value <= 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(p_value), HISTOGRAM_BUCKET_COUNT - 1);
+        metrics.histograms[p_histogram.ordinal()].incrementAndGet(bucket);
+    }
+
+    /**
+     * Resets all counters and histograms at the start of an autoroute pass.
+     */
+    public synchronized void start_pass()
+    {
+        for (LongAdder curr_counter : counters)
+        {
+            curr_counter.reset();
+        }
+        for (AtomicLongArray curr_histogram : histograms)
+        {
+            for (int i = 0; i < HISTOGRAM_BUCKET_COUNT; ++i)
+            {
+                curr_histogram.set(i, 0);
+            }
+        }
+        pass_start_time = System.nanoTime();
+    }
+
+    /**
+     * Writes the metrics collected since start_pass as a JSON line
+     * and returns that line.
+     */
+    public synchronized String end_pass(int p_pass_no)
+    {
+        Runtime runtime = Runtime.getRuntime();
+        StringBuilder result = new StringBuilder();
+        result.append('{');
+        if (this.start_no >= 0)
+        {
+            result.append("\"start\":").append(this.start_no).append(',');
+        }
+        result.append("\"pass\":").append(p_pass_no);
+        result.append(",\"millis\":").append((System.nanoTime() - pass_start_time) / 1000000);
+        for (Counter curr_counter : Counter.values())
+        {
+            result.append(",\"").append(curr_counter.name().toLowerCase()).append("\":");
+            result.append(counters[curr_counter.ordinal()].sum());
+        }
+        for (Histogram curr_histogram : Histogram.values())
+        {
+            AtomicLongArray curr_buckets = histograms[curr_histogram.ordinal()];
+            int last_bucket = HISTOGRAM_BUCKET_COUNT - 1;
+            while (last_bucket > 0 && curr_buckets.get(last_bucket) == 0)
+            {
+                --last_bucket;
+            }
+            result.append(",\"").append(curr_histogram.name().toLowerCase()).append("\":[");
+            for (int i = 0; i <= last_bucket; ++i)
+            {
+                if (i > 0)
+                {
+                    result.append(',');
+                }
+                result.append(curr_buckets.get(i));
+            }
+            result.append(']');
+        }
+        result.append(",\"heap_used\":").append(runtime.totalMemory() - runtime.freeMemory());
+        result.append('}');
+        String json_line = result.toString();
+        write_line(json_line);
+        return json_line;
+    }
+
+    /**
+     * Appends p_json_line to the output file.
+     * Synchronized on the class, because the metrics of several autorouters may be written at the same time.
+     */
+    private static synchronized void write_line(String p_json_line)
+    {
+        if (output_file_name == null)
+        {
+            return;
+        }
+        try (Writer writer = new FileWriter(output_file_name, true))
+        {
+            writer.write(p_json_line);
+            writer.write(System.lineSeparator());
+        }
+        catch (IOException e)
+        {
+            FRLogger.error("Couldn't write metrics to '" + output_file_name + "'", e);
+        }
+    }
+
+    private static final int HISTOGRAM_BUCKET_COUNT = 32;
+
+    /** The metrics, in which the events of each thread are counted. */
+    private static final ThreadLocal<FRMetrics> current = new ThreadLocal<FRMetrics>();
+    private static String output_file_name = null;
+
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private final AtomicLongArray[] histograms = new AtomicLongArray[Histogram.values().length];
+    /** The number of the start of a multi start, or -1. */
+    private final int start_no;
+    private long pass_start_time = System.nanoTime();
+}
@@ -26,6 +26,8 @@ import eu.mihosoft.freerouting.logger.FRLogger;
 
 import java.util.Vector;
 import java.util.Collection;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Describes the electrical Nets on a board.
@@ -52,14 +54,16 @@ public class Nets implements java.io.Serializable
     /** Returns the net with the input name and subnet_number , or null, if no such net exists. */
     public Net get(String p_name, int p_subnet_number)
     {
-        for (Net curr_net : net_arr)
+        Collection<Net> nets_with_name = get_name_index().get(p_name);
+        if (nets_with_name == null)
         {
-            if (curr_net != null && curr_net.name.compareToIgnoreCase(p_name) == 0)
+            return null;
+        }
+        for (Net curr_net : nets_with_name)
+        {
+            if (curr_net.subnet_number == p_subnet_number)
             {
-                if (curr_net.subnet_number == p_subnet_number)
-                {
-                    return curr_net;
-                }
+                return curr_net;
             }
         }
         return null;
@@ -71,12 +75,10 @@ public class Nets implements java.io.Serializable
     public Collection<Net> get(String p_name)
     {
         Collection<Net> result = new java.util.LinkedList<Net>();
-        for (Net curr_net : net_arr)
+        Collection<Net> nets_with_name = get_name_index().get(p_name);
+        if (nets_with_name != null)
         {
-            if (curr_net != null && curr_net.name.compareToIgnoreCase(p_name) == 0)
-            {
-                result.add(curr_net);
-            }
+            result.addAll(nets_with_name);
         }
         return result;
     }
@@ -122,9 +124,44 @@ public class Nets implements java.io.Serializable
         }
         Net new_net = new Net(p_name, p_subnet_number, new_net_no, this, p_contains_plane);
         net_arr.add(new_net);
+        if (name_index != null)
+        {
+            add_to_name_index(new_net);
+        }
         return new_net;
     }
 
+    /**
+     * Returns the nets by name ignoring case, in the order of their net numbers.
+     * The index is not serialized and created again at the first access.
+     */
+    private synchronized SortedMap<String, Collection<Net>> get_name_index()
+    {
+        if (name_index == null)
+        {
+            name_index = new TreeMap<String, Collection<Net>>(String.CASE_INSENSITIVE_ORDER);
+            for (Net curr_net : net_arr)
+            {
+                if (curr_net != null)
+                {
+                    add_to_name_index(curr_net);
+                }
+            }
+        }
+        return name_index;
+    }
+
+    private void add_to_name_index(Net p_net)
+    {
+        Collection<Net> nets_with_name = name_index.get(p_net.name);
+        if (nets_with_name == null)
+        {
+            nets_with_name = new java.util.ArrayList<Net>(1);
+            name_index.put(p_net.name, nets_with_name);
+        }
+        nets_with_name.add(p_net);
+    }
+
     /**
      * Returns false, if p_net_no belongs to a net internally used
      * for special purposes.
@@ -160,5 +197,6 @@ public class Nets implements java.io.Serializable
     public static final int hidden_net_no = 10000001;
     /** The list of electrical nets on the board */
     private Vector<Net> net_arr;
+    private transient SortedMap<String, Collection<Net>> name_index = null;
     private eu.mihosoft.freerouting.board.BasicBoard board;
 }